@@ -2,14 +2,25 @@ package com.example.api_gateway;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
 import org.springframework.cloud.gateway.server.mvc.predicate.GatewayRequestPredicates;
 import org.springframework.context.annotation.Bean;
 import org.springframework.cloud.netflix.eureka.http.EurekaClientHttpRequestFactorySupplier;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import javax.net.ssl.SSLContext;
 
@@ -17,9 +28,11 @@ import org.springframework.web.client.RestClient;
 import org.springframework.web.servlet.function.RouterFunction;
 import org.springframework.web.servlet.function.ServerResponse;
 import org.springframework.web.servlet.function.RequestPredicates;
+import org.springframework.web.servlet.function.RouterFunctions;
 import org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions;
 import org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions;
 
+import static org.springframework.cloud.gateway.server.mvc.filter.LoadBalancerFilterFunctions.lb;
 import static org.springframework.cloud.gateway.server.mvc.handler.GatewayRouterFunctions.route;
 import static org.springframework.cloud.gateway.server.mvc.handler.HandlerFunctions.http;
 import static org.springframework.cloud.gateway.server.mvc.predicate.GatewayRequestPredicates.path;
@@ -28,8 +41,10 @@ import org.springframework.web.servlet.function.RouterFunction;
 import org.springframework.web.servlet.function.ServerResponse;
 
 import java.net.URI;
+import java.time.Duration;
 
 @SpringBootApplication
+@LoadBalancerClient(name = "psp-core", configuration = PspCoreLoadBalancerConfig.class)
 public class ApiGatewayApplication {
 
     public static void main(String[] args) {
@@ -58,8 +73,130 @@ public class ApiGatewayApplication {
         };
     }
 
+    /**
+     * Rute ka PSP-CORE. Cilj je lb://psp-core - instancu bira Spring Cloud LoadBalancer iz keširane
+     * liste (PspCoreLoadBalancerConfig), bez upita Eureki po zahtevu. Hop-by-hop zaglavlja u oba smera
+     * uklanjaju ugrađeni RemoveHopByHop*HeadersFilter-i gateway-a. Rute se proveravaju redom,
+     * pa specifičnije (sa svojim timeout-om) idu pre opšte /api/**.
+     */
     @Bean
-    public RestClient.Builder restClientBuilder() {
+    public RouterFunction<ServerResponse> pspCoreRoutes(@Value("${gateway.routes.admin-timeout-ms:300000}") long adminTimeoutMs,
+                                                        @Value("${gateway.routes.payments-timeout-ms:15000}") long paymentsTimeoutMs,
+                                                        @Value("${gateway.routes.default-timeout-ms:30000}") long defaultTimeoutMs) {
+        // Admin: upload/preuzimanje settlement fajla za poravnanje može trajati minutima
+        RouterFunction<ServerResponse> admin = route("psp-admin")
+                .route(path("/api/admin/**"), http())
+                .before(RouteTimeouts.responseTimeout(Duration.ofMillis(adminTimeoutMs)))
+                .filter(lb("psp-core"))
+                .build();
+
+        // Checkout: kupac čeka, pa se spora instanca brzo odseca
+        RouterFunction<ServerResponse> payments = route("psp-payments")
+                .route(path("/api/payments/**"), http())
+                .before(RouteTimeouts.responseTimeout(Duration.ofMillis(paymentsTimeoutMs)))
+                .filter(lb("psp-core"))
+                .build();
+
+        RouterFunction<ServerResponse> core = route("psp-core")
+                .route(path("/api/**"), http())
+                .before(RouteTimeouts.responseTimeout(Duration.ofMillis(defaultTimeoutMs)))
+                .filter(lb("psp-core"))
+                .build();
+
+        return admin.and(payments).and(core);
+    }
+
+    // Dijagnostika: težine i stanje psp-core instanci iz pasivne provere zdravlja
+    @Bean
+    public RouterFunction<ServerResponse> gatewayDiagnostics(InstanceHealthTracker healthTracker) {
+        return RouterFunctions.route()
+                .GET("/gateway/instances", request -> ServerResponse.ok().body(healthTracker.snapshot()))
+                .build();
+    }
+
+    // Rute su funkcije, ne kontroleri - @CrossOrigin više nema gde da stoji
+    @Bean
+    public WebMvcConfigurer corsConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addCorsMappings(CorsRegistry registry) {
+                registry.addMapping("/api/**")
+                        .allowedOriginPatterns("*")
+                        .allowedMethods("*")
+                        .allowedHeaders("*");
+            }
+        };
+    }
+
+    /**
+     * Fabrika zahteva za gateway (i RestClient.Builder): sve ide kroz deljeni pspProxyHttpClient,
+     * a timeout odgovora se uzima iz atributa rute ako ga je ruta postavila.
+     */
+    @Bean
+    @Primary
+    public ClientHttpRequestFactory gatewayRequestFactory(CloseableHttpClient pspProxyHttpClient,
+                                                          @Value("${gateway.proxy.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                                          @Value("${gateway.proxy.response-timeout-ms:30000}") long responseTimeoutMs) {
+        RequestConfig defaults = proxyRequestConfig(connectTimeoutMs, responseTimeoutMs);
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(pspProxyHttpClient);
+        factory.setHttpContextFactory((method, uri) -> RouteTimeouts.httpContext(defaults));
+        return factory;
+    }
+
+    @Bean
+    public RestClient.Builder restClientBuilder(ClientHttpRequestFactory gatewayRequestFactory) {
+        return RestClient.builder().requestFactory(gatewayRequestFactory);
+    }
+
+    /**
+     * Deljeni klijent za rute ka PSP-u: SSLContext se pravi jednom (TLS sesije se ponovo koriste),
+     * konekcije ostaju otvorene u pool-u. Bez dekompresije, redirekcija i kolačića - gateway
+     * prosleđuje bajtove i zaglavlja onakve kakvi jesu.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient pspProxyHttpClient(@Value("${gateway.proxy.max-connections:200}") int maxConnections,
+                                                  @Value("${gateway.proxy.max-connections-per-route:50}") int maxPerRoute,
+                                                  @Value("${gateway.proxy.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                                  @Value("${gateway.proxy.response-timeout-ms:30000}") long responseTimeoutMs,
+                                                  @Value("${gateway.proxy.idle-timeout-s:30}") long idleTimeoutSeconds) {
+        var socketFactory = SSLConnectionSocketFactoryBuilder.create()
+                .setSslContext(insecureSslContext())
+                .setHostnameVerifier(NoopHostnameVerifier.INSTANCE)
+                .build();
+
+        var connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setSSLSocketFactory(socketFactory)
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        // Konekcija koja je dugo stajala se proverava pre upotrebe (PSP ju je možda zatvorio)
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(proxyRequestConfig(connectTimeoutMs, responseTimeoutMs))
+                .disableContentCompression()
+                .disableRedirectHandling()
+                .disableCookieManagement()
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleTimeoutSeconds))
+                .build();
+    }
+
+    private static RequestConfig proxyRequestConfig(long connectTimeoutMs, long responseTimeoutMs) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                .setRedirectsEnabled(false)
+                .build();
+    }
+
+    // IGNORIŠE PROVERU SERTIFIKATA - samo lokalne instance sa self-signed sertifikatima
+    private static SSLContext insecureSslContext() {
         try {
             javax.net.ssl.TrustManager[] trustAllCerts = new javax.net.ssl.TrustManager[]{
                     new javax.net.ssl.X509TrustManager() {
@@ -75,30 +212,14 @@ public class ApiGatewayApplication {
                     }
             };
 
-            javax.net.ssl.SSLContext sslContext = javax.net.ssl.SSLContext.getInstance("TLS");
+            SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-
-            var socketFactory = org.apache.hc.client5.http.ssl.SSLConnectionSocketFactoryBuilder.create()
-                    .setSslContext(sslContext)
-                    .setHostnameVerifier(org.apache.hc.client5.http.ssl.NoopHostnameVerifier.INSTANCE)
-                    .build();
-
-            var connectionManager = org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder.create()
-                    .setSSLSocketFactory(socketFactory)
-                    .build();
-
-            var httpClient = org.apache.hc.client5.http.impl.classic.HttpClients.custom()
-                    .setConnectionManager(connectionManager)
-                    .build();
-
-            return RestClient.builder()
-                    .requestFactory(new org.springframework.http.client.HttpComponentsClientHttpRequestFactory(httpClient));
+            return sslContext;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
-
     private SSLContext getSystemSslContext() {
         try {
             return SSLContext.getDefault();
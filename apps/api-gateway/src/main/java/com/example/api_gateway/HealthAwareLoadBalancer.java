@@ -0,0 +1,198 @@
+package com.example.api_gateway;
+
+import com.example.commons.ConsistentHashRing;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Balansiranje preko keširane liste instanci sa težinama iz InstanceHealthTracker-a:
+ * izbačene instance ne dobijaju saobraćaj, a vraćene dobijaju udeo srazmeran težini.
+ * Ako su sve instance izbačene, bira se među svima (bolje i spora instanca nego 503).
+ *
+ * Zahtevi koji nose UUID transakcije (u putanji ili kao ?uuid=) idu consistent hashing-om
+ * na istu instancu, pa je keš te instance za tu transakciju "topao" kroz ceo checkout.
+ * Opterećenje je ograničeno (bounded load): instanca koja već ima više od (1 + load-factor)
+ * puta prosečan broj zahteva u toku se preskače i ključ ide sledećoj na prstenu.
+ */
+public class HealthAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final ObjectProvider<ServiceInstanceListSupplier> supplierProvider;
+    private final InstanceHealthTracker healthTracker;
+    private final double loadFactor;
+    private volatile RingSnapshot ring;
+
+    public HealthAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> supplierProvider,
+                                   InstanceHealthTracker healthTracker, double loadFactor) {
+        this.supplierProvider = supplierProvider;
+        this.healthTracker = healthTracker;
+        this.loadFactor = loadFactor;
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = supplierProvider.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> choose(instances, transactionKey(request)));
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances, String transactionKey) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        healthTracker.instancesSeen(instances.size());
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        long now = System.nanoTime();
+        ServiceInstance sticky = transactionKey != null ? chooseByKey(instances, transactionKey, now) : null;
+        return new DefaultResponse(sticky != null ? sticky : chooseWeighted(instances, now));
+    }
+
+    /**
+     * Prva instanca na prstenu za ključ koja nije izbačena i ima mesta:
+     * u toku najviše ceil((ukupno u toku + 1) * (1 + loadFactor) / broj zdravih instanci).
+     */
+    private ServiceInstance chooseByKey(List<ServiceInstance> instances, String key, long now) {
+        List<ServiceInstance> candidates = ringFor(instances).candidates(key, instances.size());
+
+        int healthy = 0;
+        long totalInFlight = 0;
+        for (ServiceInstance instance : instances) {
+            if (healthTracker.weight(instance, now) > 0) {
+                healthy++;
+                totalInFlight += healthTracker.inFlight(instance);
+            }
+        }
+        if (healthy == 0) {
+            return candidates.get(0);
+        }
+
+        long capacity = (long) Math.ceil((totalInFlight + 1) * (1 + loadFactor) / healthy);
+        for (ServiceInstance candidate : candidates) {
+            if (healthTracker.weight(candidate, now) > 0 && healthTracker.inFlight(candidate) < capacity) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private ServiceInstance chooseWeighted(List<ServiceInstance> instances, long now) {
+        double[] weights = new double[instances.size()];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = healthTracker.weight(instances.get(i), now);
+            total += weights[i];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (total <= 0) {
+            return instances.get(random.nextInt(instances.size()));
+        }
+        double point = random.nextDouble(total);
+        for (int i = 0; i < weights.length; i++) {
+            point -= weights[i];
+            if (point < 0) {
+                return instances.get(i);
+            }
+        }
+        return instances.get(weights.length - 1);
+    }
+
+    // Prsten se gradi ponovo samo kada se promeni skup instanci (keširana lista je obično isti objekat)
+    private ConsistentHashRing<ServiceInstance> ringFor(List<ServiceInstance> instances) {
+        RingSnapshot current = ring;
+        if (current != null && current.source == instances) {
+            return current.ring;
+        }
+        Set<String> ids = new HashSet<>(instances.size() * 2);
+        for (ServiceInstance instance : instances) {
+            ids.add(InstanceHealthTracker.key(instance));
+        }
+        if (current != null && current.ids.equals(ids)) {
+            ring = new RingSnapshot(instances, ids, current.ring);
+            return current.ring;
+        }
+        RingSnapshot rebuilt = new RingSnapshot(instances, ids,
+                new ConsistentHashRing<>(instances, InstanceHealthTracker::key, VIRTUAL_NODES));
+        ring = rebuilt;
+        return rebuilt.ring;
+    }
+
+    private record RingSnapshot(List<ServiceInstance> source, Set<String> ids, ConsistentHashRing<ServiceInstance> ring) {
+    }
+
+    /** UUID transakcije iz putanje (/api/payments/{uuid}, /checkout/{uuid}/...) ili iz ?uuid=. */
+    static String transactionKey(Request<?> request) {
+        URI url = null;
+        if (request.getContext() instanceof RequestDataContext context && context.getClientRequest() != null) {
+            url = context.getClientRequest().getUrl();
+        }
+        if (url != null) {
+            return transactionKey(url.getRawPath(), url.getRawQuery());
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servlet) {
+            HttpServletRequest current = servlet.getRequest();
+            return transactionKey(current.getRequestURI(), current.getQueryString());
+        }
+        return null;
+    }
+
+    static String transactionKey(String path, String query) {
+        if (path != null) {
+            int start = 0;
+            while (start < path.length()) {
+                int end = path.indexOf('/', start);
+                if (end < 0) end = path.length();
+                if (isUuid(path, start, end)) {
+                    return path.substring(start, end).toLowerCase(Locale.ROOT);
+                }
+                start = end + 1;
+            }
+        }
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith("uuid=") && isUuid(param, 5, param.length())) {
+                    return param.substring(5).toLowerCase(Locale.ROOT);
+                }
+            }
+        }
+        return null;
+    }
+
+    // 8-4-4-4-12 heksadecimalnih cifara
+    private static boolean isUuid(String s, int from, int to) {
+        if (to - from != 36) return false;
+        for (int i = 0; i < 36; i++) {
+            char c = s.charAt(from + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') return false;
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.api_gateway;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pasivno praćenje zdravlja PSP-CORE instanci na osnovu stvarnog saobraćaja kroz gateway.
+ *
+ * Instanca se izbacuje iz balansiranja posle consecutive-errors uzastopnih grešaka (izuzetak ili 5xx)
+ * ili kada joj prosečno vreme odgovora (EWMA) pređe latency-factor puta medijanu ostalih instanci.
+ * Izbacivanje traje base-ejection-ms, svako sledeće duže (do max-ejection-ms); posle toga instanca
+ * dobija deo saobraćaja koji linearno raste tokom ramp-ms. Nikad nije izbačeno više od
+ * max-ejection-percent instanci, pa jedna loša procena ne može da ugasi ceo PSP.
+ */
+@Component
+public class InstanceHealthTracker implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private static final Logger log = LoggerFactory.getLogger(InstanceHealthTracker.class);
+
+    // Najmanji udeo saobraćaja tek vraćene instance
+    private static final double MIN_RAMP_WEIGHT = 0.1;
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final Map<String, InstanceState> states = new ConcurrentHashMap<>();
+    private volatile int knownInstances;
+
+    @Value("${gateway.outlier.consecutive-errors:5}")
+    private int consecutiveErrors;
+
+    @Value("${gateway.outlier.latency-factor:3.0}")
+    private double latencyFactor;
+
+    @Value("${gateway.outlier.min-latency-ms:500}")
+    private long minLatencyMs;
+
+    @Value("${gateway.outlier.min-samples:20}")
+    private int minSamples;
+
+    @Value("${gateway.outlier.base-ejection-ms:30000}")
+    private long baseEjectionMs;
+
+    @Value("${gateway.outlier.max-ejection-ms:300000}")
+    private long maxEjectionMs;
+
+    @Value("${gateway.outlier.max-ejection-percent:50}")
+    private int maxEjectionPercent;
+
+    @Value("${gateway.outlier.ramp-ms:30000}")
+    private long rampMs;
+
+    /** Udeo saobraćaja za instancu: 0 = izbačena, (0, 1) = postepeno vraćanje, 1 = zdrava. */
+    public double weight(ServiceInstance instance, long nowNanos) {
+        InstanceState state = states.get(key(instance));
+        return state == null ? 1.0 : state.weight(nowNanos, rampMs * 1_000_000L);
+    }
+
+    /** Broj zahteva koji su trenutno u toku ka instanci (za bounded-load consistent hashing). */
+    public int inFlight(ServiceInstance instance) {
+        InstanceState state = states.get(key(instance));
+        return state == null ? 0 : state.inFlight.get();
+    }
+
+    /** Balanser javlja koliko instanci trenutno postoji - osnova za max-ejection-percent. */
+    void instancesSeen(int count) {
+        knownInstances = count;
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext timed) {
+            timed.setRequestStartTime(System.nanoTime());
+        }
+        if (lbResponse != null && lbResponse.hasServer()) {
+            states.computeIfAbsent(key(lbResponse.getServer()), k -> new InstanceState()).inFlight.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completion) {
+        Response<ServiceInstance> lbResponse = completion.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) return;
+        ServiceInstance instance = lbResponse.getServer();
+        long now = System.nanoTime();
+
+        boolean failed = completion.status() == CompletionContext.Status.FAILED
+                || isServerError(completion.getClientResponse());
+
+        InstanceState state = states.computeIfAbsent(key(instance), k -> new InstanceState());
+        if (completion.status() != CompletionContext.Status.DISCARD) {
+            state.inFlight.getAndUpdate(n -> n > 0 ? n - 1 : 0);
+        }
+        synchronized (state) {
+            Request<Object> request = completion.getLoadBalancerRequest();
+            if (request != null && request.getContext() instanceof TimedRequestContext timed && timed.getRequestStartTime() > 0) {
+                state.recordLatency((now - timed.getRequestStartTime()) / 1_000_000.0);
+            }
+            if (failed) {
+                state.consecutiveErrors++;
+            } else {
+                state.consecutiveErrors = 0;
+            }
+        }
+
+        if (state.isEjected(now)) return;
+        if (state.consecutiveErrors >= consecutiveErrors) {
+            eject(instance, state, now, "uzastopne greške: " + state.consecutiveErrors);
+        } else if (isLatencyOutlier(state)) {
+            eject(instance, state, now, String.format("latencija %.0f ms", state.ewmaMillis));
+        }
+    }
+
+    /** Stanje svih praćenih instanci (za dijagnostiku). */
+    public Map<String, Map<String, Object>> snapshot() {
+        long now = System.nanoTime();
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        states.forEach((key, state) -> {
+            Map<String, Object> info = new LinkedHashMap<>();
+            synchronized (state) {
+                info.put("weight", state.weight(now, rampMs * 1_000_000L));
+                info.put("inFlight", state.inFlight.get());
+                info.put("ewmaMillis", Math.round(state.ewmaMillis));
+                info.put("samples", state.samples);
+                info.put("consecutiveErrors", state.consecutiveErrors);
+                info.put("ejections", state.ejections);
+            }
+            result.put(key, info);
+        });
+        return result;
+    }
+
+    private boolean isLatencyOutlier(InstanceState state) {
+        double own;
+        synchronized (state) {
+            if (state.samples < minSamples) return false;
+            own = state.ewmaMillis;
+        }
+        if (own < minLatencyMs) return false;
+
+        List<Double> others = new ArrayList<>();
+        long now = System.nanoTime();
+        for (InstanceState other : states.values()) {
+            if (other == state || other.isEjected(now)) continue;
+            synchronized (other) {
+                if (other.samples >= minSamples) others.add(other.ewmaMillis);
+            }
+        }
+        // Bez poređenja sa bar dve zdrave instance nema smisla govoriti o "sporoj" instanci
+        if (others.size() < 2) return false;
+        Collections.sort(others);
+        double median = others.get(others.size() / 2);
+        return own > median * latencyFactor;
+    }
+
+    private void eject(ServiceInstance instance, InstanceState state, long now, String reason) {
+        // Ograničenje: najviše max-ejection-percent poznatih instanci (bar jedna uvek ostaje)
+        int total = knownInstances > 0 ? knownInstances : states.size();
+        int ejected = 0;
+        for (InstanceState other : states.values()) {
+            if (other.isEjected(now)) ejected++;
+        }
+        if (ejected + 1 > Math.min(total - 1, total * maxEjectionPercent / 100)) return;
+
+        long duration;
+        synchronized (state) {
+            if (state.isEjected(now)) return;
+            // Instanca koja je dugo bila zdrava ponovo kreće od osnovnog trajanja
+            if (state.ejectedUntil != 0 && now - state.ejectedUntil > maxEjectionMs * 2_000_000L) {
+                state.ejections = 0;
+            }
+            state.ejections++;
+            duration = Math.min(baseEjectionMs * state.ejections, maxEjectionMs);
+            state.ejectedUntil = now + duration * 1_000_000L;
+            state.consecutiveErrors = 0;
+            state.samples = 0; // posle povratka latencija se meri iznova
+        }
+        log.warn("Instanca {} izbačena iz balansiranja na {} ms ({})", key(instance), duration, reason);
+    }
+
+    // Gateway MVC lb() filter završava sa ServerResponse, blokirajući klijenti sa ResponseData
+    static boolean isServerError(Object clientResponse) {
+        if (clientResponse instanceof ServerResponse response) {
+            return response.statusCode().is5xxServerError();
+        }
+        if (clientResponse instanceof ResponseData data && data.getHttpStatus() != null) {
+            return data.getHttpStatus().is5xxServerError();
+        }
+        return false;
+    }
+
+    static String key(ServiceInstance instance) {
+        return instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static final class InstanceState {
+        int consecutiveErrors;
+        double ewmaMillis;
+        long samples;
+        int ejections;
+        final AtomicInteger inFlight = new AtomicInteger();
+        volatile long ejectedUntil; // System.nanoTime(); 0 = nikad izbačena
+
+        void recordLatency(double millis) {
+            ewmaMillis = samples == 0 ? millis : ewmaMillis + EWMA_ALPHA * (millis - ewmaMillis);
+            samples++;
+        }
+
+        boolean isEjected(long now) {
+            long until = ejectedUntil;
+            return until != 0 && now - until < 0;
+        }
+
+        double weight(long now, long rampNanos) {
+            long until = ejectedUntil;
+            if (until == 0) return 1.0;
+            long sinceReturn = now - until;
+            if (sinceReturn < 0) return 0.0;
+            if (rampNanos <= 0 || sinceReturn >= rampNanos) return 1.0;
+            return MIN_RAMP_WEIGHT + (1.0 - MIN_RAMP_WEIGHT) * sinceReturn / rampNanos;
+        }
+    }
+}
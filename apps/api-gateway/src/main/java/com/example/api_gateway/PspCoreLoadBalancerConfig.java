@@ -0,0 +1,37 @@
+package com.example.api_gateway;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * LoadBalancer konfiguracija za psp-core (namerno bez @Configuration - važi samo za taj klijent).
+ * Lista instanci se uzima iz Eureka klijenta i kešira (spring.cloud.loadbalancer.cache.ttl),
+ * pa izbor instance po zahtevu ne pravi novu listu niti pita discovery. Instancu bira
+ * HealthAwareLoadBalancer, uz težine iz InstanceHealthTracker-a (pasivna provera zdravlja)
+ * i consistent hashing po UUID-u transakcije.
+ */
+public class PspCoreLoadBalancerConfig {
+
+    @Bean
+    public ServiceInstanceListSupplier pspCoreInstanceSupplier(ConfigurableApplicationContext context) {
+        return ServiceInstanceListSupplier.builder()
+                .withBlockingDiscoveryClient()
+                .withCaching()
+                .build(context);
+    }
+
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> pspCoreLoadBalancer(Environment environment,
+                                                                    LoadBalancerClientFactory clientFactory,
+                                                                    InstanceHealthTracker healthTracker) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        double loadFactor = environment.getProperty("gateway.sticky.load-factor", Double.class, 0.25);
+        return new HealthAwareLoadBalancer(
+                clientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class), healthTracker, loadFactor);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.api_gateway;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.function.ServerRequest;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Timeout odgovora po ruti. Ruta upisuje trajanje u atribut zahteva, a fabrika HTTP zahteva
+ * ga čita pri slanju ka PSP-u - gateway prosleđuje sinhrono, na istoj niti servleta.
+ */
+final class RouteTimeouts {
+
+    static final String RESPONSE_TIMEOUT_ATTR = RouteTimeouts.class.getName() + ".responseTimeout";
+
+    private RouteTimeouts() {
+    }
+
+    static Function<ServerRequest, ServerRequest> responseTimeout(Duration timeout) {
+        return request -> {
+            request.attributes().put(RESPONSE_TIMEOUT_ATTR, timeout);
+            return request;
+        };
+    }
+
+    /** @return kontekst sa timeout-om rute preko podrazumevanih podešavanja, ili null ako ruta nema svoj */
+    static HttpContext httpContext(RequestConfig defaults) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return null;
+        Object timeout = attributes.getAttribute(RESPONSE_TIMEOUT_ATTR, RequestAttributes.SCOPE_REQUEST);
+        if (!(timeout instanceof Duration duration)) return null;
+
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.copy(defaults)
+                .setResponseTimeout(Timeout.of(duration))
+                .build());
+        return context;
+    }
+}
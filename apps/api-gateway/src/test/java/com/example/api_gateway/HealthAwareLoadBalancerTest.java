@@ -0,0 +1,156 @@
+package com.example.api_gateway;
+
+import com.example.commons.ConsistentHashRing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultRequestContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HealthAwareLoadBalancerTest {
+
+    private static final String UUID = "3f2b8c1e-9a4d-4e6f-b1c2-7d8e9f0a1b2c";
+    // Isto kao HealthAwareLoadBalancer.VIRTUAL_NODES
+    private static final int VIRTUAL_NODES = 160;
+
+    private final List<ServiceInstance> instances = List.of(
+            new DefaultServiceInstance("psp-1", "psp-core", "10.0.0.1", 8443, true),
+            new DefaultServiceInstance("psp-2", "psp-core", "10.0.0.2", 8443, true),
+            new DefaultServiceInstance("psp-3", "psp-core", "10.0.0.3", 8443, true));
+
+    private InstanceHealthTracker tracker;
+    private HealthAwareLoadBalancer balancer;
+    private List<ServiceInstance> ringOrder;
+
+    @BeforeEach
+    void setUp() {
+        tracker = InstanceHealthTrackerTest.newTracker();
+        tracker.instancesSeen(instances.size());
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("pspCoreInstanceSupplier",
+                ServiceInstanceListSuppliers.from("psp-core", instances.toArray(new ServiceInstance[0])));
+        balancer = new HealthAwareLoadBalancer(beans.getBeanProvider(ServiceInstanceListSupplier.class), tracker, 0.25);
+        ringOrder = new ConsistentHashRing<>(instances, InstanceHealthTracker::key, VIRTUAL_NODES)
+                .candidates(UUID, instances.size());
+    }
+
+    @Test
+    void transactionKeyFromPathOrQuery() {
+        assertEquals(UUID, HealthAwareLoadBalancer.transactionKey("/api/payments/" + UUID, null));
+        assertEquals(UUID, HealthAwareLoadBalancer.transactionKey("/api/payments/checkout/" + UUID + "/status/CARD", null));
+        assertEquals(UUID, HealthAwareLoadBalancer.transactionKey("/api/payments/" + UUID.toUpperCase(), null));
+        assertEquals(UUID, HealthAwareLoadBalancer.transactionKey("/api/payments/status", "method=CARD&uuid=" + UUID));
+
+        assertNull(HealthAwareLoadBalancer.transactionKey("/api/payments/methods", null));
+        assertNull(HealthAwareLoadBalancer.transactionKey("/api/payments/" + UUID.substring(1), null));
+        assertNull(HealthAwareLoadBalancer.transactionKey("/api/payments/" + UUID.replace('-', 'x'), null));
+        assertNull(HealthAwareLoadBalancer.transactionKey("/api/payments/status", "id=" + UUID));
+        assertNull(HealthAwareLoadBalancer.transactionKey(null, null));
+    }
+
+    @Test
+    void transactionKeyFromLoadBalancerRequest() {
+        assertEquals(UUID, HealthAwareLoadBalancer.transactionKey(request("/api/payments/checkout/" + UUID)));
+        assertNull(HealthAwareLoadBalancer.transactionKey(request("/api/payments/methods")));
+    }
+
+    @Test
+    void sameTransactionStaysOnRingOwner() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals(ringOrder.get(0), choose("/api/payments/checkout/" + UUID));
+        }
+    }
+
+    @Test
+    void overloadedOwnerHandsKeyToNextOnRing() {
+        // Vlasnik ima 5 zahteva u toku, ostali nijedan: kapacitet je ceil(6 * 1.25 / 3) = 3
+        for (int i = 0; i < 5; i++) {
+            startRequest(ringOrder.get(0));
+        }
+        assertEquals(ringOrder.get(1), choose("/api/payments/checkout/" + UUID));
+    }
+
+    @Test
+    void ownerWithinCapacityKeepsKey() {
+        // Po jedan zahtev u toku svuda: kapacitet ceil(4 * 1.25 / 3) = 2
+        for (ServiceInstance instance : instances) {
+            startRequest(instance);
+        }
+        assertEquals(ringOrder.get(0), choose("/api/payments/checkout/" + UUID));
+
+        // Vlasnik sa 2 u toku: kapacitet ceil(5 * 1.25 / 3) = 3 - i dalje ima mesta
+        startRequest(ringOrder.get(0));
+        assertEquals(ringOrder.get(0), choose("/api/payments/checkout/" + UUID));
+
+        // Vlasnik sa 3 u toku: kapacitet ceil(6 * 1.25 / 3) = 3 - pun je
+        startRequest(ringOrder.get(0));
+        assertEquals(ringOrder.get(1), choose("/api/payments/checkout/" + UUID));
+    }
+
+    @Test
+    void ejectedOwnerIsSkipped() {
+        eject(ringOrder.get(0));
+
+        assertEquals(ringOrder.get(1), choose("/api/payments/checkout/" + UUID));
+        // Ni zahtevi bez transakcije ne idu na izbačenu instancu
+        for (int i = 0; i < 50; i++) {
+            assertNotEquals(ringOrder.get(0), choose("/api/payments/methods"));
+        }
+    }
+
+    @Test
+    void requestsWithoutKeyUseAllHealthyInstances() {
+        for (int i = 0; i < 50; i++) {
+            assertTrue(instances.contains(choose("/api/payments/methods")));
+        }
+    }
+
+    private ServiceInstance choose(String path) {
+        Response<ServiceInstance> response = balancer.choose(request(path)).block();
+        return response.getServer();
+    }
+
+    private void startRequest(ServiceInstance instance) {
+        tracker.onStartRequest(new DefaultRequest<>(new DefaultRequestContext()), new DefaultResponse(instance));
+    }
+
+    private void eject(ServiceInstance instance) {
+        for (int i = 0; i < 3; i++) {
+            Request<Object> request = new DefaultRequest<>(new DefaultRequestContext());
+            Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+            tracker.onStartRequest(request, lbResponse);
+            tracker.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse,
+                    ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build()));
+        }
+    }
+
+    private static Request<RequestDataContext> request(String path) {
+        RequestData data = new RequestData(HttpMethod.GET, URI.create("https://psp-core" + path),
+                new HttpHeaders(), new LinkedMultiValueMap<>(), new HashMap<>());
+        return new DefaultRequest<>(new RequestDataContext(data));
+    }
+}
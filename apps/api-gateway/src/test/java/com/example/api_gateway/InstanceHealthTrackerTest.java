@@ -0,0 +1,92 @@
+package com.example.api_gateway;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultRequestContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InstanceHealthTrackerTest {
+
+    private final ServiceInstance first = new DefaultServiceInstance("psp-1", "psp-core", "10.0.0.1", 8443, true);
+    private final ServiceInstance second = new DefaultServiceInstance("psp-2", "psp-core", "10.0.0.2", 8443, true);
+
+    private InstanceHealthTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = newTracker();
+        tracker.instancesSeen(3);
+    }
+
+    // Podrazumevane vrednosti kao u @Value, osim consecutive-errors = 3
+    static InstanceHealthTracker newTracker() {
+        InstanceHealthTracker tracker = new InstanceHealthTracker();
+        ReflectionTestUtils.setField(tracker, "consecutiveErrors", 3);
+        ReflectionTestUtils.setField(tracker, "latencyFactor", 3.0);
+        ReflectionTestUtils.setField(tracker, "minLatencyMs", 500L);
+        ReflectionTestUtils.setField(tracker, "minSamples", 20);
+        ReflectionTestUtils.setField(tracker, "baseEjectionMs", 30_000L);
+        ReflectionTestUtils.setField(tracker, "maxEjectionMs", 300_000L);
+        ReflectionTestUtils.setField(tracker, "maxEjectionPercent", 50);
+        ReflectionTestUtils.setField(tracker, "rampMs", 30_000L);
+        return tracker;
+    }
+
+    @Test
+    void serverErrorsFromGatewayServerResponseEjectInstance() {
+        // lb() filter Gateway MVC-a završava sa ServerResponse, ne sa ResponseData
+        for (int i = 0; i < 3; i++) {
+            complete(first, ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }
+
+        assertEquals(0.0, tracker.weight(first, System.nanoTime()));
+        assertEquals(1.0, tracker.weight(second, System.nanoTime()));
+        assertEquals(0, tracker.inFlight(first));
+    }
+
+    @Test
+    void successfulResponseResetsErrorStreak() {
+        complete(first, ServerResponse.status(HttpStatus.BAD_GATEWAY).build());
+        complete(first, ServerResponse.status(HttpStatus.BAD_GATEWAY).build());
+        complete(first, ServerResponse.ok().build());
+        complete(first, ServerResponse.status(HttpStatus.BAD_GATEWAY).build());
+        complete(first, ServerResponse.status(HttpStatus.BAD_GATEWAY).build());
+
+        assertEquals(1.0, tracker.weight(first, System.nanoTime()));
+    }
+
+    @Test
+    void clientErrorsDoNotCountAsFailures() {
+        for (int i = 0; i < 5; i++) {
+            complete(first, ServerResponse.status(HttpStatus.NOT_FOUND).build());
+        }
+        assertEquals(1.0, tracker.weight(first, System.nanoTime()));
+    }
+
+    @Test
+    void recognisesServerErrorResponses() {
+        assertTrue(InstanceHealthTracker.isServerError(ServerResponse.status(HttpStatus.INTERNAL_SERVER_ERROR).build()));
+        assertFalse(InstanceHealthTracker.isServerError(ServerResponse.ok().build()));
+        assertFalse(InstanceHealthTracker.isServerError(null));
+    }
+
+    private void complete(ServiceInstance instance, ServerResponse clientResponse) {
+        Request<Object> request = new DefaultRequest<>(new DefaultRequestContext());
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+        tracker.onStartRequest(request, lbResponse);
+        tracker.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse, clientResponse));
+    }
+}
@@ -0,0 +1,226 @@
+package com.bank.config;
+
+import com.bank.tools.PaymentReference;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generator velikog sintetičkog skupa podataka (profil "bulk-seed").
+ *
+ * Pravi milione računa, Luhn-validnih kartica i istorijskih transakcija direktnim batch INSERT-ima
+ * preko JdbcTemplate-a (bez JPA), u paralelnim blokovima sa unapred dodeljenim id-jevima.
+ * Na Postgres-u je preporučeno dodati reWriteBatchedInserts=true u JDBC URL - driver tada
+ * svaki batch šalje kao jedan multi-row INSERT.
+ *
+ * Kartice su determinističke po indeksu računa ({@link #panFor}, {@link #cvvFor}), pa benchmark
+ * može da gađa slučajne kartice bez čitanja iz baze.
+ */
+@Component
+@Profile("bulk-seed")
+@Order(2)
+public class BulkDataSeeder implements CommandLineRunner {
+
+    public static final String MERCHANT_PREFIX = "SEED_MERCH_";
+    public static final String MERCHANT_PASSWORD = "seed123";
+    public static final String CARD_EXPIRY = "12/30";
+    private static final String PAN_BIN = "4999";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${bank.seed.accounts:1000000}")
+    private int accounts;
+
+    @Value("${bank.seed.merchants:100}")
+    private int merchants;
+
+    @Value("${bank.seed.transactions:2000000}")
+    private int transactions;
+
+    @Value("${bank.seed.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${bank.seed.threads:4}")
+    private int threads;
+
+    public BulkDataSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Integer existing = jdbcTemplate.queryForObject(
+                "select count(*) from merchants where merchant_id = ?", Integer.class, MERCHANT_PREFIX + 0);
+        if (existing != null && existing > 0) {
+            System.out.println("Sintetički podaci već postoje. Preskačem bulk seed.");
+            return;
+        }
+
+        long started = System.nanoTime();
+        System.out.println("--- BULK SEED: " + accounts + " računa/kartica, " + merchants + " prodavaca, "
+                + transactions + " transakcija ---");
+
+        long accountBase = nextId("accounts");
+        long cardBase = nextId("cards");
+        long merchantBase = nextId("merchants");
+        long txBase = nextId("bank_transactions");
+
+        // Računi prodavaca idu odmah posle računa kupaca
+        long merchantAccountBase = accountBase + accounts;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            runChunks(pool, accounts, (from, to) -> insertCustomers(accountBase, cardBase, from, to));
+            insertMerchants(merchantAccountBase, merchantBase);
+            runChunks(pool, transactions, (from, to) -> insertTransactions(txBase, merchantBase, from, to));
+        } finally {
+            pool.shutdown();
+        }
+
+        restartIdentity("accounts", merchantAccountBase + merchants);
+        restartIdentity("cards", cardBase + accounts);
+        restartIdentity("merchants", merchantBase + merchants);
+        restartIdentity("bank_transactions", txBase + transactions);
+
+        long seconds = Math.max(1, (System.nanoTime() - started) / 1_000_000_000L);
+        System.out.println("--- BULK SEED ZAVRŠEN za " + seconds + "s ("
+                + ((long) accounts * 2 + transactions) / seconds + " redova/s) ---");
+    }
+
+    private void insertCustomers(long accountBase, long cardBase, int from, int to) {
+        List<Object[]> accountRows = new ArrayList<>(to - from);
+        List<Object[]> cardRows = new ArrayList<>(to - from);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = from; i < to; i++) {
+            long accountId = accountBase + i;
+            accountRows.add(new Object[]{accountId, accountNumberFor(accountId), "Seed Kupac " + i,
+                    "seed" + i + "@bank.test", BigDecimal.valueOf(random.nextLong(1_000_00, 10_000_000_00L), 2),
+                    BigDecimal.ZERO, "1234"});
+            cardRows.add(new Object[]{cardBase + i, panFor(i), cvvFor(i), "SEED KUPAC " + i, CARD_EXPIRY, accountId});
+        }
+        jdbcTemplate.batchUpdate("insert into accounts (id, account_number, owner_name, email, balance, reserved_funds, pin) " +
+                "values (?, ?, ?, ?, ?, ?, ?)", accountRows);
+        jdbcTemplate.batchUpdate("insert into cards (id, pan, security_code, card_holder_name, expiration_date, account_id) " +
+                "values (?, ?, ?, ?, ?, ?)", cardRows);
+    }
+
+    private void insertMerchants(long merchantAccountBase, long merchantBase) {
+        List<Object[]> accountRows = new ArrayList<>(merchants);
+        List<Object[]> merchantRows = new ArrayList<>(merchants);
+        for (int m = 0; m < merchants; m++) {
+            long accountId = merchantAccountBase + m;
+            accountRows.add(new Object[]{accountId, accountNumberFor(accountId), "Seed Prodavac " + m,
+                    "merchant" + m + "@bank.test", BigDecimal.ZERO, BigDecimal.ZERO, null});
+            merchantRows.add(new Object[]{merchantBase + m, MERCHANT_PREFIX + m, MERCHANT_PASSWORD, accountId});
+        }
+        jdbcTemplate.batchUpdate("insert into accounts (id, account_number, owner_name, email, balance, reserved_funds, pin) " +
+                "values (?, ?, ?, ?, ?, ?, ?)", accountRows);
+        jdbcTemplate.batchUpdate("insert into merchants (id, merchant_id, merchant_password, account_id) values (?, ?, ?, ?)",
+                merchantRows);
+    }
+
+    private void insertTransactions(long txBase, long merchantBase, int from, int to) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = from; i < to; i++) {
+            long id = txBase + i;
+            int roll = random.nextInt(100);
+            String status = roll < 85 ? "SUCCESS" : roll < 95 ? "FAILED" : "INSUFFICIENT_FUNDS";
+            String pan = panFor(random.nextInt(Math.max(1, accounts)));
+            rows.add(new Object[]{id, "seed-" + id, UUID.randomUUID().toString(),
+                    PaymentReference.forTransactionId(id),
+                    BigDecimal.valueOf(random.nextLong(100, 50_000_00), 2), "RSD",
+                    merchantBase + random.nextInt(merchants),
+                    Timestamp.valueOf(now.minusSeconds(random.nextLong(0, 365L * 24 * 3600))),
+                    status, pan.substring(0, 6) + "******" + pan.substring(12), String.valueOf(100000 + i % 900000)});
+        }
+        jdbcTemplate.batchUpdate("insert into bank_transactions (id, psp_transaction_id, payment_id, payment_reference, " +
+                "amount, currency, merchant_id, timestamp, status, masked_pan, stan) " +
+                "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    // --- Deterministički podaci kartica (koristi ih i benchmark) ---
+
+    /** Luhn-validan 16-cifreni PAN za i-ti generisani račun. */
+    public static String panFor(long index) {
+        char[] digits = new char[16];
+        for (int k = 0; k < 4; k++) digits[k] = PAN_BIN.charAt(k);
+        long n = index;
+        for (int k = 14; k >= 4; k--) {
+            digits[k] = (char) ('0' + (n % 10));
+            n /= 10;
+        }
+        digits[15] = (char) ('0' + luhnCheckDigit(digits, 15));
+        return new String(digits);
+    }
+
+    public static String cvvFor(long index) {
+        return String.valueOf(100 + index % 900);
+    }
+
+    private static int luhnCheckDigit(char[] digits, int length) {
+        int sum = 0;
+        boolean doubleIt = true;
+        for (int i = length - 1; i >= 0; i--) {
+            int d = digits[i] - '0';
+            if (doubleIt) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+            doubleIt = !doubleIt;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static String accountNumberFor(long accountId) {
+        String digits = String.format("%015d", accountId);
+        return "3" + digits.substring(0, 2) + "-" + digits.substring(2, 13) + "-" + digits.substring(13);
+    }
+
+    // --- Pomoćne ---
+
+    private long nextId(String table) {
+        Long max = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    private void restartIdentity(String table, long next) {
+        jdbcTemplate.execute("alter table " + table + " alter column id restart with " + next);
+    }
+
+    private void runChunks(ExecutorService pool, int total, ChunkTask task) throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < total; from += batchSize) {
+            int start = from;
+            int end = Math.min(total, from + batchSize);
+            futures.add(pool.submit(() -> {
+                task.run(start, end);
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkTask {
+        void run(int from, int to);
+    }
+}
@@ -7,13 +7,17 @@ import com.bank.repository.AccountRepository;
 import com.bank.repository.CardRepository;
 import com.bank.repository.MerchantRepository;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
 
 @Component
+@Order(1)
 public class DataSeeder implements CommandLineRunner {
 
+    private static final String CLEARING_ACCOUNT = "999-999999-99";
+
     private final AccountRepository accountRepository;
     private final CardRepository cardRepository;
     private final MerchantRepository merchantRepository;
@@ -29,6 +33,7 @@ public class DataSeeder implements CommandLineRunner {
         // PROVJERA: Ako već imamo podatke, ne ubacuj ništa da ne bi došlo do greške
         if (accountRepository.count() > 0) {
             System.out.println("Podaci već postoje u bazi. Preskačem inicijalizaciju.");
+            ensureClearingAccount();
             return;
         }
 
@@ -68,9 +73,24 @@ public class DataSeeder implements CommandLineRunner {
         card.setAccount(buyerAccount);  
         cardRepository.save(card);
 
+        // 5. Obračunski račun za plaćanja stranim karticama (PCC)
+        ensureClearingAccount();
+
         System.out.println("--- PODACI USPEŠNO UPISANI ---");
         System.out.println("Merchant ID za PSP: prodavac123");
         System.out.println("Merchant Pass za PSP: sifra123");
         System.out.println("Tvoj broj kartice: 1234567812345678");
     }
-}
\ No newline at end of file
+
+    // Baze napravljene pre uvođenja PCC-a nemaju obračunski račun
+    private void ensureClearingAccount() {
+        if (accountRepository.findByAccountNumber(CLEARING_ACCOUNT).isPresent()) return;
+
+        Account clearingAccount = new Account();
+        clearingAccount.setOwnerName("PCC Clearing");
+        clearingAccount.setAccountNumber(CLEARING_ACCOUNT);
+        clearingAccount.setBalance(new BigDecimal("0.00"));
+        clearingAccount.setReservedFunds(new BigDecimal("0.00"));
+        accountRepository.save(clearingAccount);
+    }
+}
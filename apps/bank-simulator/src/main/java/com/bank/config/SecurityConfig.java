@@ -19,6 +19,8 @@ public class SecurityConfig {
                         .requestMatchers("/pay.html", "/css/**", "/js/**", "/images/**").permitAll()
                         .requestMatchers("/mbanking.html").permitAll()
                         .requestMatchers("/api/bank/**").permitAll()
+                        // Banke nemaju korisničku sesiju - PccController proverava HMAC potpis zahteva
+                        .requestMatchers("/api/pcc/**").permitAll()
                         .anyRequest().authenticated()
                 );
 
@@ -2,13 +2,42 @@ package com.bank.controller;
 
 import com.bank.dto.*;
 import com.bank.service.BankService;
+import com.bank.service.PaymentSubmissionDeduplicator;
+import com.bank.service.PccAcquirerService;
+import com.bank.service.PccRoutingTable;
+import com.bank.service.QrImageService;
+import com.bank.service.SettlementExportService;
+import com.bank.service.StatementService;
+import com.bank.service.TransactionExpirySweeper;
+import com.bank.service.VelocityEngine;
 
+import com.bank.model.Account;
 import com.bank.tools.AuditLogger;
 import jakarta.validation.Valid;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/bank")
@@ -16,11 +45,32 @@ import java.util.Map;
 public class BankController {
 
     private final BankService bankService;
+    private final QrImageService qrImageService;
+    private final TransactionExpirySweeper expirySweeper;
+    private final PccRoutingTable pccRoutingTable;
+    private final PccAcquirerService pccAcquirerService;
+    private final VelocityEngine velocityEngine;
+    private final PaymentSubmissionDeduplicator submissionDeduplicator;
+    private final SettlementExportService settlementExportService;
+    private final StatementService statementService;
     private final AuditLogger auditLogger;
     private static final String PSP_CALLBACK_URL = "https://localhost:8443/api/payments/payment-callback";
 
-    public BankController(BankService bankService, AuditLogger auditLogger) { // Dodato u konstruktor
+    public BankController(BankService bankService, QrImageService qrImageService,
+                          TransactionExpirySweeper expirySweeper, PccRoutingTable pccRoutingTable,
+                          PccAcquirerService pccAcquirerService, VelocityEngine velocityEngine,
+                          PaymentSubmissionDeduplicator submissionDeduplicator,
+                          SettlementExportService settlementExportService, StatementService statementService,
+                          AuditLogger auditLogger) { // Dodato u konstruktor
         this.bankService = bankService;
+        this.qrImageService = qrImageService;
+        this.expirySweeper = expirySweeper;
+        this.pccRoutingTable = pccRoutingTable;
+        this.pccAcquirerService = pccAcquirerService;
+        this.velocityEngine = velocityEngine;
+        this.submissionDeduplicator = submissionDeduplicator;
+        this.settlementExportService = settlementExportService;
+        this.statementService = statementService;
         this.auditLogger = auditLogger;
     }
 
@@ -36,50 +86,179 @@ public class BankController {
     }
 
     @PostMapping("/pay")
-    public ResponseEntity<Map<String, String>> processPayment(@Valid @RequestBody BankPaymentFormDTO paymentForm) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> processPayment(@Valid @RequestBody BankPaymentFormDTO paymentForm) {
         auditLogger.logEvent("BANK_CARD_PAYMENT_ATTEMPT", "PENDING", "PaymentID: " + paymentForm.getPaymentId());
 
-        Map<String, String> response = new HashMap<>();
+        // Dupli klik: drugo slanje iste forme čeka i vraća rezultat prvog, bez ponovne obrade
+        return submissionDeduplicator.submit(paymentForm, () -> handlePayment(paymentForm));
+    }
 
+    private CompletableFuture<ResponseEntity<Map<String, String>>> handlePayment(BankPaymentFormDTO paymentForm) {
+        CompletableFuture<String> result;
         try {
-            String callbackUrl = bankService.processPayment(paymentForm);
+            // Velocity po kartici pre bilo kakvog rada sa bazom
+            velocityEngine.checkCard(paymentForm.getPan());
 
-            response.put("status", "SUCCESS");
-            response.put("redirectUrl", callbackUrl);
-            response.put("GLOBAL_TRANSACTION_ID", paymentForm.getPaymentId());
-            response.put("ACQUIRER_TIMESTAMP", java.time.LocalDateTime.now().toString());
+            // Strana kartica (BIN u tabeli PCC-a) ide banci izdavaocu, domaća se obrađuje ovde
+            String issuerUrl = pccRoutingTable.issuerFor(paymentForm.getPan());
+            result = issuerUrl != null
+                    ? pccAcquirerService.processForeignPayment(paymentForm, issuerUrl)
+                    : CompletableFuture.completedFuture(bankService.processPayment(paymentForm));
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
 
-            auditLogger.logEvent("BANK_CARD_PAYMENT_FINISHED", "SUCCESS", "PaymentID: " + paymentForm.getPaymentId());
-            return ResponseEntity.ok(response);
+        return result.handle((callbackUrl, error) -> error == null
+                ? paymentSucceeded(paymentForm, callbackUrl)
+                : paymentFailed(paymentForm, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+    }
 
-        } catch (RuntimeException e) {
-            auditLogger.logSecurityAlert("BANK_CARD_PAYMENT_REJECTED", "ID: " + paymentForm.getPaymentId() + " | Reason: " + e.getMessage());
+    private ResponseEntity<Map<String, String>> paymentSucceeded(BankPaymentFormDTO paymentForm, String callbackUrl) {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "SUCCESS");
+        response.put("redirectUrl", callbackUrl);
+        response.put("GLOBAL_TRANSACTION_ID", paymentForm.getPaymentId());
+        response.put("ACQUIRER_TIMESTAMP", java.time.LocalDateTime.now().toString());
+
+        auditLogger.logEvent("BANK_CARD_PAYMENT_FINISHED", "SUCCESS", "PaymentID: " + paymentForm.getPaymentId());
+        return ResponseEntity.ok(response);
+    }
 
-            String redirectUrl = PSP_CALLBACK_URL + "?paymentId=" + paymentForm.getPaymentId() + "&status=FAILED";
+    private ResponseEntity<Map<String, String>> paymentFailed(BankPaymentFormDTO paymentForm, Throwable e) {
+        auditLogger.logSecurityAlert("BANK_CARD_PAYMENT_REJECTED", "ID: " + paymentForm.getPaymentId() + " | Reason: " + e.getMessage());
 
-            response.put("status", "FAILED");
-            response.put("message", e.getMessage());
-            response.put("redirectUrl", redirectUrl);
-            response.put("ACQUIRER_TIMESTAMP", java.time.LocalDateTime.now().toString());
-            return ResponseEntity.ok(response);
-        }
+        String redirectUrl = PSP_CALLBACK_URL + "?paymentId=" + paymentForm.getPaymentId() + "&status=FAILED";
+
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "FAILED");
+        response.put("message", e.getMessage());
+        response.put("redirectUrl", redirectUrl);
+        response.put("ACQUIRER_TIMESTAMP", java.time.LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/qr-initialize")
     public ResponseEntity<Map<String, String>> initializeQr(@RequestBody PspPaymentRequestDTO request) {
         auditLogger.logEvent("BANK_QR_INIT_START", "PENDING", "PSP_TX: " + request.getPspTransactionId());
 
-        String qrData = bankService.generateIpsQrString(request);
+        // Prvo transakcija, pa QR - IPS string nosi njen poziv na broj (RO tag)
         PspPaymentResponseDTO bankResponse = bankService.createPaymentUrl(request);
+        String qrData = bankService.generateIpsQrString(bankResponse.getPaymentId());
 
         Map<String, String> response = new HashMap<>();
         response.put("qrData", qrData);
         response.put("paymentId", bankResponse.getPaymentId());
+        response.put("qrImageUrl", "https://localhost:8082/api/bank/qr/" + bankResponse.getPaymentId() + "/image");
 
         auditLogger.logEvent("BANK_QR_INIT_SUCCESS", "SUCCESS", "PaymentID: " + bankResponse.getPaymentId());
         return ResponseEntity.ok(response);
     }
 
+    // QR slika renderovana na serveru (png ili svg), keširana po paymentId-ju
+    @GetMapping("/qr/{paymentId}/image")
+    public ResponseEntity<byte[]> qrImage(@PathVariable String paymentId,
+                                          @RequestParam(defaultValue = "png") String format,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        QrImageService.RenderedQr qr;
+        try {
+            qr = qrImageService.render(paymentId, QrImageService.Format.parse(format));
+        } catch (RejectedExecutionException e) {
+            auditLogger.logEvent("QR_IMAGE_BUSY", "FAILED", "PaymentID: " + paymentId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (RuntimeException e) {
+            auditLogger.logEvent("QR_IMAGE_ERROR", "ERROR", "PaymentID: " + paymentId + " | " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+
+        // Sadržaj se ne menja za isti paymentId; link za plaćanje važi 15 minuta
+        CacheControl cacheControl = CacheControl.maxAge(15, TimeUnit.MINUTES).cachePrivate();
+        if (qr.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(qr.etag()).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(qr.format().getContentType()))
+                .contentLength(qr.bytes().length)
+                .eTag(qr.etag())
+                .cacheControl(cacheControl)
+                .body(qr.bytes());
+    }
+
+    // Stanje sweeper-a isteklih transakcija (broj isteklih, zaostatak, lag)
+    @GetMapping("/expiry/stats")
+    public ResponseEntity<Map<String, Object>> expiryStats() {
+        return ResponseEntity.ok(expirySweeper.stats());
+    }
+
+    // Brojači velocity pravila (broj praćenih ključeva i odbijanja po dimenziji)
+    @GetMapping("/velocity/stats")
+    public ResponseEntity<Map<String, Object>> velocityStats() {
+        return ResponseEntity.ok(velocityEngine.stats());
+    }
+
+    // Ručno pokretanje (ili nastavak) settlement izvoza za dan - radi u pozadini
+    @PostMapping("/settlement/{day}/export")
+    public ResponseEntity<Map<String, String>> exportSettlement(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        auditLogger.logEvent("SETTLEMENT_EXPORT_REQUEST", "PENDING", "Day: " + day);
+        if (!settlementExportService.isClosed(day)) {
+            // Fajl se ne generiše ponovo - izvoz otvorenog dana bi trajno izostavio kasna plaćanja
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("status", "NOT_CLOSED", "day", day.toString()));
+        }
+        settlementExportService.exportAsync(day).whenComplete((path, error) -> {
+            if (error != null) {
+                auditLogger.logEvent("SETTLEMENT_EXPORT_ERROR", "ERROR", day + " | " + error.getMessage());
+            }
+        });
+        return ResponseEntity.accepted().body(Map.of("status", "STARTED", "day", day.toString()));
+    }
+
+    // Download gotovog settlement fajla - šalje se direktno sa diska, bez učitavanja u memoriju
+    @GetMapping("/settlement/{day}")
+    public ResponseEntity<Resource> downloadSettlement(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        Path file = settlementExportService.fileFor(day);
+        if (!Files.exists(file)) {
+            return ResponseEntity.notFound().build();
+        }
+        auditLogger.logEvent("SETTLEMENT_DOWNLOAD", "SUCCESS", "Day: " + day);
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_PLAIN)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(new FileSystemResource(file));
+    }
+
+    // Izvod računa za mBanking: strana po strana, sledeća strana preko nextCursor-a
+    @PostMapping("/statement")
+    public ResponseEntity<?> statement(@RequestBody StatementRequestDTO request) {
+        try {
+            Account account = statementService.authenticate(request.getEmail(), request.getPin());
+            return ResponseEntity.ok(statementService.page(account, request.getCursor(), request.getLimit()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // Ceo izvod kao CSV - piše se u odgovor blok po blok dok se čita iz baze
+    @PostMapping("/statement/export")
+    public ResponseEntity<?> exportStatement(@RequestBody StatementRequestDTO request) {
+        Account account;
+        try {
+            account = statementService.authenticate(request.getEmail(), request.getPin());
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            statementService.writeCsv(account, writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"izvod-" + account.getAccountNumber() + ".csv\"")
+                .body(body);
+    }
+
     @PostMapping("/transfer")
     public ResponseEntity<?> processQrPayment(@RequestBody QrTransferRequestDTO request) {
         auditLogger.logEvent("BANK_QR_TRANSFER_ATTEMPT", "PENDING", "User: " + request.getEmail());
@@ -0,0 +1,72 @@
+package com.bank.controller;
+
+import com.bank.dto.IssuerAuthorizationRequestDTO;
+import com.bank.dto.IssuerAuthorizationResponseDTO;
+import com.bank.service.BankService;
+import com.bank.tools.AuditLogger;
+import com.bank.tools.PccSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Strana banke izdavaoca u PCC simulaciji: druge banke (prihvatioci) ovde traže autorizaciju
+ * kartica ove banke i storno kada odgovor nisu dobile na vreme. Endpoint-i nisu iza korisničke
+ * prijave, pa se svaki zahtev proverava HMAC potpisom ({@link PccSignature}) pre nego što
+ * dotakne žurnal.
+ */
+@RestController
+@RequestMapping("/api/pcc")
+public class PccController {
+
+    private static final long MAX_CLOCK_SKEW_MS = 5 * 60 * 1000;
+
+    private final BankService bankService;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.pcc.secret}")
+    private String pccSecret;
+
+    public PccController(BankService bankService, AuditLogger auditLogger) {
+        this.bankService = bankService;
+        this.auditLogger = auditLogger;
+    }
+
+    @PostMapping("/authorize")
+    public ResponseEntity<IssuerAuthorizationResponseDTO> authorize(@RequestBody IssuerAuthorizationRequestDTO request,
+                                                                    @RequestHeader(value = PccSignature.TIMESTAMP_HEADER, required = false) Long timestamp,
+                                                                    @RequestHeader(value = PccSignature.SIGNATURE_HEADER, required = false) String signature) {
+        if (timestamp == null || !isAuthentic(PccSignature.authorizePayload(request, timestamp), timestamp, signature)) {
+            auditLogger.logSecurityAlert("PCC_REQUEST_REJECTED", "Acquirer PaymentID: " + request.getAcquirerPaymentId());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        auditLogger.logEvent("PCC_ISSUER_REQUEST", "PENDING", "Acquirer PaymentID: " + request.getAcquirerPaymentId());
+        return ResponseEntity.ok(bankService.authorizeAsIssuer(request));
+    }
+
+    @PostMapping("/reverse")
+    public ResponseEntity<Map<String, Boolean>> reverse(@RequestBody Map<String, String> request,
+                                                        @RequestHeader(value = PccSignature.TIMESTAMP_HEADER, required = false) Long timestamp,
+                                                        @RequestHeader(value = PccSignature.SIGNATURE_HEADER, required = false) String signature) {
+        String acquirerPaymentId = request.get("acquirerPaymentId");
+        if (timestamp == null || !isAuthentic(PccSignature.reversePayload(acquirerPaymentId, timestamp), timestamp, signature)) {
+            auditLogger.logSecurityAlert("PCC_REQUEST_REJECTED", "Reversal | Acquirer PaymentID: " + acquirerPaymentId);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        boolean reversed = bankService.reverseAsIssuer(acquirerPaymentId);
+        auditLogger.logEvent("PCC_ISSUER_REVERSAL", reversed ? "SUCCESS" : "SKIPPED",
+                "Acquirer PaymentID: " + acquirerPaymentId);
+        return ResponseEntity.ok(Map.of("reversed", reversed));
+    }
+
+    // Bez podešenog ključa nijedan zahtev ne prolazi (verify odbija prazan ključ)
+    private boolean isAuthentic(String payload, long timestamp, String signature) {
+        if (Math.abs(System.currentTimeMillis() - timestamp) > MAX_CLOCK_SKEW_MS) {
+            return false;
+        }
+        return PccSignature.verify(pccSecret, payload, signature);
+    }
+}
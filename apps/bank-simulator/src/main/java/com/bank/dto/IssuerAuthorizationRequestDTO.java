@@ -0,0 +1,17 @@
+package com.bank.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Zahtev banke prihvatioca banci izdavaocu (preko PCC-a)
+@Data
+public class IssuerAuthorizationRequestDTO {
+    private String acquirerPaymentId; // paymentId transakcije u banci prihvatioca
+    private String pan;
+    private String securityCode;
+    private String cardHolderName;
+    private String expirationDate;
+    private BigDecimal amount;
+    private String currency;
+}
@@ -0,0 +1,14 @@
+package com.bank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssuerAuthorizationResponseDTO {
+    private boolean approved;
+    private String authorizationCode;
+    private String message;
+}
@@ -3,6 +3,7 @@ package com.bank.dto;
 public class QrTransferRequestDTO {
     private String receiverAccount; // Račun Web Shopa (izvučen iz QR koda)
     private Double amount;          // Iznos (izvučen iz QR koda)
+    private String paymentReference; // Poziv na broj iz RO taga QR koda
     private String email;
     private String pin;
 
@@ -10,6 +11,8 @@ public class QrTransferRequestDTO {
     public void setReceiverAccount(String receiverAccount) { this.receiverAccount = receiverAccount; }
     public Double getAmount() { return amount; }
     public void setAmount(Double amount) { this.amount = amount; }
+    public String getPaymentReference() { return paymentReference; }
+    public void setPaymentReference(String paymentReference) { this.paymentReference = paymentReference; }
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
 
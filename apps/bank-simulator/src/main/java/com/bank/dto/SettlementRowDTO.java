@@ -0,0 +1,23 @@
+package com.bank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Jedan red settlement fajla (JPQL constructor projekcija - bez učitavanja cele transakcije)
+@Data
+@AllArgsConstructor
+public class SettlementRowDTO {
+    private Long id;
+    private Long merchantDbId;
+    private String merchantId;
+    private String paymentId;
+    private String pspTransactionId;
+    private String paymentReference;
+    private String stan;
+    private BigDecimal amount;
+    private String currency;
+    private LocalDateTime timestamp;
+}
@@ -0,0 +1,27 @@
+package com.bank.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Jedna stavka izvoda (JPQL constructor projekcija); stanje i druga strana se popunjavaju u servisu
+@Data
+public class StatementEntryDTO {
+    private Long id;
+    private LocalDateTime createdAt;
+    private BigDecimal amount;
+    private BigDecimal balanceAfter;
+    private String transferId;
+    private String reference;
+    private String counterpartyAccount;
+    private String counterpartyName;
+
+    public StatementEntryDTO(Long id, LocalDateTime createdAt, BigDecimal amount, String transferId, String reference) {
+        this.id = id;
+        this.createdAt = createdAt;
+        this.amount = amount;
+        this.transferId = transferId;
+        this.reference = reference;
+    }
+}
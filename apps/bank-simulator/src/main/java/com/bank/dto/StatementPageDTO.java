@@ -0,0 +1,18 @@
+package com.bank.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class StatementPageDTO {
+    private String accountNumber;
+    private String ownerName;
+    private BigDecimal balance;
+    private BigDecimal availableBalance;
+    private List<StatementEntryDTO> entries;
+    private String nextCursor; // null = nema starijih stavki
+}
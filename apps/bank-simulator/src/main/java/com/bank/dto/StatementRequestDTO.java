@@ -0,0 +1,12 @@
+package com.bank.dto;
+
+import lombok.Data;
+
+// mBanking prijava (email + PIN) i pozicija u izvodu; POST da PIN ne završi u URL-u i logovima
+@Data
+public class StatementRequestDTO {
+    private String email;
+    private String pin;
+    private String cursor; // null = najnovije stavke
+    private Integer limit;
+}
@@ -0,0 +1,46 @@
+package com.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Autorizacija plaćanja: iznos je rezervisan na računu platioca (Account.reservedFunds),
+ * ali još nije knjižen. Capture ga kasnije, u grupi sa drugim autorizacijama, pretvara u
+ * dve stavke žurnala; release samo vraća rezervaciju.
+ */
+@Entity
+@Table(name = "authorization_holds", indexes = {
+        @Index(name = "idx_hold_status_id", columnList = "status, id")
+})
+@Data
+public class AuthorizationHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // paymentId transakcije - jedna autorizacija po plaćanju
+    @Column(name = "payment_id", nullable = false, unique = true)
+    private String paymentId;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "merchant_account_id", nullable = false)
+    private Long merchantAccountId;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private HoldStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "settled_at")
+    private LocalDateTime settledAt;
+}
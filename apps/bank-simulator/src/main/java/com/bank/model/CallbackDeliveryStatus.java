@@ -0,0 +1,7 @@
+package com.bank.model;
+
+public enum CallbackDeliveryStatus {
+    PENDING,
+    DELIVERED,
+    FAILED      // Iscrpljeni svi pokušaji - potrebna ručna intervencija
+}
@@ -0,0 +1,8 @@
+package com.bank.model;
+
+public enum HoldStatus {
+    AUTHORIZED, // Sredstva rezervisana, čeka se naplata
+    CAPTURED,   // Naplaćeno - rezervacija pretvorena u stavke žurnala
+    RELEASED,   // Rezervacija poništena bez naplate
+    REVERSED    // Naplaćeno, pa stornirano kompenzacionim stavkama žurnala (PCC reversal)
+}
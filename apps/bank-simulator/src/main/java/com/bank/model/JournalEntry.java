@@ -0,0 +1,46 @@
+package com.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Jedna stavka dvojnog knjiženja. Tabela je append-only: svaki prenos upisuje dve stavke
+ * (minus na računu platioca, plus na računu primaoca) sa istim transferId-jem.
+ * Jedina izmena posle upisa je compacted=true kada kompaktor saldo prenese u Account.balance.
+ */
+@Entity
+@Table(name = "journal_entries", indexes = {
+        @Index(name = "idx_journal_account_compacted", columnList = "account_id, compacted"),
+        @Index(name = "idx_journal_account_id", columnList = "account_id, id"),
+        @Index(name = "idx_journal_transfer", columnList = "transfer_id, account_id")
+})
+@Data
+public class JournalEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    // Pozitivno = priliv, negativno = odliv
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    // Zajednički ID obe strane jednog prenosa
+    @Column(name = "transfer_id", nullable = false, length = 36)
+    private String transferId;
+
+    // Poslovna referenca (paymentId transakcije), ako postoji
+    @Column(name = "reference")
+    private String reference;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private boolean compacted;
+}
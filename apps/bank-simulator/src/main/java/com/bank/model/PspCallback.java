@@ -0,0 +1,46 @@
+package com.bank.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox zapis za obaveštenje PSP-a o ishodu plaćanja.
+ * Upisuje se u istoj DB transakciji kao i samo plaćanje, a isporučuje ga PspCallbackDispatcher.
+ */
+@Entity
+@Table(name = "psp_callback_outbox", indexes = {
+        @Index(name = "idx_callback_status_next", columnList = "delivery_status, next_attempt_at")
+})
+@Data
+public class PspCallback {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false)
+    private String paymentId;
+
+    @Column(name = "target_url", nullable = false, length = 1024)
+    private String targetUrl;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "delivery_status", nullable = false)
+    private CallbackDeliveryStatus deliveryStatus;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    @Column(name = "last_error", length = 512)
+    private String lastError;
+}
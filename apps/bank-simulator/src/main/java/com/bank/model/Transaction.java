@@ -6,7 +6,12 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "bank_transactions")
+@Table(name = "bank_transactions", indexes = {
+        // Sweeper isteklih transakcija ide keyset-om po (status, id)
+        @Index(name = "idx_tx_status_id", columnList = "status, id"),
+        // Dnevni settlement izvoz
+        @Index(name = "idx_tx_status_timestamp", columnList = "status, timestamp")
+})
 @Data
 public class Transaction {
     @Id
@@ -21,6 +26,10 @@ public class Transaction {
     @Column(name = "payment_id", unique = true)
     private String paymentId;
 
+    // Poziv na broj (model 97) koji ide u RO tag IPS QR koda - jedinstven, pa je i indeksiran
+    @Column(name = "payment_reference", unique = true, length = 25)
+    private String paymentReference;
+
     @Column(nullable = false)
     private BigDecimal amount;
 
@@ -45,6 +54,14 @@ public class Transaction {
     @Column(name = "callback_url")
     private String callbackUrl;
 
+    // PCC: banka izdavalac kojoj je poslata autorizacija i trenutak prelaska u AUTHORIZING -
+    // sweeper po njima stornira autorizacije kojima odgovor nikad nije obrađen
+    @Column(name = "pcc_issuer_url")
+    private String pccIssuerUrl;
+
+    @Column(name = "authorizing_since")
+    private LocalDateTime authorizingSince;
+
     public String getStan() { return stan; }
     public void setStan(String stan) { this.stan = stan; }
 }
\ No newline at end of file
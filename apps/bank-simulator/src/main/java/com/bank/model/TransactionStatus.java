@@ -2,6 +2,7 @@ package com.bank.model;
 
 public enum TransactionStatus {
     CREATED,
+    AUTHORIZING, // Strana kartica - čeka se odgovor banke izdavaoca preko PCC-a
     SUCCESS,
     FAILED,
     INSUFFICIENT_FUNDS, 
@@ -1,13 +1,42 @@
 package com.bank.repository;
 
 import com.bank.model.Account;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String accountNumber);
     Optional<Account> findByEmail(String email);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+    // Knjiženo stanje = snapshot u accounts.balance + nekompaktovan rep žurnala.
+    // Jedan upit, pa vidi jedan konzistentan presek čak i dok kompaktor radi.
+    @Query("select a.balance + coalesce((select sum(j.amount) from JournalEntry j " +
+            "where j.accountId = a.id and j.compacted = false), 0) from Account a where a.id = :id")
+    BigDecimal findLedgerBalance(@Param("id") Long id);
+
+    // Raspoloživo stanje = knjiženo stanje umanjeno za rezervisana (autorizovana) sredstva
+    @Query("select a.balance - a.reservedFunds + coalesce((select sum(j.amount) from JournalEntry j " +
+            "where j.accountId = a.id and j.compacted = false), 0) from Account a where a.id = :id")
+    BigDecimal findAvailableBalance(@Param("id") Long id);
+
+    @Modifying
+    @Query("update Account a set a.balance = a.balance + :delta where a.id = :id")
+    int applySnapshotDelta(@Param("id") Long id, @Param("delta") BigDecimal delta);
+
+    @Modifying
+    @Query("update Account a set a.reservedFunds = a.reservedFunds + :delta where a.id = :id")
+    int applyReservationDelta(@Param("id") Long id, @Param("delta") BigDecimal delta);
 }
@@ -0,0 +1,44 @@
+package com.bank.repository;
+
+import com.bank.model.AuthorizationHold;
+import com.bank.model.HoldStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AuthorizationHoldRepository extends JpaRepository<AuthorizationHold, Long> {
+
+    Optional<AuthorizationHold> findByPaymentId(String paymentId);
+
+    // Najstarije autorizacije spremne za naplatu, zaključane do kraja transakcije. Redove koje je već
+    // zaključao drugi capture prolaz ili release preskačemo (SKIP LOCKED) umesto da čekamo na njih
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select h from AuthorizationHold h where h.status = com.bank.model.HoldStatus.AUTHORIZED " +
+            "and h.createdAt <= :before order by h.id")
+    List<AuthorizationHold> findCapturable(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Uslovni prelaz iz AUTHORIZED - capture i release se ne mogu oba desiti nad istom autorizacijom
+    @Modifying
+    @Query("update AuthorizationHold h set h.status = :status, h.settledAt = :now " +
+            "where h.id in :ids and h.status = com.bank.model.HoldStatus.AUTHORIZED")
+    int settle(@Param("ids") List<Long> ids, @Param("status") HoldStatus status, @Param("now") LocalDateTime now);
+
+    // Uslovni prelaz CAPTURED -> REVERSED - isti storno se ne može knjižiti dva puta
+    @Modifying
+    @Query("update AuthorizationHold h set h.status = com.bank.model.HoldStatus.REVERSED, h.settledAt = :now " +
+            "where h.id = :id and h.status = com.bank.model.HoldStatus.CAPTURED")
+    int markReversed(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,55 @@
+package com.bank.repository;
+
+import com.bank.dto.StatementEntryDTO;
+import com.bank.model.JournalEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long> {
+
+    // Računi (osim računa prodavaca) koji imaju nekompaktovan rep
+    @Query("select distinct j.accountId from JournalEntry j where j.compacted = false " +
+            "and j.accountId not in (select m.account.id from Merchant m)")
+    List<Long> findAccountIdsWithTail();
+
+    // Najstarije nekompaktovane stavke svih računa prodavaca - MerchantCreditAggregator ih netira zajedno
+    @Query("select j from JournalEntry j where j.compacted = false " +
+            "and j.accountId in (select m.account.id from Merchant m) order by j.id")
+    List<JournalEntry> findPendingMerchantEntries(Pageable pageable);
+
+    // Najstarije nekompaktovane stavke računa (kompaktor radi sa eksplicitnim id-jevima)
+    @Query("select j from JournalEntry j where j.accountId = :accountId and j.compacted = false order by j.id")
+    List<JournalEntry> findTail(@Param("accountId") Long accountId, Pageable pageable);
+
+    @Modifying
+    @Query("update JournalEntry j set j.compacted = true where j.id in :ids")
+    int markCompacted(@Param("ids") List<Long> ids);
+
+    // Izvod: stavke računa od najnovije ka starijim, keyset po id-ju (idx_journal_account_id unazad)
+    @Query("select new com.bank.dto.StatementEntryDTO(j.id, j.createdAt, j.amount, j.transferId, j.reference) " +
+            "from JournalEntry j where j.accountId = :accountId and j.id < :beforeId order by j.id desc")
+    List<StatementEntryDTO> findStatementPage(@Param("accountId") Long accountId, @Param("beforeId") Long beforeId,
+                                              Pageable pageable);
+
+    // Druge strane prenosa za jednu stranu izvoda
+    @Query("select j from JournalEntry j where j.transferId in :transferIds and j.accountId <> :accountId")
+    List<JournalEntry> findCounterparts(@Param("transferIds") Collection<String> transferIds,
+                                        @Param("accountId") Long accountId);
+
+    // Stanje računa neposredno posle stavke :id. Kompaktovane stavke su već u accounts.balance,
+    // pa se oduzimaju one novije od :id; nekompaktovane se sabiraju do :id. Jedan upit = jedan presek.
+    @Query("select a.balance " +
+            "+ coalesce((select sum(j.amount) from JournalEntry j where j.accountId = a.id and j.compacted = false and j.id <= :id), 0) " +
+            "- coalesce((select sum(j.amount) from JournalEntry j where j.accountId = a.id and j.compacted = true and j.id > :id), 0) " +
+            "from Account a where a.id = :accountId")
+    BigDecimal findBalanceAfter(@Param("accountId") Long accountId, @Param("id") Long id);
+}
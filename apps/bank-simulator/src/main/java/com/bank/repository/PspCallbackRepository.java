@@ -0,0 +1,41 @@
+package com.bank.repository;
+
+import com.bank.model.CallbackDeliveryStatus;
+import com.bank.model.PspCallback;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PspCallbackRepository extends JpaRepository<PspCallback, Long> {
+
+    @Query("select c.id from PspCallback c where c.deliveryStatus = :status and c.nextAttemptAt <= :now order by c.nextAttemptAt")
+    List<Long> findDueIds(@Param("status") CallbackDeliveryStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Preuzimanje isporuke: pomera nextAttemptAt na kraj lease-a samo ako niko drugi nije već preuzeo
+    @Transactional
+    @Modifying
+    @Query("update PspCallback c set c.nextAttemptAt = :leaseUntil where c.id = :id " +
+            "and c.deliveryStatus = com.bank.model.CallbackDeliveryStatus.PENDING and c.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update PspCallback c set c.deliveryStatus = com.bank.model.CallbackDeliveryStatus.DELIVERED, " +
+            "c.deliveredAt = :now, c.attempts = c.attempts + 1, c.lastError = null where c.id = :id")
+    int markDelivered(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update PspCallback c set c.deliveryStatus = :status, c.attempts = c.attempts + 1, " +
+            "c.nextAttemptAt = :nextAttemptAt, c.lastError = :error where c.id = :id")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") CallbackDeliveryStatus status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+}
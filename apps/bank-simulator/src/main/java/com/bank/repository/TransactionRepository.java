@@ -1,12 +1,19 @@
 package com.bank.repository;
 
-import com.bank.model.Merchant;
+import com.bank.dto.SettlementRowDTO;
 import com.bank.model.Transaction;
-import com.bank.model.TransactionStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,11 +21,69 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     // Pronalazi transakciju po internom ID-ju plaćanja (koji generiše Banka)
     Optional<Transaction> findByPaymentId(String paymentId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t where t.paymentId = :paymentId")
+    Optional<Transaction> findByPaymentIdForUpdate(@Param("paymentId") String paymentId);
+
     // Pronalazi transakciju po onom ID-ju koji je PSP poslao (STAN)
     Optional<Transaction> findByPspTransactionId(String pspTransactionId);
-    Optional<Transaction> findTopByMerchantAndAmountAndStatusOrderByTimestampDesc(
-            Merchant merchant,
-            BigDecimal amount,
-            TransactionStatus status
-    );
+
+    // QR plaćanje: direktan lookup po pozivu na broj iz RO taga (jedinstveni indeks)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t where t.paymentReference = :paymentReference")
+    Optional<Transaction> findByPaymentReferenceForUpdate(@Param("paymentReference") String paymentReference);
+
+    // Sledeći blok isteklih CREATED transakcija posle afterId (keyset), zaključan do kraja bloka
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t where t.status = com.bank.model.TransactionStatus.CREATED " +
+            "and t.id > :afterId and t.timestamp < :deadline order by t.id")
+    List<Transaction> findExpirableForUpdate(@Param("afterId") Long afterId, @Param("deadline") LocalDateTime deadline,
+                                             Pageable pageable);
+
+    @Modifying
+    @Query("update Transaction t set t.status = com.bank.model.TransactionStatus.FAILED " +
+            "where t.id in :ids and t.status = com.bank.model.TransactionStatus.CREATED")
+    int markExpired(@Param("ids") List<Long> ids);
+
+    // Najstarija transakcija koja još čeka plaćanje - osnova za lag sweeper-a
+    @Query("select min(t.timestamp) from Transaction t where t.status = com.bank.model.TransactionStatus.CREATED")
+    LocalDateTime findOldestPendingTimestamp();
+
+    @Query("select count(t) from Transaction t where t.status = com.bank.model.TransactionStatus.CREATED " +
+            "and t.timestamp < :deadline")
+    long countExpirable(@Param("deadline") LocalDateTime deadline);
+
+    // PCC: strana kartica je poslata izdavaocu - samo jedan /pay može da pređe iz CREATED
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = com.bank.model.TransactionStatus.AUTHORIZING, " +
+            "t.pccIssuerUrl = :issuerUrl, t.authorizingSince = :now " +
+            "where t.id = :id and t.status = com.bank.model.TransactionStatus.CREATED")
+    int markAuthorizing(@Param("id") Long id, @Param("issuerUrl") String issuerUrl, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = com.bank.model.TransactionStatus.FAILED " +
+            "where t.paymentId = :paymentId and t.status = com.bank.model.TransactionStatus.AUTHORIZING")
+    int markForeignFailed(@Param("paymentId") String paymentId);
+
+    // PCC autorizacije bez obrađenog odgovora (npr. proces je pao posle slanja izdavaocu), zaključane
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Transaction t where t.status = com.bank.model.TransactionStatus.AUTHORIZING " +
+            "and coalesce(t.authorizingSince, t.timestamp) < :deadline order by t.id")
+    List<Transaction> findStaleAuthorizingForUpdate(@Param("deadline") LocalDateTime deadline, Pageable pageable);
+
+    @Modifying
+    @Query("update Transaction t set t.status = com.bank.model.TransactionStatus.FAILED " +
+            "where t.id in :ids and t.status = com.bank.model.TransactionStatus.AUTHORIZING")
+    int markAuthorizingExpired(@Param("ids") List<Long> ids);
+
+    // Settlement: uspešne transakcije dana, keyset po (prodavac, id) - nastavak od tačke iz checkpoint-a
+    @Query("select new com.bank.dto.SettlementRowDTO(t.id, m.id, m.merchantId, t.paymentId, t.pspTransactionId, " +
+            "t.paymentReference, t.stan, t.amount, t.currency, t.timestamp) from Transaction t join t.merchant m " +
+            "where t.status = com.bank.model.TransactionStatus.SUCCESS and t.timestamp >= :from and t.timestamp < :to " +
+            "and (m.id > :afterMerchant or (m.id = :afterMerchant and t.id > :afterId)) order by m.id, t.id")
+    List<SettlementRowDTO> findSettlementChunk(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                               @Param("afterMerchant") Long afterMerchant, @Param("afterId") Long afterId,
+                                               Pageable pageable);
 }
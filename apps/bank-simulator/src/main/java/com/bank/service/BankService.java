@@ -4,12 +4,16 @@ import com.bank.dto.*;
 import com.bank.model.*;
 import com.bank.repository.*;
 import com.bank.tools.AuditLogger;
+import com.bank.tools.PaymentReference;
+import com.example.commons.IpsQrCodec;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,20 +24,30 @@ public class BankService {
     private final CardRepository cardRepository;
     private final MerchantRepository merchantRepository;
     private final TransactionRepository transactionRepository;
-    private final WebClient webClient;
+    private final LedgerService ledgerService;
+    private final PspCallbackDispatcher callbackDispatcher;
+    private final VelocityEngine velocityEngine;
     private final AuditLogger auditLogger;
 
+    // Obračunski račun za međubankarska plaćanja preko PCC-a
+    @Value("${bank.pcc.clearing-account:999-999999-99}")
+    private String clearingAccountNumber;
+
     public BankService(AccountRepository accountRepository,
                        CardRepository cardRepository,
                        MerchantRepository merchantRepository,
                        TransactionRepository transactionRepository,
-                       WebClient webClient,
+                       LedgerService ledgerService,
+                       PspCallbackDispatcher callbackDispatcher,
+                       VelocityEngine velocityEngine,
                        AuditLogger auditLogger) {
         this.accountRepository = accountRepository;
         this.cardRepository = cardRepository;
         this.merchantRepository = merchantRepository;
         this.transactionRepository = transactionRepository;
-        this.webClient = webClient;
+        this.ledgerService = ledgerService;
+        this.callbackDispatcher = callbackDispatcher;
+        this.velocityEngine = velocityEngine;
         this.auditLogger = auditLogger;
     }
 
@@ -77,6 +91,9 @@ public class BankService {
         String internalPaymentId = UUID.randomUUID().toString();
         tx.setPaymentId(internalPaymentId);
 
+        tx = transactionRepository.save(tx);
+        // Poziv na broj zavisi od id-ja, pa se dodeljuje posle prvog upisa
+        tx.setPaymentReference(PaymentReference.forTransactionId(tx.getId()));
         transactionRepository.save(tx);
         auditLogger.logEvent("BANK_TX_CREATED", "SUCCESS", "PaymentID: " + internalPaymentId);
 
@@ -89,7 +106,8 @@ public class BankService {
     public String processPayment(BankPaymentFormDTO form) {
         auditLogger.logEvent("CARD_PROCESSING_START", "PENDING", "PaymentID: " + form.getPaymentId());
 
-        Transaction tx = transactionRepository.findByPaymentId(form.getPaymentId())
+        // Zaključavamo red transakcije - dva paralelna /pay za isti paymentId ne mogu oba da prođu
+        Transaction tx = transactionRepository.findByPaymentIdForUpdate(form.getPaymentId())
                 .orElseThrow(() -> new RuntimeException("Transakcija ne postoji ili je istekla!"));
 
         if (tx.getTimestamp().plusMinutes(15).isBefore(LocalDateTime.now())) {
@@ -122,55 +140,154 @@ public class BankService {
         }
 
         // Provera datuma isteka
-        String expDate = form.getExpirationDate();
-        if (expDate == null || !expDate.matches("(0[1-9]|1[0-2])/[0-9]{2}")) {
-            throw new RuntimeException("Neispravan format datuma isteka (MM/YY)!");
-        }
-        String[] parts = expDate.split("/");
-        int expMonth = Integer.parseInt(parts[0]);
-        int expYear = Integer.parseInt("20" + parts[1]);
-        LocalDateTime now = LocalDateTime.now();
-        if (expYear < now.getYear() || (expYear == now.getYear() && expMonth < now.getMonthValue())) {
+        if (cardExpired(form.getExpirationDate())) {
             tx.setStatus(TransactionStatus.FAILED);
             transactionRepository.save(tx);
             throw new RuntimeException("Kartica je istekla!");
         }
 
+        // Autorizacija - samo rezervacija na računu kupca; knjiženje radi HoldCaptureProcessor u grupama.
+        // Sve provere kartice su iznad, pa lock na računu kupca traje samo do kraja ove metode.
         Account buyerAccount = card.getAccount();
-        if (buyerAccount.getBalance().compareTo(tx.getAmount()) < 0) {
-            tx.setStatus(TransactionStatus.INSUFFICIENT_FUNDS);
-            transactionRepository.save(tx);
-            auditLogger.logEvent("INSUFFICIENT_FUNDS", "FAILED", "Acc: " + buyerAccount.getAccountNumber());
-            throw new RuntimeException("Nema dovoljno sredstava na računu!");
-        }
-
-        // Transfer novca
-        buyerAccount.setBalance(buyerAccount.getBalance().subtract(tx.getAmount()));
-        accountRepository.save(buyerAccount);
-
         Account merchantAccount = tx.getMerchant().getAccount();
-        merchantAccount.setBalance(merchantAccount.getBalance().add(tx.getAmount()));
-        accountRepository.save(merchantAccount);
+        // Velocity limiti po računu i prodavcu - u memoriji, bez dodatnih upita
+        velocityEngine.checkPayment(buyerAccount.getId(), tx.getMerchant().getId(), tx.getAmount());
+        ledgerService.authorize(buyerAccount.getId(), merchantAccount.getId(), tx.getAmount(), tx.getPaymentId());
 
         tx.setStatus(TransactionStatus.SUCCESS);
         transactionRepository.save(tx);
         auditLogger.logEvent("BANK_TX_SUCCESS", "SUCCESS", "PaymentID: " + tx.getPaymentId());
 
-        // DINAMIČKI CALLBACK: Koristimo sačuvani URL
-        sendCallbackToPsp(tx);
+        // DINAMIČKI CALLBACK: upis u outbox u istoj transakciji, isporuka posle commit-a
+        callbackDispatcher.enqueue(tx, "SUCCESS");
 
         return tx.getCallbackUrl() + "?paymentId=" + tx.getPspTransactionId() + "&status=SUCCESS";
     }
 
-    private void sendCallbackToPsp(Transaction tx) {
-        String url = tx.getCallbackUrl() + "?paymentId=" + tx.getPspTransactionId() + "&status=SUCCESS";
+    // --- PCC: banka prihvatilac (strane kartice) ---
+
+    /**
+     * Provere pre slanja banci izdavaocu i prelaz CREATED -> AUTHORIZING. Ne drži lock tokom
+     * poziva izdavaoca - drugi /pay za isti paymentId posle ovoga vidi da je transakcija u obradi.
+     */
+    public Transaction beginForeignPayment(BankPaymentFormDTO form, String issuerUrl) {
+        Transaction tx = transactionRepository.findByPaymentId(form.getPaymentId())
+                .orElseThrow(() -> new RuntimeException("Transakcija ne postoji ili je istekla!"));
+
+        if (tx.getTimestamp().plusMinutes(15).isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Link za plaćanje je istekao! Imali ste 15 minuta.");
+        }
+        if (!luhnCheck(form.getPan())) {
+            auditLogger.logSecurityAlert("LUHN_FAILED", "ID: " + tx.getPaymentId());
+            throw new RuntimeException("Neispravan broj kartice (Luhn check failed)!");
+        }
+        // Račun kupca je kod izdavaoca - ovde važi samo limit prodavca
+        velocityEngine.checkPayment(null, tx.getMerchant().getId(), tx.getAmount());
+        if (transactionRepository.markAuthorizing(tx.getId(), issuerUrl, LocalDateTime.now()) == 0) {
+            throw new RuntimeException("Transakcija je već obrađena!");
+        }
+        auditLogger.logEvent("PCC_AUTHORIZATION_START", "PENDING", "PaymentID: " + tx.getPaymentId());
+        return tx;
+    }
+
+    /**
+     * Izdavalac je odobrio: prodavcu se knjiži priliv sa obračunskog računa PCC-a
+     * (potraživanje od banke izdavaoca), transakcija postaje SUCCESS i PSP dobija callback.
+     */
+    @Transactional
+    public String completeForeignPayment(String paymentId, String pan, String authorizationCode) {
+        Transaction tx = transactionRepository.findByPaymentIdForUpdate(paymentId)
+                .orElseThrow(() -> new RuntimeException("Transakcija ne postoji!"));
+        if (tx.getStatus() != TransactionStatus.AUTHORIZING) {
+            throw new RuntimeException("Transakcija nije u obradi kod banke izdavaoca!");
+        }
+
+        Account clearing = accountRepository.findByAccountNumber(clearingAccountNumber)
+                .orElseThrow(() -> new RuntimeException("Obračunski račun PCC-a ne postoji!"));
+        ledgerService.postInterbank(clearing.getId(), tx.getMerchant().getAccount().getId(), tx.getAmount(), paymentId);
+
+        tx.setMaskedPan(pan.substring(0, 6) + "******" + pan.substring(pan.length() - 4));
+        tx.setStatus(TransactionStatus.SUCCESS);
+        transactionRepository.save(tx);
+        auditLogger.logEvent("PCC_AUTHORIZATION_APPROVED", "SUCCESS", "PaymentID: " + paymentId + " | Auth: " + authorizationCode);
+
+        callbackDispatcher.enqueue(tx, "SUCCESS");
+        return tx.getCallbackUrl() + "?paymentId=" + tx.getPspTransactionId() + "&status=SUCCESS";
+    }
+
+    public void failForeignPayment(String paymentId, String reason) {
+        transactionRepository.markForeignFailed(paymentId);
+        auditLogger.logEvent("PCC_AUTHORIZATION_DECLINED", "FAILED", "PaymentID: " + paymentId + " | " + reason);
+    }
+
+    // --- PCC: banka izdavalac ---
+
+    /**
+     * Autorizacija kartice ove banke na zahtev druge banke. Iznos se rezerviše na računu kupca
+     * u korist obračunskog računa; odbijanje se vraća kao odgovor, ne kao greška.
+     */
+    public IssuerAuthorizationResponseDTO authorizeAsIssuer(IssuerAuthorizationRequestDTO request) {
+        String acquirerPaymentId = request.getAcquirerPaymentId();
+        if (request.getPan() == null || !luhnCheck(request.getPan())) {
+            return declined(acquirerPaymentId, "Neispravan broj kartice!");
+        }
+        Card card = cardRepository.findByPan(request.getPan()).orElse(null);
+        if (card == null) {
+            return declined(acquirerPaymentId, "Kartica ne postoji u banci!");
+        }
+        if (!card.getSecurityCode().equals(request.getSecurityCode())) {
+            auditLogger.logSecurityAlert("PCC_CVV_INVALID", "Acquirer PaymentID: " + acquirerPaymentId);
+            return declined(acquirerPaymentId, "Pogrešan CVV kod!");
+        }
+        try {
+            if (cardExpired(request.getExpirationDate())) {
+                return declined(acquirerPaymentId, "Kartica je istekla!");
+            }
+            Account clearing = accountRepository.findByAccountNumber(clearingAccountNumber)
+                    .orElseThrow(() -> new RuntimeException("Obračunski račun PCC-a ne postoji!"));
+            Long holdId = ledgerService.authorize(card.getAccount().getId(), clearing.getId(),
+                    request.getAmount(), issuerHoldReference(acquirerPaymentId));
+
+            auditLogger.logEvent("PCC_ISSUER_AUTHORIZED", "SUCCESS", "Acquirer PaymentID: " + acquirerPaymentId);
+            return new IssuerAuthorizationResponseDTO(true, String.format("%06d", holdId % 1_000_000), "Odobreno");
+        } catch (RuntimeException e) {
+            return declined(acquirerPaymentId, e.getMessage());
+        }
+    }
+
+    /**
+     * Storno autorizacije za koju banka prihvatilac nije dobila odgovor. Capture processor je
+     * autorizaciju možda već naplatio (storno stiže tek posle PCC timeout-a), pa se tada
+     * naplata poništava kompenzacionim knjiženjem umesto release-a.
+     */
+    public boolean reverseAsIssuer(String acquirerPaymentId) {
+        String reference = issuerHoldReference(acquirerPaymentId);
         try {
-            auditLogger.logEvent("BANK_TO_PSP_CALLBACK", "START", "Target URL: " + url);
-            webClient.get().uri(url).retrieve().bodyToMono(Void.class).block();
-            auditLogger.logEvent("BANK_TO_PSP_CALLBACK", "SUCCESS", "PSP instance notified.");
-        } catch (Exception e) {
-            auditLogger.logEvent("BANK_TO_PSP_CALLBACK_ERROR", "ERROR", e.getMessage());
+            return ledgerService.release(reference) || ledgerService.reverseCaptured(reference);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private IssuerAuthorizationResponseDTO declined(String acquirerPaymentId, String reason) {
+        auditLogger.logEvent("PCC_ISSUER_DECLINED", "FAILED", "Acquirer PaymentID: " + acquirerPaymentId + " | " + reason);
+        return new IssuerAuthorizationResponseDTO(false, null, reason);
+    }
+
+    private static String issuerHoldReference(String acquirerPaymentId) {
+        return "PCC-" + acquirerPaymentId;
+    }
+
+    // Baca grešku za neispravan format, vraća true ako je kartica istekla
+    private static boolean cardExpired(String expDate) {
+        if (expDate == null || !expDate.matches("(0[1-9]|1[0-2])/[0-9]{2}")) {
+            throw new RuntimeException("Neispravan format datuma isteka (MM/YY)!");
         }
+        String[] parts = expDate.split("/");
+        int expMonth = Integer.parseInt(parts[0]);
+        int expYear = Integer.parseInt("20" + parts[1]);
+        LocalDateTime now = LocalDateTime.now();
+        return expYear < now.getYear() || (expYear == now.getYear() && expMonth < now.getMonthValue());
     }
 
     private boolean luhnCheck(String pan) {
@@ -187,26 +304,26 @@ public class BankService {
         return (nSum % 10 == 0);
     }
 
-    public String generateIpsQrString(PspPaymentRequestDTO request) {
-        Merchant merchant = merchantRepository.findByMerchantId(request.getMerchantId())
-                .orElseThrow(() -> new RuntimeException("Prodavac ne postoji!"));
-
-        String rawAccount = merchant.getAccount().getAccountNumber().replaceAll("-", "");
-        if (!rawAccount.matches("\\d+")) throw new RuntimeException("Broj računa mora sadržati samo cifre!");
-
-        String formattedAccount = rawAccount.length() >= 18 ? rawAccount.substring(rawAccount.length() - 18) : String.format("%018d", Long.parseLong(rawAccount));
-        String formattedAmount = String.format("%.2f", request.getAmount()).replace(".", ",");
+    public String generateIpsQrString(String paymentId) {
+        // NoSuchElementException - pozivaoci nepostojeću transakciju razlikuju od ostalih grešaka
+        Transaction tx = transactionRepository.findByPaymentId(paymentId)
+                .orElseThrow(() -> new NoSuchElementException("Transakcija ne postoji!"));
+        if (tx.getPaymentReference() == null) {
+            // Transakcije kreirane pre uvođenja poziva na broj
+            tx.setPaymentReference(PaymentReference.forTransactionId(tx.getId()));
+            transactionRepository.save(tx);
+        }
+        Merchant merchant = tx.getMerchant();
+        long amountMinor = tx.getAmount().movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
 
-        String description = "Placanje porudzbine " + request.getPspTransactionId();
+        String description = "Placanje porudzbine " + tx.getPspTransactionId();
         if (description.length() > 35) {
-            description = "Placanje porudzbine " + request.getPspTransactionId().substring(0, 8);
+            description = "Placanje porudzbine " + tx.getPspTransactionId().substring(0, 8);
         }
 
-        StringBuilder ips = new StringBuilder();
-        ips.append("K:PR|V:01|C:1|R:").append(formattedAccount);
-        ips.append("|N:").append(merchant.getAccount().getOwnerName());
-        ips.append("|I:RSD").append(formattedAmount);
-        ips.append("|SF:289|S:").append(description);
+        StringBuilder ips = new StringBuilder(160);
+        IpsQrCodec.encode(ips, merchant.getAccount().getAccountNumber(), merchant.getAccount().getOwnerName(),
+                "RSD", amountMinor, "289", description, tx.getPaymentReference());
 
         return ips.toString();
     }
@@ -223,29 +340,39 @@ public class BankService {
             throw new RuntimeException("Pogrešan PIN!");
         }
 
-        Account receiver = accountRepository.findByAccountNumber(request.getReceiverAccount()).orElseThrow();
-        Merchant merchant = merchantRepository.findByAccount(receiver).orElseThrow();
-        BigDecimal amount = BigDecimal.valueOf(request.getAmount());
+        if (!PaymentReference.isValid(request.getPaymentReference())) {
+            auditLogger.logSecurityAlert("QR_REFERENCE_INVALID", "User: " + request.getEmail());
+            throw new RuntimeException("Neispravan poziv na broj u QR kodu!");
+        }
 
-        Transaction tx = transactionRepository.findTopByMerchantAndAmountAndStatusOrderByTimestampDesc(merchant, amount, TransactionStatus.CREATED)
+        // Direktan lookup po jedinstvenom pozivu na broj; red je zaključan do kraja transakcije
+        Transaction tx = transactionRepository.findByPaymentReferenceForUpdate(request.getPaymentReference())
                 .orElseThrow(() -> new RuntimeException("Transakcija nije pronađena!"));
 
-        if (payer.getBalance().compareTo(amount) < 0) {
-            auditLogger.logEvent("QR_INSUFFICIENT_FUNDS", "FAILED", "User: " + request.getEmail());
-            throw new RuntimeException("Nema dovoljno sredstava!");
+        if (tx.getStatus() != TransactionStatus.CREATED) {
+            throw new RuntimeException("Transakcija je već obrađena!");
         }
 
-        payer.setBalance(payer.getBalance().subtract(amount));
-        receiver.setBalance(receiver.getBalance().add(amount));
-        tx.setStatus(TransactionStatus.SUCCESS);
+        Account receiver = tx.getMerchant().getAccount();
+        BigDecimal amount = tx.getAmount();
+
+        // QR kod je mogao biti izmenjen - račun i iznos moraju odgovarati transakciji
+        String scannedAccount = request.getReceiverAccount() == null ? "" : request.getReceiverAccount().replaceAll("\\D", "");
+        String receiverDigits = receiver.getAccountNumber().replaceAll("\\D", "");
+        if (!scannedAccount.endsWith(receiverDigits.replaceFirst("^0+", ""))
+                || request.getAmount() == null
+                || BigDecimal.valueOf(request.getAmount()).compareTo(amount.setScale(2, RoundingMode.HALF_UP)) != 0) {
+            auditLogger.logSecurityAlert("QR_DATA_MISMATCH", "TX_ID: " + tx.getPaymentId());
+            throw new RuntimeException("Podaci iz QR koda ne odgovaraju transakciji!");
+        }
 
-        accountRepository.save(payer);
-        accountRepository.save(receiver);
+        ledgerService.transfer(payer.getId(), receiver.getId(), amount, tx.getPaymentId());
+        tx.setStatus(TransactionStatus.SUCCESS);
         transactionRepository.save(tx);
 
         auditLogger.logEvent("QR_TRANSFER_SUCCESS", "SUCCESS", "TX_ID: " + tx.getPaymentId());
 
-        sendCallbackToPsp(tx);
+        callbackDispatcher.enqueue(tx, "SUCCESS");
 
         return tx.getCallbackUrl() + "?paymentId=" + tx.getPspTransactionId() + "&status=SUCCESS";
     }
@@ -0,0 +1,54 @@
+package com.bank.service;
+
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pozadinska naplata autorizacija.
+ *
+ * Putanja plaćanja samo rezerviše sredstva ({@link LedgerService#authorize}); ovde se
+ * autorizovani iznosi, u grupama od batch-size, pretvaraju u stavke žurnala. capture-delay-ms
+ * određuje koliko autorizacija čeka pre naplate (prozor u kome može da se poništi).
+ */
+@Component
+public class HoldCaptureProcessor {
+
+    private final LedgerService ledgerService;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.holds.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${bank.holds.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    @Value("${bank.holds.capture-delay-ms:0}")
+    private long captureDelayMillis;
+
+    public HoldCaptureProcessor(LedgerService ledgerService, AuditLogger auditLogger) {
+        this.ledgerService = ledgerService;
+        this.auditLogger = auditLogger;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.holds.capture-ms:1000}")
+    public void captureDue() {
+        LocalDateTime before = LocalDateTime.now().minusNanos(captureDelayMillis * 1_000_000L);
+        int total = 0;
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int captured = ledgerService.captureHolds(before, batchSize);
+                total += captured;
+                if (captured < batchSize) break;
+            }
+        } catch (RuntimeException e) {
+            auditLogger.logEvent("HOLD_CAPTURE_ERROR", "ERROR", e.getMessage());
+        }
+        if (total > 0) {
+            auditLogger.logEvent("HOLD_CAPTURE", "SUCCESS", "Holds: " + total);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.bank.service;
+
+import com.bank.repository.JournalEntryRepository;
+import com.bank.tools.AuditLogger;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Periodično prenosi nekompaktovan rep žurnala u accounts.balance (snapshot),
+ * da bi čitanje stanja ostalo O(1) bez obzira na broj uplata.
+ */
+@Component
+public class JournalCompactor {
+
+    private final JournalEntryRepository journalEntryRepository;
+    private final LedgerService ledgerService;
+    private final AuditLogger auditLogger;
+
+    public JournalCompactor(JournalEntryRepository journalEntryRepository,
+                            LedgerService ledgerService,
+                            AuditLogger auditLogger) {
+        this.journalEntryRepository = journalEntryRepository;
+        this.ledgerService = ledgerService;
+        this.auditLogger = auditLogger;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.journal.compaction-ms:5000}")
+    public void compactAll() {
+        List<Long> accountIds = journalEntryRepository.findAccountIdsWithTail();
+        int total = 0;
+        for (Long accountId : accountIds) {
+            try {
+                total += ledgerService.compact(accountId);
+            } catch (RuntimeException e) {
+                auditLogger.logEvent("JOURNAL_COMPACTION_ERROR", "ERROR", "AccountID: " + accountId + " | " + e.getMessage());
+            }
+        }
+        if (total > 0) {
+            auditLogger.logEvent("JOURNAL_COMPACTION", "SUCCESS", "Accounts: " + accountIds.size() + " | Entries: " + total);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.bank.service;
+
+import com.bank.model.AuthorizationHold;
+import com.bank.model.HoldStatus;
+import com.bank.model.JournalEntry;
+import com.bank.repository.AccountRepository;
+import com.bank.repository.AuthorizationHoldRepository;
+import com.bank.repository.JournalEntryRepository;
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Knjiženje prenosa kroz append-only žurnal dvojnog knjiženja.
+ *
+ * Prenos je samo upis dve stavke u journal_entries. Da se isti novac ne bi potrošio dva puta,
+ * debit kratko zaključava red računa platioca i proverava raspoloživo stanje
+ * (snapshot + nekompaktovan rep); kredit ne zaključava ništa, pa uplate ka istom
+ * prodavcu ne čekaju jedna drugu. Kompaktor ({@link JournalCompactor}) periodično
+ * prenosi rep u accounts.balance, tako da čitanje stanja ostaje snapshot + kratak rep;
+ * računi prodavaca se netiraju zajedno u {@link MerchantCreditAggregator}-u.
+ *
+ * Kartična plaćanja idu u dve faze: {@link #authorize} pod kratkim lock-om samo povećava
+ * reservedFunds platioca, a {@link #captureHolds} kasnije, u grupi, pretvara autorizacije
+ * u stavke žurnala. Raspoloživo stanje je knjiženo stanje umanjeno za rezervacije.
+ */
+@Service
+public class LedgerService {
+
+    private final AccountRepository accountRepository;
+    private final JournalEntryRepository journalEntryRepository;
+    private final AuthorizationHoldRepository holdRepository;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.journal.compaction-batch-size:5000}")
+    private int compactionBatchSize;
+
+    public LedgerService(AccountRepository accountRepository,
+                         JournalEntryRepository journalEntryRepository,
+                         AuthorizationHoldRepository holdRepository,
+                         AuditLogger auditLogger) {
+        this.accountRepository = accountRepository;
+        this.journalEntryRepository = journalEntryRepository;
+        this.holdRepository = holdRepository;
+        this.auditLogger = auditLogger;
+    }
+
+    /**
+     * Prebacuje iznos sa jednog računa na drugi u tekućoj transakciji.
+     * Baca RuntimeException ako nema dovoljno sredstava.
+     */
+    @Transactional
+    public String transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        return transfer(fromAccountId, toAccountId, amount, null);
+    }
+
+    @Transactional
+    public String transfer(Long fromAccountId, Long toAccountId, BigDecimal amount, String reference) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new RuntimeException("Iznos mora biti pozitivan!");
+        }
+        if (fromAccountId.equals(toAccountId)) {
+            throw new RuntimeException("Račun platioca i primaoca ne može biti isti!");
+        }
+
+        // Zaključava se samo račun platioca - do commit-a niko drugi ne troši sa njega
+        accountRepository.findByIdForUpdate(fromAccountId)
+                .orElseThrow(() -> new RuntimeException("Račun platioca ne postoji!"));
+        if (!accountRepository.existsById(toAccountId)) {
+            throw new RuntimeException("Račun primaoca ne postoji!");
+        }
+
+        BigDecimal available = accountRepository.findAvailableBalance(fromAccountId);
+        if (available.compareTo(amount) < 0) {
+            auditLogger.logEvent("LEDGER_DEBIT_REJECTED", "FAILED", "AccountID: " + fromAccountId);
+            throw new RuntimeException("Nema dovoljno sredstava na računu!");
+        }
+
+        String transferId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        journalEntryRepository.saveAll(List.of(
+                entry(fromAccountId, amount.negate(), transferId, reference, now),
+                entry(toAccountId, amount, transferId, reference, now)));
+        return transferId;
+    }
+
+    /**
+     * Međubankarsko knjiženje preko PCC-a: dve stavke bez lock-a i bez provere pokrića.
+     * Obračunski račun sme da ode u minus - to je potraživanje od banke izdavaoca, koja je
+     * iznos već rezervisala na računu kupca.
+     */
+    @Transactional
+    public String postInterbank(Long clearingAccountId, Long toAccountId, BigDecimal amount, String reference) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new RuntimeException("Iznos mora biti pozitivan!");
+        }
+        String transferId = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        journalEntryRepository.saveAll(List.of(
+                entry(clearingAccountId, amount.negate(), transferId, reference, now),
+                entry(toAccountId, amount, transferId, reference, now)));
+        return transferId;
+    }
+
+    /**
+     * Autorizuje plaćanje: rezerviše iznos na računu platioca bez knjiženja.
+     * Lock na računu platioca traje samo do kraja tekuće transakcije, koja treba da bude kratka;
+     * naplatu radi {@link HoldCaptureProcessor}.
+     *
+     * @return id autorizacije
+     */
+    @Transactional
+    public Long authorize(Long fromAccountId, Long toAccountId, BigDecimal amount, String paymentId) {
+        if (amount == null || amount.signum() <= 0) {
+            throw new RuntimeException("Iznos mora biti pozitivan!");
+        }
+        if (fromAccountId.equals(toAccountId)) {
+            throw new RuntimeException("Račun platioca i primaoca ne može biti isti!");
+        }
+        if (!accountRepository.existsById(toAccountId)) {
+            throw new RuntimeException("Račun primaoca ne postoji!");
+        }
+
+        accountRepository.findByIdForUpdate(fromAccountId)
+                .orElseThrow(() -> new RuntimeException("Račun platioca ne postoji!"));
+
+        BigDecimal available = accountRepository.findAvailableBalance(fromAccountId);
+        if (available.compareTo(amount) < 0) {
+            auditLogger.logEvent("LEDGER_AUTHORIZATION_REJECTED", "FAILED", "AccountID: " + fromAccountId);
+            throw new RuntimeException("Nema dovoljno sredstava na računu!");
+        }
+
+        accountRepository.applyReservationDelta(fromAccountId, amount);
+
+        AuthorizationHold hold = new AuthorizationHold();
+        hold.setPaymentId(paymentId);
+        hold.setAccountId(fromAccountId);
+        hold.setMerchantAccountId(toAccountId);
+        hold.setAmount(amount);
+        hold.setStatus(HoldStatus.AUTHORIZED);
+        hold.setCreatedAt(LocalDateTime.now());
+        return holdRepository.save(hold).getId();
+    }
+
+    /**
+     * Naplaćuje do limit najstarijih autorizacija kreiranih pre zadatog trenutka, u jednoj transakciji.
+     * Kandidati se prvo zaključavaju (SKIP LOCKED), pa paralelni prolazi dobijaju disjunktne blokove.
+     * Rezervacije se skidaju jednim UPDATE-om po računu platioca (po rastućem id-ju), a svaka
+     * autorizacija dobija svoj par stavki u žurnalu. Raspoloživo stanje se pri tome ne menja:
+     * rezervacija se smanjuje tačno za iznos nove debitne stavke.
+     *
+     * @return broj naplaćenih autorizacija
+     */
+    @Transactional
+    public int captureHolds(LocalDateTime authorizedBefore, int limit) {
+        List<AuthorizationHold> holds = holdRepository.findCapturable(authorizedBefore, PageRequest.of(0, limit));
+        if (holds.isEmpty()) return 0;
+
+        List<Long> ids = new ArrayList<>(holds.size());
+        for (AuthorizationHold h : holds) {
+            ids.add(h.getId());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Autorizacije su zaključane u findCapturable, pa ih ni release (npr. PCC reversal) ni drugi
+        // capture prolaz ne mogu promeniti pre ovog prelaza - knjiži se tačno ono što je ovde preuzeto
+        int settled = holdRepository.settle(ids, HoldStatus.CAPTURED, now);
+        if (settled != ids.size()) {
+            throw new RuntimeException("Naplata autorizacija nije preuzela sve zaključane stavke: "
+                    + settled + "/" + ids.size());
+        }
+
+        Map<Long, BigDecimal> reservations = new TreeMap<>();
+        List<JournalEntry> entries = new ArrayList<>(holds.size() * 2);
+        for (AuthorizationHold h : holds) {
+            reservations.merge(h.getAccountId(), h.getAmount(), BigDecimal::add);
+            String transferId = UUID.randomUUID().toString();
+            entries.add(entry(h.getAccountId(), h.getAmount().negate(), transferId, h.getPaymentId(), now));
+            entries.add(entry(h.getMerchantAccountId(), h.getAmount(), transferId, h.getPaymentId(), now));
+        }
+
+        reservations.forEach((accountId, total) -> accountRepository.applyReservationDelta(accountId, total.negate()));
+        journalEntryRepository.saveAll(entries);
+        return holds.size();
+    }
+
+    /**
+     * Poništava autorizaciju koja još nije naplaćena i vraća rezervisana sredstva.
+     *
+     * @return false ako je autorizacija već naplaćena ili poništena
+     */
+    @Transactional
+    public boolean release(String paymentId) {
+        AuthorizationHold hold = holdRepository.findByPaymentId(paymentId)
+                .orElseThrow(() -> new RuntimeException("Autorizacija ne postoji!"));
+        if (holdRepository.settle(List.of(hold.getId()), HoldStatus.RELEASED, LocalDateTime.now()) == 0) {
+            return false;
+        }
+        accountRepository.applyReservationDelta(hold.getAccountId(), hold.getAmount().negate());
+        auditLogger.logEvent("LEDGER_AUTHORIZATION_RELEASED", "SUCCESS", "PaymentID: " + paymentId);
+        return true;
+    }
+
+    /**
+     * Stornira autorizaciju koju je capture već naplatio: knjiži kompenzacioni par stavki
+     * (primalac -> platilac) sa istom referencom. Primalac nema proveru pokrića - kod PCC-a je to
+     * obračunski račun, koji sme da ode u minus.
+     *
+     * @return false ako autorizacija nije naplaćena ili je već stornirana
+     */
+    @Transactional
+    public boolean reverseCaptured(String paymentId) {
+        AuthorizationHold hold = holdRepository.findByPaymentId(paymentId)
+                .orElseThrow(() -> new RuntimeException("Autorizacija ne postoji!"));
+        LocalDateTime now = LocalDateTime.now();
+        if (holdRepository.markReversed(hold.getId(), now) == 0) {
+            return false;
+        }
+        String transferId = UUID.randomUUID().toString();
+        journalEntryRepository.saveAll(List.of(
+                entry(hold.getMerchantAccountId(), hold.getAmount().negate(), transferId, paymentId, now),
+                entry(hold.getAccountId(), hold.getAmount(), transferId, paymentId, now)));
+        auditLogger.logEvent("LEDGER_CAPTURE_REVERSED", "SUCCESS", "PaymentID: " + paymentId);
+        return true;
+    }
+
+    /** Knjiženo stanje računa: snapshot + nekompaktovan rep, jednim upitom. */
+    @Transactional(readOnly = true)
+    public BigDecimal balanceOf(Long accountId) {
+        BigDecimal balance = accountRepository.findLedgerBalance(accountId);
+        if (balance == null) {
+            throw new RuntimeException("Račun ne postoji!");
+        }
+        return balance;
+    }
+
+    /** Stanje koje kupac može da potroši: knjiženo stanje umanjeno za autorizovane, nenaplaćene iznose. */
+    @Transactional(readOnly = true)
+    public BigDecimal availableBalanceOf(Long accountId) {
+        BigDecimal balance = accountRepository.findAvailableBalance(accountId);
+        if (balance == null) {
+            throw new RuntimeException("Račun ne postoji!");
+        }
+        return balance;
+    }
+
+    /**
+     * Prenosi do compaction-batch-size najstarijih stavki računa u snapshot.
+     * Radi pod istim row lock-om kao debit, i samo nad eksplicitno pročitanim id-jevima,
+     * pa stavka upisana u međuvremenu ostaje u repu za sledeći prolaz.
+     *
+     * @return broj kompaktovanih stavki
+     */
+    @Transactional
+    public int compact(Long accountId) {
+        accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new RuntimeException("Račun ne postoji!"));
+
+        List<JournalEntry> tail = journalEntryRepository.findTail(accountId, PageRequest.of(0, compactionBatchSize));
+        if (tail.isEmpty()) return 0;
+
+        BigDecimal delta = BigDecimal.ZERO;
+        List<Long> ids = new ArrayList<>(tail.size());
+        for (JournalEntry e : tail) {
+            delta = delta.add(e.getAmount());
+            ids.add(e.getId());
+        }
+
+        accountRepository.applySnapshotDelta(accountId, delta);
+        journalEntryRepository.markCompacted(ids);
+        return ids.size();
+    }
+
+    /**
+     * Netira nekompaktovane stavke svih računa prodavaca u jednoj transakciji: stavke se
+     * grupišu po računu i svaki račun dobija jedan UPDATE sa zbirom, umesto po jedan po uplati.
+     * Markiranje stavki i izmena snapshot-a se commit-uju zajedno, pa {@link #balanceOf}
+     * uvek vidi isti zbir - ili u repu ili u balance-u.
+     *
+     * @return broj netiranih stavki
+     */
+    @Transactional
+    public int netMerchantCredits(int limit) {
+        List<JournalEntry> pending = journalEntryRepository.findPendingMerchantEntries(PageRequest.of(0, limit));
+        if (pending.isEmpty()) return 0;
+
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        List<Long> ids = new ArrayList<>(pending.size());
+        for (JournalEntry e : pending) {
+            deltas.merge(e.getAccountId(), e.getAmount(), BigDecimal::add);
+            ids.add(e.getId());
+        }
+
+        // TreeMap - računi se ažuriraju po rastućem id-ju
+        deltas.forEach(accountRepository::applySnapshotDelta);
+        journalEntryRepository.markCompacted(ids);
+        return ids.size();
+    }
+
+    private static JournalEntry entry(Long accountId, BigDecimal amount, String transferId, String reference, LocalDateTime now) {
+        JournalEntry e = new JournalEntry();
+        e.setAccountId(accountId);
+        e.setAmount(amount);
+        e.setTransferId(transferId);
+        e.setReference(reference);
+        e.setCreatedAt(now);
+        e.setCompacted(false);
+        return e;
+    }
+}
@@ -0,0 +1,49 @@
+package com.bank.service;
+
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Pozadinsko netiranje priliva na račune prodavaca.
+ *
+ * Svaka kartična i QR uplata upisuje samo svoju kreditnu stavku u žurnal; red računa
+ * prodavca (npr. "Rent-A-Car Agency") se ne dira na putanji plaćanja. Ovaj aggregator
+ * na svakih aggregation-ms skuplja stavke svih prodavaca i prenosi ih u balance
+ * jednim UPDATE-om po prodavcu, pa vruć račun ima jedan upis po intervalu umesto po uplati.
+ */
+@Component
+public class MerchantCreditAggregator {
+
+    private final LedgerService ledgerService;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.merchant-credits.batch-size:10000}")
+    private int batchSize;
+
+    @Value("${bank.merchant-credits.max-batches-per-run:10}")
+    private int maxBatchesPerRun;
+
+    public MerchantCreditAggregator(LedgerService ledgerService, AuditLogger auditLogger) {
+        this.ledgerService = ledgerService;
+        this.auditLogger = auditLogger;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.merchant-credits.aggregation-ms:1000}")
+    public void aggregate() {
+        int total = 0;
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int netted = ledgerService.netMerchantCredits(batchSize);
+                total += netted;
+                if (netted < batchSize) break;
+            }
+        } catch (RuntimeException e) {
+            auditLogger.logEvent("MERCHANT_CREDIT_AGGREGATION_ERROR", "ERROR", e.getMessage());
+        }
+        if (total > 0) {
+            auditLogger.logEvent("MERCHANT_CREDIT_AGGREGATION", "SUCCESS", "Entries: " + total);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.bank.service;
+
+import com.bank.dto.BankPaymentFormDTO;
+import com.bank.tools.KeyedHash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Spajanje ponovljenih slanja kartične forme (dupli klik na pay.html).
+ *
+ * Prvo slanje za paymentId pokreće obradu; svako sledeće sa istim podacima forme dobija isti
+ * CompletableFuture - čeka prvi rezultat i ne dira bazu. Završen rezultat ostaje u memoriji
+ * ttl-ms. Slanje sa drugačijim podacima (npr. ispravljen CVV) nije duplikat i preuzima mesto.
+ * Podaci kartice se ne čuvaju, samo njihov HMAC otisak sa ključem ovog procesa ({@link KeyedHash}).
+ */
+@Component
+public class PaymentSubmissionDeduplicator {
+
+    private final Map<String, Submission> submissions = new ConcurrentHashMap<>();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final KeyedHash formHash = new KeyedHash();
+
+    @Value("${bank.pay-dedup.ttl-ms:30000}")
+    private long ttlMillis;
+
+    private static final class Submission {
+        final long fingerprint;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        volatile long completedAt; // 0 dok je obrada u toku
+
+        Submission(long fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        boolean expired(long now, long ttlMillis) {
+            long done = completedAt;
+            return done != 0 && now - done > ttlMillis;
+        }
+    }
+
+    /**
+     * Izvršava obradu za formu ili vraća rezultat obrade istog slanja koja je u toku / nedavno završena.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(BankPaymentFormDTO form, Supplier<CompletableFuture<T>> processing) {
+        String key = form.getPaymentId();
+        if (key == null) return processing.get();
+
+        long fingerprint = fingerprint(form);
+        Submission own = new Submission(fingerprint);
+        while (true) {
+            Submission existing = submissions.putIfAbsent(key, own);
+            if (existing == null) break;
+            if (existing.fingerprint == fingerprint && !existing.expired(System.currentTimeMillis(), ttlMillis)) {
+                duplicates.incrementAndGet();
+                return (CompletableFuture<T>) existing.result;
+            }
+            if (submissions.replace(key, existing, own)) break;
+        }
+
+        CompletableFuture<T> started;
+        try {
+            started = processing.get();
+        } catch (RuntimeException e) {
+            started = CompletableFuture.failedFuture(e);
+        }
+        started.whenComplete((value, error) -> {
+            own.completedAt = System.currentTimeMillis();
+            if (error != null) own.result.completeExceptionally(error);
+            else own.result.complete(value);
+        });
+        return (CompletableFuture<T>) own.result;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.pay-dedup.cleanup-ms:10000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        submissions.entrySet().removeIf(e -> e.getValue().expired(now, ttlMillis));
+    }
+
+    public long duplicates() {
+        return duplicates.get();
+    }
+
+    public int size() {
+        return submissions.size();
+    }
+
+    // Isti podaci forme daju isti otisak, bez čuvanja PAN-a i CVV-a
+    private long fingerprint(BankPaymentFormDTO form) {
+        return formHash.hash(form.getPan(), form.getSecurityCode(), form.getExpirationDate(), form.getCardHolderName());
+    }
+}
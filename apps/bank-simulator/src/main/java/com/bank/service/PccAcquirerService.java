@@ -0,0 +1,77 @@
+package com.bank.service;
+
+import com.bank.dto.BankPaymentFormDTO;
+import com.bank.dto.IssuerAuthorizationRequestDTO;
+import com.bank.model.Transaction;
+import com.bank.tools.AuditLogger;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Banka kao prihvatilac za strane kartice: zahtev ide banci izdavaocu preko PCC-a,
+ * neblokirajuće - nit zahteva se oslobađa dok izdavalac ne odgovori. Ako odgovor ne stigne
+ * ili se ne može proknjižiti, izdavaocu se šalje storno da ne ostane visiti rezervacija.
+ */
+@Service
+public class PccAcquirerService {
+
+    private final BankService bankService;
+    private final PccClient pccClient;
+    private final AuditLogger auditLogger;
+
+    public PccAcquirerService(BankService bankService, PccClient pccClient, AuditLogger auditLogger) {
+        this.bankService = bankService;
+        this.pccClient = pccClient;
+        this.auditLogger = auditLogger;
+    }
+
+    /** @return redirect URL ka PSP-u; završava se greškom ako je plaćanje odbijeno */
+    public CompletableFuture<String> processForeignPayment(BankPaymentFormDTO form, String issuerUrl) {
+        Transaction tx = bankService.beginForeignPayment(form, issuerUrl);
+        String paymentId = tx.getPaymentId();
+
+        IssuerAuthorizationRequestDTO request = new IssuerAuthorizationRequestDTO();
+        request.setAcquirerPaymentId(paymentId);
+        request.setPan(form.getPan());
+        request.setSecurityCode(form.getSecurityCode());
+        request.setCardHolderName(form.getCardHolderName());
+        request.setExpirationDate(form.getExpirationDate());
+        request.setAmount(tx.getAmount());
+        request.setCurrency(tx.getCurrency());
+
+        return pccClient.authorize(issuerUrl, request)
+                // Knjiženje je blokirajuće (JPA) - ne sme na Netty event loop
+                .publishOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    auditLogger.logSecurityAlert("PCC_ISSUER_UNAVAILABLE", "PaymentID: " + paymentId + " | " + e.getMessage());
+                    bankService.failForeignPayment(paymentId, "Issuer unavailable");
+                    reverse(issuerUrl, paymentId);
+                    return Mono.error(new RuntimeException("Banka izdavalac kartice trenutno nije dostupna!"));
+                })
+                .map(response -> {
+                    if (!response.isApproved()) {
+                        bankService.failForeignPayment(paymentId, response.getMessage());
+                        throw new RuntimeException(response.getMessage() != null ? response.getMessage() : "Plaćanje odbijeno!");
+                    }
+                    try {
+                        return bankService.completeForeignPayment(paymentId, form.getPan(), response.getAuthorizationCode());
+                    } catch (RuntimeException e) {
+                        bankService.failForeignPayment(paymentId, e.getMessage());
+                        reverse(issuerUrl, paymentId);
+                        throw e;
+                    }
+                })
+                .toFuture();
+    }
+
+    /** Asinhroni storno kod izdavaoca; koristi ga i {@link TransactionExpirySweeper} za zaglavljene autorizacije. */
+    public void reverse(String issuerUrl, String paymentId) {
+        pccClient.reverse(issuerUrl, paymentId).subscribe(
+                null,
+                e -> auditLogger.logSecurityAlert("PCC_REVERSAL_FAILED", "PaymentID: " + paymentId + " | " + e.getMessage()),
+                () -> auditLogger.logEvent("PCC_REVERSAL", "SUCCESS", "PaymentID: " + paymentId));
+    }
+}
@@ -0,0 +1,92 @@
+package com.bank.service;
+
+import com.bank.dto.IssuerAuthorizationRequestDTO;
+import com.bank.dto.IssuerAuthorizationResponseDTO;
+import com.bank.tools.PccSignature;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Neblokirajući klijent ka bankama izdavaocima. Ima sopstveni, ograničen pool konekcija
+ * (max-connections po banci, pending-acquire-max u redu čekanja), odvojen od callback-a ka PSP-u,
+ * pa spora banka izdavalac ne može da uguši ostali saobraćaj. Svaki zahtev je potpisan
+ * zajedničkim PCC ključem ({@link PccSignature}).
+ */
+@Component
+public class PccClient {
+
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final String secret;
+
+    public PccClient(@Value("${bank.pcc.max-connections:200}") int maxConnections,
+                     @Value("${bank.pcc.pending-acquire-max:1000}") int pendingAcquireMax,
+                     @Value("${bank.pcc.timeout-ms:5000}") long timeoutMillis,
+                     @Value("${bank.pcc.secret}") String secret) {
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.secret = secret;
+        try {
+            // IGNORIŠE PROVJERU IMENA - localhost, kao i WebClientConfig
+            SslContext sslContext = SslContextBuilder
+                    .forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                    .build();
+
+            ConnectionProvider pool = ConnectionProvider.builder("pcc")
+                    .maxConnections(maxConnections)
+                    .pendingAcquireMaxCount(pendingAcquireMax)
+                    .pendingAcquireTimeout(timeout)
+                    .maxIdleTime(Duration.ofSeconds(30))
+                    .build();
+
+            HttpClient httpClient = HttpClient.create(pool)
+                    .secure(t -> t.sslContext(sslContext))
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(timeoutMillis, Integer.MAX_VALUE))
+                    .responseTimeout(timeout);
+
+            this.webClient = WebClient.builder()
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .build();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public Mono<IssuerAuthorizationResponseDTO> authorize(String issuerUrl, IssuerAuthorizationRequestDTO request) {
+        long timestamp = System.currentTimeMillis();
+        return webClient.post()
+                .uri(issuerUrl + "/api/pcc/authorize")
+                .header(PccSignature.TIMESTAMP_HEADER, String.valueOf(timestamp))
+                .header(PccSignature.SIGNATURE_HEADER, PccSignature.sign(secret, PccSignature.authorizePayload(request, timestamp)))
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(IssuerAuthorizationResponseDTO.class)
+                .timeout(timeout);
+    }
+
+    /** Storno autorizacije kod izdavaoca kada odgovor nije stigao na vreme. */
+    public Mono<Void> reverse(String issuerUrl, String acquirerPaymentId) {
+        long timestamp = System.currentTimeMillis();
+        return webClient.post()
+                .uri(issuerUrl + "/api/pcc/reverse")
+                .header(PccSignature.TIMESTAMP_HEADER, String.valueOf(timestamp))
+                .header(PccSignature.SIGNATURE_HEADER, PccSignature.sign(secret, PccSignature.reversePayload(acquirerPaymentId, timestamp)))
+                .bodyValue(Map.of("acquirerPaymentId", acquirerPaymentId))
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .then();
+    }
+}
@@ -0,0 +1,94 @@
+package com.bank.service;
+
+import com.bank.tools.AuditLogger;
+import com.bank.tools.BinRoutingTrie;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tabela rutiranja PCC-a: BIN prefiks -> URL banke izdavaoca.
+ *
+ * Kartice čiji BIN nije u tabeli su kartice ove banke. Tabela se čita iz bank.pcc.routes
+ * ("4999=https://localhost:8092,5555=https://localhost:8093") i opciono iz fajla
+ * bank.pcc.routes-file (jedna ruta "prefiks=url" po liniji); fajl se proverava na svakih
+ * reload-ms i pri izmeni se gradi novi trie koji atomski zamenjuje stari - čitaoci nikad ne čekaju.
+ */
+@Component
+public class PccRoutingTable {
+
+    private final AuditLogger auditLogger;
+    private final AtomicReference<BinRoutingTrie> trie = new AtomicReference<>(BinRoutingTrie.empty());
+
+    private final String inlineRoutes;
+    private final String routesFile;
+    private volatile long loadedFileModified = -1;
+
+    public PccRoutingTable(AuditLogger auditLogger,
+                           @Value("${bank.pcc.routes:}") String inlineRoutes,
+                           @Value("${bank.pcc.routes-file:}") String routesFile) {
+        this.auditLogger = auditLogger;
+        this.inlineRoutes = inlineRoutes;
+        this.routesFile = routesFile;
+        reload();
+    }
+
+    /** URL banke izdavaoca za PAN, ili null ako je kartica domaća. */
+    public String issuerFor(String pan) {
+        return pan == null ? null : trie.get().lookup(pan);
+    }
+
+    public int size() {
+        return trie.get().size();
+    }
+
+    @Scheduled(fixedDelayString = "${bank.pcc.reload-ms:10000}")
+    public void reloadIfChanged() {
+        if (routesFile.isBlank()) return;
+        try {
+            long modified = Files.getLastModifiedTime(Path.of(routesFile)).toMillis();
+            if (modified != loadedFileModified) reload();
+        } catch (IOException e) {
+            auditLogger.logEvent("PCC_ROUTES_RELOAD", "ERROR", routesFile + " | " + e.getMessage());
+        }
+    }
+
+    /** Ponovo učitava sve rute; pri grešci ostaje prethodna tabela. */
+    public synchronized void reload() {
+        try {
+            Map<String, String> routes = new LinkedHashMap<>();
+            parse(inlineRoutes.replace(',', '\n'), routes);
+            long modified = -1;
+            if (!routesFile.isBlank()) {
+                Path path = Path.of(routesFile);
+                modified = Files.getLastModifiedTime(path).toMillis();
+                parse(Files.readString(path, StandardCharsets.UTF_8), routes);
+            }
+            trie.set(BinRoutingTrie.build(routes));
+            loadedFileModified = modified;
+            auditLogger.logEvent("PCC_ROUTES_RELOAD", "SUCCESS", "Routes: " + routes.size());
+        } catch (IOException | RuntimeException e) {
+            auditLogger.logSecurityAlert("PCC_ROUTES_RELOAD_FAILED", e.getMessage());
+        }
+    }
+
+    private static void parse(String text, Map<String, String> routes) {
+        for (String line : text.split("\n")) {
+            String route = line.trim();
+            if (route.isEmpty() || route.startsWith("#")) continue;
+            int eq = route.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Neispravna PCC ruta: " + route);
+            }
+            routes.put(route.substring(0, eq).trim(), route.substring(eq + 1).trim());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.bank.service;
+
+import com.bank.model.CallbackDeliveryStatus;
+import com.bank.model.PspCallback;
+import com.bank.model.Transaction;
+import com.bank.repository.PspCallbackRepository;
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outbox za callback-e ka PSP-u.
+ *
+ * {@link #enqueue} upisuje zapis u tekućoj transakciji plaćanja i, posle commit-a, odmah
+ * pokreće neblokirajuću isporuku - /pay ne čeka psp-core. Ako isporuka ne uspe, zapis dobija
+ * sledeći termin sa eksponencijalnim backoff-om, a zakazani prolaz ga ponovo šalje dok ne
+ * uspe ili ne potroši max-attempts. Svaki pokušaj se prvo "preuzme" uslovnim UPDATE-om,
+ * pa isti callback ne ide dva puta paralelno.
+ */
+@Component
+public class PspCallbackDispatcher {
+
+    private final PspCallbackRepository callbackRepository;
+    private final WebClient webClient;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.callback.batch-size:100}")
+    private int batchSize;
+
+    @Value("${bank.callback.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${bank.callback.initial-backoff-ms:1000}")
+    private long initialBackoffMillis;
+
+    @Value("${bank.callback.max-backoff-ms:300000}")
+    private long maxBackoffMillis;
+
+    @Value("${bank.callback.request-timeout-ms:10000}")
+    private long requestTimeoutMillis;
+
+    public PspCallbackDispatcher(PspCallbackRepository callbackRepository, WebClient webClient, AuditLogger auditLogger) {
+        this.callbackRepository = callbackRepository;
+        this.webClient = webClient;
+        this.auditLogger = auditLogger;
+    }
+
+    /** Upisuje callback u outbox; isporuka kreće tek kada se transakcija plaćanja commit-uje. */
+    public void enqueue(Transaction tx, String status) {
+        enqueue(tx, status, true);
+    }
+
+    /**
+     * Kao {@link #enqueue(Transaction, String)}, ali sa dispatchNow=false zapis samo čeka zakazani
+     * prolaz - za masovne upise (npr. istek transakcija), da se ne otvori hiljadu poziva odjednom.
+     */
+    public void enqueue(Transaction tx, String status, boolean dispatchNow) {
+        LocalDateTime now = LocalDateTime.now();
+        PspCallback callback = new PspCallback();
+        callback.setPaymentId(tx.getPaymentId());
+        callback.setTargetUrl(tx.getCallbackUrl() + "?paymentId=" + tx.getPspTransactionId() + "&status=" + status);
+        callback.setDeliveryStatus(CallbackDeliveryStatus.PENDING);
+        callback.setAttempts(0);
+        callback.setNextAttemptAt(now);
+        callback.setCreatedAt(now);
+        Long id = callbackRepository.save(callback).getId();
+
+        auditLogger.logEvent("BANK_TO_PSP_CALLBACK", "QUEUED", "PaymentID: " + tx.getPaymentId());
+        if (!dispatchNow) return;
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // Van niti zahteva i van završene transakcije - /pay odmah vraća odgovor
+                    Schedulers.boundedElastic().schedule(() -> dispatch(id));
+                }
+            });
+        } else {
+            Schedulers.boundedElastic().schedule(() -> dispatch(id));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bank.callback.poll-ms:2000}")
+    public void dispatchDue() {
+        List<Long> due = callbackRepository.findDueIds(CallbackDeliveryStatus.PENDING, LocalDateTime.now(),
+                PageRequest.of(0, batchSize));
+        due.forEach(this::dispatch);
+    }
+
+    private void dispatch(Long id) {
+        LocalDateTime now = LocalDateTime.now();
+        // Lease traje duže od timeout-a zahteva, da zakazani prolaz ne pošalje isti callback ponovo
+        LocalDateTime leaseUntil = now.plus(Duration.ofMillis(requestTimeoutMillis * 2));
+        if (callbackRepository.claim(id, now, leaseUntil) == 0) return;
+
+        PspCallback callback = callbackRepository.findById(id).orElse(null);
+        if (callback == null) return;
+
+        auditLogger.logEvent("BANK_TO_PSP_CALLBACK", "START",
+                "Target URL: " + callback.getTargetUrl() + " | Attempt: " + (callback.getAttempts() + 1));
+
+        webClient.get()
+                .uri(callback.getTargetUrl())
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofMillis(requestTimeoutMillis))
+                // Upisi u bazu ne smeju da blokiraju Netty event loop
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(
+                        response -> onDelivered(callback),
+                        error -> onFailed(callback, error));
+    }
+
+    private void onDelivered(PspCallback callback) {
+        callbackRepository.markDelivered(callback.getId(), LocalDateTime.now());
+        auditLogger.logEvent("BANK_TO_PSP_CALLBACK", "SUCCESS", "PaymentID: " + callback.getPaymentId());
+    }
+
+    private void onFailed(PspCallback callback, Throwable error) {
+        int attempts = callback.getAttempts() + 1;
+        String reason = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        if (reason.length() > 500) reason = reason.substring(0, 500);
+
+        if (attempts >= maxAttempts) {
+            callbackRepository.markAttemptFailed(callback.getId(), CallbackDeliveryStatus.FAILED, LocalDateTime.now(), reason);
+            auditLogger.logSecurityAlert("BANK_TO_PSP_CALLBACK_ABANDONED",
+                    "PaymentID: " + callback.getPaymentId() + " | Attempts: " + attempts + " | " + reason);
+            return;
+        }
+
+        long backoff = Math.min(initialBackoffMillis << Math.min(attempts - 1, 20), maxBackoffMillis);
+        callbackRepository.markAttemptFailed(callback.getId(), CallbackDeliveryStatus.PENDING,
+                LocalDateTime.now().plus(Duration.ofMillis(backoff)), reason);
+        auditLogger.logEvent("BANK_TO_PSP_CALLBACK_ERROR", "RETRY",
+                "PaymentID: " + callback.getPaymentId() + " | Next in: " + backoff + "ms | " + reason);
+    }
+}
@@ -0,0 +1,227 @@
+package com.bank.service;
+
+import com.bank.tools.AuditLogger;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renderovanje IPS QR koda na serveru (PNG ili SVG).
+ *
+ * Sadržaj QR-a zavisi samo od transakcije (račun, iznos, poziv na broj), pa se slika keširaju
+ * po paymentId + format u ograničenom LRU kešu. U kešu je future, tako da paralelni retry-i i
+ * osvežavanja stranice za isti paymentId čekaju jedno te isto renderovanje. Renderovanje radi
+ * u posebnom ograničenom pool-u; kada je red pun, zahtev se odbija umesto da guši web niti.
+ */
+@Service
+public class QrImageService {
+
+    public enum Format {
+        PNG("image/png"),
+        SVG("image/svg+xml");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            return "svg".equalsIgnoreCase(value) ? SVG : PNG;
+        }
+    }
+
+    public record RenderedQr(byte[] bytes, String etag, Format format) {}
+
+    private final BankService bankService;
+    private final AuditLogger auditLogger;
+    private final ThreadPoolExecutor renderPool;
+    private final Map<String, CompletableFuture<RenderedQr>> cache;
+
+    @Value("${bank.qr.module-px:8}")
+    private int modulePixels;
+
+    @Value("${bank.qr.render-timeout-ms:5000}")
+    private long renderTimeoutMillis;
+
+    public QrImageService(BankService bankService, AuditLogger auditLogger,
+                          @Value("${bank.qr.render-threads:2}") int renderThreads,
+                          @Value("${bank.qr.render-queue:64}") int renderQueue,
+                          @Value("${bank.qr.cache-size:1000}") int cacheSize) {
+        this.bankService = bankService;
+        this.auditLogger = auditLogger;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.renderPool = new ThreadPoolExecutor(renderThreads, renderThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(renderQueue),
+                r -> {
+                    Thread t = new Thread(r, "qr-render-" + threadCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<RenderedQr>> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Vraća sliku iz keša ili je renderuje. Baca RejectedExecutionException kada je render pool pun,
+     * NoSuchElementException ako transakcija ne postoji, a RuntimeException za ostale greške.
+     */
+    public RenderedQr render(String paymentId, Format format) {
+        String key = paymentId + ":" + format;
+        CompletableFuture<RenderedQr> future;
+        boolean owner = false;
+        synchronized (cache) {
+            future = cache.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                cache.put(key, future);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            startRender(key, paymentId, format, future);
+        }
+
+        try {
+            return future.get(renderTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new RuntimeException("Greška pri generisanju QR koda: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new RejectedExecutionException("Generisanje QR koda je predugo trajalo.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Generisanje QR koda je prekinuto.");
+        }
+    }
+
+    private void startRender(String key, String paymentId, Format format, CompletableFuture<RenderedQr> future) {
+        try {
+            // IPS string se pravi iz transakcije (čitanje iz baze ostaje na niti zahteva)
+            String ips = bankService.generateIpsQrString(paymentId);
+            renderPool.execute(() -> {
+                try {
+                    future.complete(draw(ips, format));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            if (e instanceof RejectedExecutionException) {
+                auditLogger.logEvent("QR_RENDER_REJECTED", "BUSY", "PaymentID: " + paymentId);
+            }
+        }
+
+        // Neuspeh se ne kešira - sledeći zahtev pokušava ponovo
+        future.whenComplete((result, error) -> {
+            if (error != null) {
+                synchronized (cache) {
+                    cache.remove(key, future);
+                }
+            }
+        });
+    }
+
+    private RenderedQr draw(String ips, Format format) throws WriterException, IOException {
+        Map<EncodeHintType, Object> hints = Map.of(
+                EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name(),
+                EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M,
+                EncodeHintType.MARGIN, 4);
+        // Dimenzije 0 -> matrica sa jednim pikselom po modulu, skaliramo sami
+        BitMatrix matrix = new QRCodeWriter().encode(ips, BarcodeFormat.QR_CODE, 0, 0, hints);
+
+        byte[] bytes = format == Format.SVG ? toSvg(matrix) : toPng(matrix);
+        return new RenderedQr(bytes, etagOf(bytes), format);
+    }
+
+    private byte[] toPng(BitMatrix matrix) throws IOException {
+        int size = matrix.getWidth() * modulePixels;
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_BYTE_BINARY);
+        int white = 0xFFFFFF;
+        int black = 0x000000;
+        for (int y = 0; y < size; y++) {
+            int my = y / modulePixels;
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, matrix.get(x / modulePixels, my) ? black : white);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] toSvg(BitMatrix matrix) {
+        int size = matrix.getWidth();
+        StringBuilder svg = new StringBuilder(size * size * 4);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"0 0 ").append(size).append(' ').append(size)
+                .append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
+        for (int y = 0; y < size; y++) {
+            int x = 0;
+            while (x < size) {
+                if (!matrix.get(x, y)) {
+                    x++;
+                    continue;
+                }
+                // Uzastopni tamni moduli u redu -> jedan pravougaonik
+                int run = x;
+                while (run < size && matrix.get(run, y)) run++;
+                svg.append('M').append(x).append(' ').append(y).append('h').append(run - x).append("v1h-").append(run - x).append('z');
+                x = run;
+            }
+        }
+        svg.append("\"/></svg>");
+        return svg.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String etagOf(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderPool.shutdownNow();
+    }
+}
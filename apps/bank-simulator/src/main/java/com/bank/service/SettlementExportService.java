@@ -0,0 +1,315 @@
+package com.bank.service;
+
+import com.bank.dto.SettlementRowDTO;
+import com.bank.repository.TransactionRepository;
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Dnevni settlement fajl: sve SUCCESS transakcije dana, grupisane po prodavcu.
+ *
+ * Format (ASCII, polja odvojena sa '|'):
+ * <pre>
+ * H|2026-01-31|v1
+ * M|prodavac123
+ * D|paymentId|pspTransactionId|pozivNaBroj|stan|iznos|valuta|vreme
+ * T|prodavac123|brojTransakcija|ukupno
+ * E|ukupnoTransakcija|ukupanIznos|brojProdavaca
+ * </pre>
+ *
+ * Izvoz čita bazu u keyset blokovima i piše kroz jedan bafer u FileChannel, pa memorija ne zavisi
+ * od broja transakcija. Posle svakog bloka fajl se sinhronizuje na disk i upisuje checkpoint
+ * (pozicija u fajlu, keyset kursor, zbirovi); prekinut izvoz nastavlja od poslednjeg checkpoint-a.
+ * Gotov fajl se atomski preimenuje iz .part, pa download nikad ne vidi polovičan fajl.
+ *
+ * Dan se bira po vremenu kreiranja transakcije, a plaćanje sme da stigne do ttl-minutes posle
+ * kreiranja (plus odgovor banke izdavaoca preko PCC-a). Zato se dan izvozi tek kada i taj rok
+ * prođe - fajl se posle ne generiše ponovo, pa bi kasno plaćena transakcija ostala van svakog fajla.
+ */
+@Service
+public class SettlementExportService {
+
+    private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final TransactionRepository transactionRepository;
+    private final AuditLogger auditLogger;
+    private final Set<LocalDate> running = ConcurrentHashMap.newKeySet();
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "settlement-export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${bank.settlement.dir:settlement}")
+    private String settlementDir;
+
+    @Value("${bank.settlement.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${bank.settlement.buffer-bytes:65536}")
+    private int bufferBytes;
+
+    @Value("${bank.expiry.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    // Rezerva posle isteka linka: PCC autorizacija započeta u poslednjem trenutku i sweeper AUTHORIZING stanja
+    @Value("${bank.settlement.close-grace-minutes:5}")
+    private long closeGraceMinutes;
+
+    // Koliko dana unazad raspored traži neizvezene dane (npr. posle ispada banke preko ponoći)
+    @Value("${bank.settlement.lookback-days:7}")
+    private int lookbackDays;
+
+    public SettlementExportService(TransactionRepository transactionRepository, AuditLogger auditLogger) {
+        this.transactionRepository = transactionRepository;
+        this.auditLogger = auditLogger;
+    }
+
+    /**
+     * Izvozi svaki zatvoren dan (ponoć + ttl-minutes + close-grace-minutes) od poslednjeg izvezenog
+     * fajla do juče, najviše lookback-days unazad, od najstarijeg ka najnovijem. Dan propušten zbog
+     * ispada banke tako se izvozi pri prvoj sledećoj proveri; prekinut izvoz se nastavlja.
+     */
+    @Scheduled(initialDelayString = "${bank.settlement.initial-delay-ms:60000}",
+            fixedDelayString = "${bank.settlement.check-ms:3600000}")
+    public void exportClosedDays() {
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(1);
+        while (from.isAfter(today.minusDays(lookbackDays)) && !Files.exists(fileFor(from.minusDays(1)))) {
+            from = from.minusDays(1);
+        }
+
+        for (LocalDate day = from; day.isBefore(today); day = day.plusDays(1)) {
+            if (Files.exists(fileFor(day)) || !isClosed(day)) continue;
+            try {
+                export(day);
+            } catch (IOException | RuntimeException e) {
+                auditLogger.logEvent("SETTLEMENT_EXPORT_ERROR", "ERROR", day + " | " + e.getMessage());
+            }
+        }
+    }
+
+    /** Pokreće izvoz u pozadini (za ručno pokretanje preko API-ja). */
+    public CompletableFuture<Path> exportAsync(LocalDate day) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return export(day);
+            } catch (IOException e) {
+                throw new RuntimeException("Greška pri izvozu settlement fajla: " + e.getMessage(), e);
+            }
+        }, exportExecutor);
+    }
+
+    public Path fileFor(LocalDate day) {
+        return Path.of(settlementDir).resolve("settlement-" + FILE_DATE.format(day) + ".txt");
+    }
+
+    /** Da li su sve transakcije kreirane tog dana već ili plaćene ili istekle. */
+    public boolean isClosed(LocalDate day) {
+        LocalDateTime closesAt = day.plusDays(1).atStartOfDay().plusMinutes(ttlMinutes + closeGraceMinutes);
+        return !LocalDateTime.now().isBefore(closesAt);
+    }
+
+    public Path export(LocalDate day) throws IOException {
+        Path target = fileFor(day);
+        if (Files.exists(target)) return target;
+        if (!isClosed(day)) {
+            throw new RuntimeException("Dan " + day + " još nije zatvoren - plaćanja kreirana tog dana još mogu da stignu!");
+        }
+        if (!running.add(day)) {
+            throw new RuntimeException("Izvoz za " + day + " je već u toku!");
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path part = target.resolveSibling(target.getFileName() + ".part");
+            Path checkpointFile = target.resolveSibling(target.getFileName() + ".ckpt");
+
+            Checkpoint cp = Files.exists(part) ? Checkpoint.load(checkpointFile) : new Checkpoint();
+            if (cp.offset > 0) {
+                auditLogger.logEvent("SETTLEMENT_EXPORT", "RESUMED", day + " | Records: " + cp.records);
+            }
+
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Sve posle poslednjeg checkpoint-a je možda polovično - odbacuje se
+                channel.truncate(cp.offset);
+                channel.position(cp.offset);
+                LineWriter out = new LineWriter(channel, bufferBytes);
+
+                if (cp.offset == 0) {
+                    out.field("H").field(day.toString()).field("v1").endLine();
+                }
+
+                while (true) {
+                    List<SettlementRowDTO> rows = transactionRepository.findSettlementChunk(
+                            day.atStartOfDay(), day.plusDays(1).atStartOfDay(), cp.merchantDbId, cp.lastId,
+                            PageRequest.of(0, chunkSize));
+
+                    for (SettlementRowDTO row : rows) {
+                        if (!row.getMerchantDbId().equals(cp.merchantDbId)) {
+                            if (cp.merchantId != null) writeMerchantTrailer(out, cp);
+                            cp.merchantDbId = row.getMerchantDbId();
+                            cp.merchantId = row.getMerchantId();
+                            cp.merchants++;
+                            cp.merchantRecords = 0;
+                            cp.merchantTotal = BigDecimal.ZERO;
+                            out.field("M").field(row.getMerchantId()).endLine();
+                        }
+                        BigDecimal amount = row.getAmount().setScale(2, RoundingMode.HALF_UP);
+                        out.field("D").field(row.getPaymentId()).field(row.getPspTransactionId())
+                                .field(row.getPaymentReference()).field(row.getStan())
+                                .field(amount.toPlainString()).field(row.getCurrency())
+                                .field(row.getTimestamp().toString()).endLine();
+                        cp.lastId = row.getId();
+                        cp.records++;
+                        cp.merchantRecords++;
+                        cp.total = cp.total.add(amount);
+                        cp.merchantTotal = cp.merchantTotal.add(amount);
+                    }
+
+                    out.flush();
+                    channel.force(false);
+                    cp.offset = channel.position();
+                    cp.save(checkpointFile);
+
+                    if (rows.size() < chunkSize) break;
+                }
+
+                if (cp.merchantId != null) writeMerchantTrailer(out, cp);
+                out.field("E").field(Long.toString(cp.records)).field(cp.total.toPlainString())
+                        .field(Long.toString(cp.merchants)).endLine();
+                out.flush();
+                channel.force(true);
+            }
+
+            Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(checkpointFile);
+            auditLogger.logEvent("SETTLEMENT_EXPORT", "SUCCESS",
+                    day + " | Records: " + cp.records + " | Merchants: " + cp.merchants + " | Total: " + cp.total.toPlainString());
+            return target;
+        } finally {
+            running.remove(day);
+        }
+    }
+
+    private static void writeMerchantTrailer(LineWriter out, Checkpoint cp) throws IOException {
+        out.field("T").field(cp.merchantId).field(Long.toString(cp.merchantRecords))
+                .field(cp.merchantTotal.toPlainString()).endLine();
+    }
+
+    /** Stanje izvoza posle poslednjeg sinhronizovanog bloka. */
+    private static final class Checkpoint {
+        long offset;
+        Long merchantDbId = 0L;
+        String merchantId;
+        Long lastId = 0L;
+        long records;
+        long merchants;
+        long merchantRecords;
+        BigDecimal total = BigDecimal.ZERO;
+        BigDecimal merchantTotal = BigDecimal.ZERO;
+
+        static Checkpoint load(Path file) throws IOException {
+            Checkpoint cp = new Checkpoint();
+            if (!Files.exists(file)) return cp; // .part bez checkpoint-a - kreće se od početka
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(file)) {
+                p.load(in);
+            }
+            cp.offset = Long.parseLong(p.getProperty("offset"));
+            cp.merchantDbId = Long.parseLong(p.getProperty("merchantDbId"));
+            cp.merchantId = p.getProperty("merchantId");
+            cp.lastId = Long.parseLong(p.getProperty("lastId"));
+            cp.records = Long.parseLong(p.getProperty("records"));
+            cp.merchants = Long.parseLong(p.getProperty("merchants"));
+            cp.merchantRecords = Long.parseLong(p.getProperty("merchantRecords"));
+            cp.total = new BigDecimal(p.getProperty("total"));
+            cp.merchantTotal = new BigDecimal(p.getProperty("merchantTotal"));
+            return cp;
+        }
+
+        void save(Path file) throws IOException {
+            Properties p = new Properties();
+            p.setProperty("offset", Long.toString(offset));
+            p.setProperty("merchantDbId", Long.toString(merchantDbId));
+            if (merchantId != null) p.setProperty("merchantId", merchantId);
+            p.setProperty("lastId", Long.toString(lastId));
+            p.setProperty("records", Long.toString(records));
+            p.setProperty("merchants", Long.toString(merchants));
+            p.setProperty("merchantRecords", Long.toString(merchantRecords));
+            p.setProperty("total", total.toPlainString());
+            p.setProperty("merchantTotal", merchantTotal.toPlainString());
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                p.store(out, null);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Piše ASCII polja direktno u jedan ponovo korišćen bafer; '|' i znakovi van ASCII postaju '?'. */
+    private static final class LineWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private boolean firstField = true;
+
+        LineWriter(FileChannel channel, int capacity) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(capacity);
+        }
+
+        LineWriter field(String value) throws IOException {
+            if (!firstField) put('|');
+            firstField = false;
+            if (value == null) return this;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                put(c < 0x20 || c > 0x7e || c == '|' ? '?' : c);
+            }
+            return this;
+        }
+
+        void endLine() throws IOException {
+            put('\n');
+            firstField = true;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void put(char c) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put((byte) c);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.bank.service;
+
+import com.bank.dto.StatementEntryDTO;
+import com.bank.dto.StatementPageDTO;
+import com.bank.model.Account;
+import com.bank.model.JournalEntry;
+import com.bank.repository.AccountRepository;
+import com.bank.repository.JournalEntryRepository;
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Izvod računa iz žurnala: stavke od najnovije ka starijim, sa stanjem posle svake stavke.
+ *
+ * Straničenje je keyset po (account_id, id) - svaka strana je jedan opseg indeksa bez OFFSET-a,
+ * pa je stotina strana unazad brza kao prva. Stanje se po strani računa jednim upitom, za njenu
+ * najnoviju stavku, a dalje unazad oduzimanjem iznosa. Kursor nosi samo id - stanje koje klijent
+ * vrati nikad se ne prikazuje, pa izmenjen ili zastareo kursor ne može da pokaže pogrešno stanje.
+ * Nove stavke imaju veći id i ne pomeraju već izračunate strane.
+ */
+@Service
+public class StatementService {
+
+    private static final int MAX_PAGE = 200;
+
+    private final AccountRepository accountRepository;
+    private final JournalEntryRepository journalEntryRepository;
+    private final LedgerService ledgerService;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.statement.page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${bank.statement.export-chunk:1000}")
+    private int exportChunk;
+
+    public StatementService(AccountRepository accountRepository, JournalEntryRepository journalEntryRepository,
+                            LedgerService ledgerService, AuditLogger auditLogger) {
+        this.accountRepository = accountRepository;
+        this.journalEntryRepository = journalEntryRepository;
+        this.ledgerService = ledgerService;
+        this.auditLogger = auditLogger;
+    }
+
+    /** mBanking prijava - ista provera kao za QR plaćanje. */
+    public Account authenticate(String email, String pin) {
+        Account account = accountRepository.findByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Korisnik ne postoji!"));
+        if (account.getPin() == null || !account.getPin().equals(pin)) {
+            auditLogger.logSecurityAlert("STATEMENT_PIN_INVALID", "User: " + email);
+            throw new RuntimeException("Pogrešan PIN!");
+        }
+        return account;
+    }
+
+    @Transactional(readOnly = true)
+    public StatementPageDTO page(Account account, String cursor, Integer limit) {
+        int size = limit == null || limit <= 0 ? defaultPageSize : Math.min(limit, MAX_PAGE);
+        Cursor position = Cursor.decode(cursor);
+
+        List<StatementEntryDTO> rows = new ArrayList<>(journalEntryRepository.findStatementPage(
+                account.getId(), position.beforeId(), PageRequest.of(0, size + 1)));
+        boolean more = rows.size() > size;
+        if (more) rows.remove(size);
+
+        BigDecimal balance = null;
+        if (!rows.isEmpty()) {
+            balance = journalEntryRepository.findBalanceAfter(account.getId(), rows.get(0).getId());
+        }
+        for (StatementEntryDTO row : rows) {
+            row.setBalanceAfter(balance);
+            balance = balance.subtract(row.getAmount());
+        }
+        fillCounterparties(account.getId(), rows);
+
+        String next = more ? new Cursor(rows.get(rows.size() - 1).getId()).encode() : null;
+        return new StatementPageDTO(account.getAccountNumber(), account.getOwnerName(),
+                ledgerService.balanceOf(account.getId()), ledgerService.availableBalanceOf(account.getId()),
+                rows, next);
+    }
+
+    /**
+     * Ceo izvod kao CSV, blok po blok direktno u izlaz - memorija ne zavisi od dužine istorije.
+     * Svaki blok je poseban kratak upit, pa dug download ne drži otvorenu transakciju.
+     */
+    public long writeCsv(Account account, Writer out) throws IOException {
+        out.write("id,datum,iznos,stanje,referenca,racun_druge_strane,druga_strana\n");
+
+        long beforeId = Long.MAX_VALUE;
+        BigDecimal balance = null;
+        long written = 0;
+        while (true) {
+            List<StatementEntryDTO> rows = journalEntryRepository.findStatementPage(
+                    account.getId(), beforeId, PageRequest.of(0, exportChunk));
+            if (rows.isEmpty()) break;
+            if (balance == null) {
+                balance = journalEntryRepository.findBalanceAfter(account.getId(), rows.get(0).getId());
+            }
+            fillCounterparties(account.getId(), rows);
+
+            for (StatementEntryDTO row : rows) {
+                out.write(Long.toString(row.getId()));
+                out.write(',');
+                out.write(row.getCreatedAt().toString());
+                out.write(',');
+                out.write(row.getAmount().toPlainString());
+                out.write(',');
+                out.write(balance.toPlainString());
+                out.write(',');
+                out.write(csv(row.getReference()));
+                out.write(',');
+                out.write(csv(row.getCounterpartyAccount()));
+                out.write(',');
+                out.write(csv(row.getCounterpartyName()));
+                out.write('\n');
+                balance = balance.subtract(row.getAmount());
+                beforeId = row.getId();
+            }
+            out.flush();
+            written += rows.size();
+            if (rows.size() < exportChunk) break;
+        }
+
+        auditLogger.logEvent("STATEMENT_EXPORT", "SUCCESS", "Account: " + account.getAccountNumber() + " | Entries: " + written);
+        return written;
+    }
+
+    // Druga strana svakog prenosa sa strane - dva upita po strani, ne po stavci
+    private void fillCounterparties(Long accountId, List<StatementEntryDTO> rows) {
+        if (rows.isEmpty()) return;
+        Set<String> transferIds = new HashSet<>(rows.size() * 2);
+        for (StatementEntryDTO row : rows) {
+            transferIds.add(row.getTransferId());
+        }
+
+        Map<String, Long> counterpartAccount = new HashMap<>();
+        for (JournalEntry other : journalEntryRepository.findCounterparts(transferIds, accountId)) {
+            counterpartAccount.put(other.getTransferId(), other.getAccountId());
+        }
+        Map<Long, Account> accounts = new HashMap<>();
+        for (Account a : accountRepository.findAllById(new HashSet<>(counterpartAccount.values()))) {
+            accounts.put(a.getId(), a);
+        }
+
+        for (StatementEntryDTO row : rows) {
+            Account other = accounts.get(counterpartAccount.get(row.getTransferId()));
+            if (other != null) {
+                row.setCounterpartyAccount(other.getAccountNumber());
+                row.setCounterpartyName(other.getOwnerName());
+            }
+        }
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** Pozicija u izvodu: id poslednje prikazane stavke. */
+    private record Cursor(long beforeId) {
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) return new Cursor(Long.MAX_VALUE);
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                return new Cursor(Long.parseLong(raw));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Neispravan kursor izvoda!");
+            }
+        }
+
+        String encode() {
+            String raw = Long.toString(beforeId);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bank.service;
+
+import com.bank.model.Transaction;
+import com.bank.repository.TransactionRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Istek jednog bloka napuštenih transakcija. Svaki blok je zasebna, kratka transakcija:
+ * redovi se zaključavaju istim lock-om kao u processPayment, pa plaćanje koje je upravo u toku
+ * ili završi pre isteka ili ga sweeper ne dira.
+ */
+@Service
+public class TransactionExpiryService {
+
+    private final TransactionRepository transactionRepository;
+    private final PspCallbackDispatcher callbackDispatcher;
+
+    public TransactionExpiryService(TransactionRepository transactionRepository, PspCallbackDispatcher callbackDispatcher) {
+        this.transactionRepository = transactionRepository;
+        this.callbackDispatcher = callbackDispatcher;
+    }
+
+    /** Rezultat jednog bloka: poslednji obrađeni id (keyset kursor) i broj isteklih transakcija. */
+    public record Chunk(Long lastId, int expired) {
+    }
+
+    @Transactional
+    public Chunk expireChunk(Long afterId, LocalDateTime deadline, int limit, boolean notifyPsp) {
+        List<Transaction> stale = transactionRepository.findExpirableForUpdate(afterId, deadline, PageRequest.of(0, limit));
+        if (stale.isEmpty()) return new Chunk(afterId, 0);
+
+        List<Long> ids = new ArrayList<>(stale.size());
+        for (Transaction tx : stale) {
+            ids.add(tx.getId());
+        }
+        int expired = transactionRepository.markExpired(ids);
+
+        if (notifyPsp) {
+            for (Transaction tx : stale) {
+                if (tx.getCallbackUrl() != null) {
+                    // Isporuku preuzima zakazani prolaz dispatcher-a, u njegovom tempu
+                    callbackDispatcher.enqueue(tx, "FAILED", false);
+                }
+            }
+        }
+        return new Chunk(ids.get(ids.size() - 1), expired);
+    }
+
+    /**
+     * PCC autorizacije koje su u AUTHORIZING duže od deadline-a prelaze u FAILED. Lock je isti kao
+     * u completeForeignPayment, pa odgovor izdavaoca koji stigne baš sada ili proknjiži pre ovoga
+     * ili vidi FAILED i sam traži storno.
+     *
+     * @return transakcije prebačene u FAILED - pozivalac traži storno kod njihovih izdavalaca
+     */
+    @Transactional
+    public List<Transaction> failStaleAuthorizations(LocalDateTime deadline, int limit, boolean notifyPsp) {
+        List<Transaction> stale = transactionRepository.findStaleAuthorizingForUpdate(deadline, PageRequest.of(0, limit));
+        if (stale.isEmpty()) return stale;
+
+        List<Long> ids = new ArrayList<>(stale.size());
+        for (Transaction tx : stale) {
+            ids.add(tx.getId());
+        }
+        transactionRepository.markAuthorizingExpired(ids);
+
+        if (notifyPsp) {
+            for (Transaction tx : stale) {
+                if (tx.getCallbackUrl() != null) {
+                    callbackDispatcher.enqueue(tx, "FAILED", false);
+                }
+            }
+        }
+        return stale;
+    }
+}
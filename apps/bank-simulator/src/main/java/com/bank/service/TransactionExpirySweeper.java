@@ -0,0 +1,140 @@
+package com.bank.service;
+
+import com.bank.model.Transaction;
+import com.bank.repository.TransactionRepository;
+import com.bank.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodično prebacuje napuštene CREATED transakcije (link za plaćanje stariji od ttl-minutes)
+ * u FAILED. Ide keyset-om po id-ju u blokovima od chunk-size, svaki blok jednim UPDATE-om, tako da
+ * ni veliki zaostatak ne drži dugačke lock-ove. Po potrebi javlja PSP-u FAILED kroz callback outbox.
+ *
+ * Isto radi i za PCC plaćanja zaglavljena u AUTHORIZING (proces je pao dok je čekao izdavaoca):
+ * posle authorizing-timeout-ms prelaze u FAILED, a izdavaocu se šalje storno rezervacije.
+ */
+@Component
+public class TransactionExpirySweeper {
+
+    private final TransactionExpiryService expiryService;
+    private final TransactionRepository transactionRepository;
+    private final PccAcquirerService pccAcquirerService;
+    private final AuditLogger auditLogger;
+
+    @Value("${bank.expiry.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${bank.expiry.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${bank.expiry.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    @Value("${bank.expiry.notify-psp:true}")
+    private boolean notifyPsp;
+
+    // Mora biti duže od bank.pcc.timeout-ms, da sweeper ne preseče odgovor koji još može da stigne
+    @Value("${bank.pcc.authorizing-timeout-ms:30000}")
+    private long authorizingTimeoutMillis;
+
+    private final AtomicLong totalExpired = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private volatile int lastRunExpired;
+    private volatile long lastRunMillis;
+    private volatile LocalDateTime lastRunAt;
+
+    public TransactionExpirySweeper(TransactionExpiryService expiryService,
+                                    TransactionRepository transactionRepository,
+                                    PccAcquirerService pccAcquirerService,
+                                    AuditLogger auditLogger) {
+        this.expiryService = expiryService;
+        this.transactionRepository = transactionRepository;
+        this.pccAcquirerService = pccAcquirerService;
+        this.auditLogger = auditLogger;
+    }
+
+    @Scheduled(fixedDelayString = "${bank.expiry.sweep-ms:60000}")
+    public void sweep() {
+        long started = System.nanoTime();
+        LocalDateTime deadline = LocalDateTime.now().minusMinutes(ttlMinutes);
+        Long cursor = 0L;
+        int expired = 0;
+        try {
+            for (int i = 0; i < maxChunksPerRun; i++) {
+                TransactionExpiryService.Chunk chunk = expiryService.expireChunk(cursor, deadline, chunkSize, notifyPsp);
+                expired += chunk.expired();
+                if (chunk.lastId().equals(cursor)) break;
+                cursor = chunk.lastId();
+            }
+        } catch (RuntimeException e) {
+            auditLogger.logEvent("BANK_TX_EXPIRY_ERROR", "ERROR", "Cursor: " + cursor + " | " + e.getMessage());
+        }
+
+        totalExpired.addAndGet(expired);
+        runs.incrementAndGet();
+        lastRunExpired = expired;
+        lastRunMillis = (System.nanoTime() - started) / 1_000_000;
+        lastRunAt = LocalDateTime.now();
+        if (expired > 0) {
+            auditLogger.logEvent("BANK_TX_EXPIRY", "SUCCESS", "Expired: " + expired + " | Took: " + lastRunMillis + "ms");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bank.expiry.sweep-ms:60000}")
+    public void sweepAuthorizing() {
+        LocalDateTime deadline = LocalDateTime.now().minus(Duration.ofMillis(authorizingTimeoutMillis));
+        int failed = 0;
+        try {
+            for (int i = 0; i < maxChunksPerRun; i++) {
+                List<Transaction> stale = expiryService.failStaleAuthorizations(deadline, chunkSize, notifyPsp);
+                if (stale.isEmpty()) break;
+                // Storno ide tek posle commit-a FAILED stanja - kasni odgovor izdavaoca više ne može da proknjiži
+                for (Transaction tx : stale) {
+                    if (tx.getPccIssuerUrl() != null) {
+                        pccAcquirerService.reverse(tx.getPccIssuerUrl(), tx.getPaymentId());
+                    } else {
+                        auditLogger.logSecurityAlert("PCC_REVERSAL_SKIPPED", "PaymentID: " + tx.getPaymentId() + " | Nepoznat izdavalac");
+                    }
+                }
+                failed += stale.size();
+            }
+        } catch (RuntimeException e) {
+            auditLogger.logEvent("PCC_AUTHORIZING_EXPIRY_ERROR", "ERROR", e.getMessage());
+        }
+        if (failed > 0) {
+            auditLogger.logEvent("PCC_AUTHORIZING_EXPIRY", "SUCCESS", "Failed: " + failed);
+        }
+    }
+
+    /**
+     * Brojači sweeper-a i trenutni zaostatak. lagSeconds je koliko je najstarija neplaćena
+     * transakcija prekoračila rok (0 ako nijedna nije).
+     */
+    public Map<String, Object> stats() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestPending = transactionRepository.findOldestPendingTimestamp();
+        long lagSeconds = 0;
+        if (oldestPending != null) {
+            lagSeconds = Math.max(0, Duration.between(oldestPending.plusMinutes(ttlMinutes), now).getSeconds());
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalExpired", totalExpired.get());
+        stats.put("runs", runs.get());
+        stats.put("lastRunExpired", lastRunExpired);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("lastRunAt", lastRunAt != null ? lastRunAt.toString() : null);
+        stats.put("backlog", transactionRepository.countExpirable(now.minusMinutes(ttlMinutes)));
+        stats.put("lagSeconds", lagSeconds);
+        return stats;
+    }
+}
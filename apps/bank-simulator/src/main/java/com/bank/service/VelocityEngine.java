@@ -0,0 +1,109 @@
+package com.bank.service;
+
+import com.bank.tools.AuditLogger;
+import com.bank.tools.KeyedHash;
+import com.bank.tools.SlidingWindowLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Velocity pravila na kartičnom putu, potpuno u memoriji.
+ *
+ * {@link #checkCard} se poziva pre bilo kakvog rada sa bazom i broji pokušaje po kartici
+ * (PAN se ne čuva, samo njegov 64-bitni HMAC otisak sa ključem ovog procesa, {@link KeyedHash}); {@link #checkPayment} se poziva kada su račun
+ * kupca, prodavac i iznos već učitani i proverava broj i zbir plaćanja po računu i po prodavcu.
+ * Broje se pokušaji, ne samo uspešna plaćanja - niz odbijenih pokušaja je upravo ono što
+ * treba da se zaustavi. Limit 0 znači bez ograničenja.
+ */
+@Component
+public class VelocityEngine {
+
+    private final AuditLogger auditLogger;
+    private final boolean enabled;
+    private final SlidingWindowLimiter cardLimiter;
+    private final SlidingWindowLimiter accountLimiter;
+    private final SlidingWindowLimiter merchantLimiter;
+    private final KeyedHash panHash = new KeyedHash();
+
+    private final AtomicLong cardRejections = new AtomicLong();
+    private final AtomicLong accountRejections = new AtomicLong();
+    private final AtomicLong merchantRejections = new AtomicLong();
+
+    public VelocityEngine(AuditLogger auditLogger,
+                          @Value("${bank.velocity.enabled:true}") boolean enabled,
+                          @Value("${bank.velocity.buckets:12}") int buckets,
+                          @Value("${bank.velocity.max-keys:200000}") int maxKeys,
+                          @Value("${bank.velocity.stripes:64}") int stripes,
+                          @Value("${bank.velocity.card.window-seconds:600}") long cardWindowSeconds,
+                          @Value("${bank.velocity.card.max-attempts:10}") long cardMaxAttempts,
+                          @Value("${bank.velocity.account.window-seconds:3600}") long accountWindowSeconds,
+                          @Value("${bank.velocity.account.max-count:30}") long accountMaxCount,
+                          @Value("${bank.velocity.account.max-amount:1000000}") BigDecimal accountMaxAmount,
+                          @Value("${bank.velocity.merchant.window-seconds:60}") long merchantWindowSeconds,
+                          @Value("${bank.velocity.merchant.max-count:0}") long merchantMaxCount,
+                          @Value("${bank.velocity.merchant.max-amount:0}") BigDecimal merchantMaxAmount) {
+        this.auditLogger = auditLogger;
+        this.enabled = enabled;
+        this.cardLimiter = new SlidingWindowLimiter(Duration.ofSeconds(cardWindowSeconds), buckets,
+                cardMaxAttempts, 0, maxKeys, stripes);
+        this.accountLimiter = new SlidingWindowLimiter(Duration.ofSeconds(accountWindowSeconds), buckets,
+                accountMaxCount, minorUnits(accountMaxAmount), maxKeys, stripes);
+        this.merchantLimiter = new SlidingWindowLimiter(Duration.ofSeconds(merchantWindowSeconds), buckets,
+                merchantMaxCount, minorUnits(merchantMaxAmount), maxKeys, stripes);
+    }
+
+    /** Broj pokušaja po kartici; baca RuntimeException kada je limit prekoračen. */
+    public void checkCard(String pan) {
+        if (!enabled || pan == null) return;
+        if (!cardLimiter.tryAcquire(panKey(pan), 0, System.currentTimeMillis())) {
+            cardRejections.incrementAndGet();
+            auditLogger.logSecurityAlert("VELOCITY_CARD_LIMIT", "PAN: ****" + pan.substring(Math.max(0, pan.length() - 4)));
+            throw new RuntimeException("Previše pokušaja plaćanja ovom karticom. Pokušajte kasnije.");
+        }
+    }
+
+    /** Broj i zbir plaćanja po računu kupca (ako je poznat) i po prodavcu. */
+    public void checkPayment(Long accountId, Long merchantId, BigDecimal amount) {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        long minor = minorUnits(amount);
+
+        if (accountId != null && !accountLimiter.tryAcquire(accountId, minor, now)) {
+            accountRejections.incrementAndGet();
+            auditLogger.logSecurityAlert("VELOCITY_ACCOUNT_LIMIT", "AccountID: " + accountId);
+            throw new RuntimeException("Prekoračen limit plaćanja za račun. Pokušajte kasnije.");
+        }
+        if (merchantId != null && !merchantLimiter.tryAcquire(merchantId, minor, now)) {
+            merchantRejections.incrementAndGet();
+            auditLogger.logSecurityAlert("VELOCITY_MERCHANT_LIMIT", "MerchantID: " + merchantId);
+            throw new RuntimeException("Prodavac je privremeno prekoračio limit plaćanja.");
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("trackedCards", cardLimiter.size());
+        stats.put("trackedAccounts", accountLimiter.size());
+        stats.put("trackedMerchants", merchantLimiter.size());
+        stats.put("cardRejections", cardRejections.get());
+        stats.put("accountRejections", accountRejections.get());
+        stats.put("merchantRejections", merchantRejections.get());
+        return stats;
+    }
+
+    private long panKey(String pan) {
+        return panHash.hash(pan);
+    }
+
+    private static long minorUnits(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
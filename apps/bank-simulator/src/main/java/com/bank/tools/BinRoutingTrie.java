@@ -0,0 +1,110 @@
+package com.bank.tools;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Nepromenljivi prefiksni trie BIN opsega (cifre 0-9) za rutiranje kartica ka banci izdavaocu.
+ *
+ * Čvorovi su u jednom int nizu (10 potomaka po čvoru), a odredišta u nizu stringova, pa
+ * pretraga PAN-a ide najviše 16 koraka bez alokacije i bez lock-a. Izmena tabele pravi novi
+ * trie koji se atomski zameni ({@link com.bank.service.PccRoutingTable}).
+ */
+public final class BinRoutingTrie {
+
+    private static final int RADIX = 10;
+    private static final int NONE = -1;
+
+    private static final BinRoutingTrie EMPTY = new BinRoutingTrie(new int[RADIX], new int[]{NONE}, new String[0], 0);
+
+    private final int[] children;   // children[node * 10 + digit] = indeks potomka, 0 = nema
+    private final int[] targetIndex; // targetIndex[node] = indeks u targets ili NONE
+    private final String[] targets;
+    private final int routes;
+
+    private BinRoutingTrie(int[] children, int[] targetIndex, String[] targets, int routes) {
+        this.children = children;
+        this.targetIndex = targetIndex;
+        this.targets = targets;
+        this.routes = routes;
+    }
+
+    public static BinRoutingTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Gradi trie iz mape prefiks -> odredište (npr. "4999" -> "https://banka2:8092").
+     * Prefiks mora imati 1-16 cifara; isto odredište se čuva samo jednom.
+     */
+    public static BinRoutingTrie build(Map<String, String> prefixToTarget) {
+        if (prefixToTarget.isEmpty()) return EMPTY;
+
+        int[] children = new int[RADIX * 64];
+        int[] targetIndex = new int[64];
+        Arrays.fill(targetIndex, NONE);
+        String[] targets = new String[8];
+        int nodes = 1;
+        int distinctTargets = 0;
+
+        for (Map.Entry<String, String> route : prefixToTarget.entrySet()) {
+            String prefix = route.getKey();
+            if (prefix == null || prefix.isEmpty() || prefix.length() > 16) {
+                throw new IllegalArgumentException("Neispravan BIN prefiks: " + prefix);
+            }
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                int digit = prefix.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new IllegalArgumentException("Neispravan BIN prefiks: " + prefix);
+                }
+                int slot = node * RADIX + digit;
+                if (children[slot] == 0) {
+                    if (nodes == targetIndex.length) {
+                        targetIndex = Arrays.copyOf(targetIndex, nodes * 2);
+                        Arrays.fill(targetIndex, nodes, nodes * 2, NONE);
+                        children = Arrays.copyOf(children, nodes * 2 * RADIX);
+                    }
+                    children[slot] = nodes++;
+                }
+                node = children[slot];
+            }
+
+            String target = route.getValue();
+            int index = NONE;
+            for (int t = 0; t < distinctTargets; t++) {
+                if (targets[t].equals(target)) {
+                    index = t;
+                    break;
+                }
+            }
+            if (index == NONE) {
+                if (distinctTargets == targets.length) targets = Arrays.copyOf(targets, distinctTargets * 2);
+                targets[distinctTargets] = target;
+                index = distinctTargets++;
+            }
+            targetIndex[node] = index;
+        }
+
+        return new BinRoutingTrie(Arrays.copyOf(children, nodes * RADIX), Arrays.copyOf(targetIndex, nodes),
+                Arrays.copyOf(targets, distinctTargets), prefixToTarget.size());
+    }
+
+    /** Odredište najdužeg prefiksa koji se poklapa sa PAN-om, ili null. */
+    public String lookup(CharSequence pan) {
+        String match = null;
+        int node = 0;
+        for (int i = 0; i < pan.length(); i++) {
+            int digit = pan.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return null;
+            node = children[node * RADIX + digit];
+            if (node == 0) break;
+            if (targetIndex[node] != NONE) match = targets[targetIndex[node]];
+        }
+        return match;
+    }
+
+    public int size() {
+        return routes;
+    }
+}
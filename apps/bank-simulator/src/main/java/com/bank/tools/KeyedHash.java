@@ -0,0 +1,54 @@
+package com.bank.tools;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * 64-bitni otisak osetljivih podataka (PAN, CVV) za ključeve u memoriji: HMAC-SHA256 sa
+ * nasumičnim ključem koji postoji samo u ovoj instanci i nikad ne napušta proces. Bez ključa
+ * se otisak ne može vratiti u PAN ni pregledom svih brojeva iz jednog BIN opsega, za razliku
+ * od običnog heša.
+ */
+public final class KeyedHash {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte SEPARATOR = 0x1f;
+
+    private final SecretKeySpec key;
+    // Mac nije thread-safe - svaka nit ima svoju, već inicijalizovanu instancu
+    private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(this::newMac);
+
+    public KeyedHash() {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+    }
+
+    /** Otisak niza polja; null se tretira kao prazno polje, a polja su razdvojena separatorom. */
+    public long hash(String... fields) {
+        Mac m = mac.get();
+        for (String field : fields) {
+            if (field != null) m.update(field.getBytes(StandardCharsets.UTF_8));
+            m.update(SEPARATOR);
+        }
+        byte[] digest = m.doFinal();
+        long result = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            result = (result << 8) | (digest[i] & 0xff);
+        }
+        return result;
+    }
+
+    private Mac newMac() {
+        try {
+            Mac m = Mac.getInstance(ALGORITHM);
+            m.init(key);
+            return m;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC nije dostupan", e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.bank.tools;
+
+/**
+ * Poziv na broj po modelu 97 (ISO 7064, MOD 97-10) za RO tag IPS QR koda.
+ * Format: "97" + dve kontrolne cifre + osnova (id transakcije), ukupno najviše 25 znakova.
+ */
+public final class PaymentReference {
+
+    private static final String MODEL = "97";
+
+    private PaymentReference() {
+    }
+
+    public static String forTransactionId(long transactionId) {
+        String base = Long.toString(transactionId);
+        int control = 98 - mod97(base + "00");
+        return MODEL + String.format("%02d", control) + base;
+    }
+
+    public static boolean isValid(String reference) {
+        if (reference == null || reference.length() < 5 || reference.length() > 25) return false;
+        if (!reference.startsWith(MODEL)) return false;
+        for (int i = 0; i < reference.length(); i++) {
+            if (!Character.isDigit(reference.charAt(i))) return false;
+        }
+        // osnova + kontrolne cifre mora dati ostatak 1
+        String control = reference.substring(2, 4);
+        String base = reference.substring(4);
+        return mod97(base + control) == 1;
+    }
+
+    private static int mod97(String digits) {
+        int rest = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            rest = (rest * 10 + (digits.charAt(i) - '0')) % 97;
+        }
+        return rest;
+    }
+}
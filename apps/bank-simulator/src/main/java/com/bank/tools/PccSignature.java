@@ -0,0 +1,55 @@
+package com.bank.tools;
+
+import com.bank.dto.IssuerAuthorizationRequestDTO;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * HMAC-SHA256 potpis zahteva između banaka preko PCC-a, sa zajedničkim tajnim ključem
+ * (bank.pcc.secret). Potpisuju se polja koja menjaju knjiženje i vreme slanja, pa se
+ * izmenjen iznos ili ponovljen stari zahtev odbijaju pre nego što stignu do žurnala.
+ */
+public final class PccSignature {
+
+    public static final String TIMESTAMP_HEADER = "X-PCC-Timestamp";
+    public static final String SIGNATURE_HEADER = "X-PCC-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private PccSignature() {
+    }
+
+    public static String authorizePayload(IssuerAuthorizationRequestDTO request, long timestamp) {
+        BigDecimal amount = request.getAmount();
+        // Skala iznosa se ne čuva kroz JSON isto na obe strane - potpisuje se normalizovan zapis
+        return "authorize|" + request.getAcquirerPaymentId() + "|" + request.getPan() + "|"
+                + (amount != null ? amount.stripTrailingZeros().toPlainString() : "") + "|"
+                + request.getCurrency() + "|" + timestamp;
+    }
+
+    public static String reversePayload(String acquirerPaymentId, long timestamp) {
+        return "reverse|" + acquirerPaymentId + "|" + timestamp;
+    }
+
+    public static String sign(String secret, String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Greška pri potpisivanju PCC zahteva", e);
+        }
+    }
+
+    public static boolean verify(String secret, String payload, String signature) {
+        if (secret == null || secret.isBlank() || signature == null) return false;
+        byte[] expected = sign(secret, payload).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, signature.toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,132 @@
+package com.bank.tools;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Klizni prozor broja i iznosa događaja po ključu, ograničen u memoriji.
+ *
+ * Prozor je podeljen na vremenske kante (npr. 60 s = 12 x 5 s); svaki ključ ima prsten kanti,
+ * a stara kanta se prepisuje čim njeno vreme prođe. Ključevi su raspoređeni u trake (stripe),
+ * svaka sa svojim lock-om i LRU ograničenjem, pa niti koje rade sa različitim karticama ne čekaju
+ * jedna drugu, a memorija ne raste preko maxKeys ključeva.
+ */
+public final class SlidingWindowLimiter {
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final long maxCount;
+    private final long maxAmount;
+    private final Stripe[] stripes;
+
+    /**
+     * @param maxCount  najviše događaja u prozoru (0 = bez ograničenja)
+     * @param maxAmount najveći zbir iznosa u prozoru (0 = bez ograničenja)
+     */
+    public SlidingWindowLimiter(Duration window, int buckets, long maxCount, long maxAmount, int maxKeys, int stripeCount) {
+        if (buckets < 1 || window.toMillis() < buckets) {
+            throw new IllegalArgumentException("Prozor mora imati bar jednu kantu od 1 ms");
+        }
+        this.buckets = buckets;
+        this.bucketMillis = window.toMillis() / buckets;
+        this.maxCount = maxCount > 0 ? maxCount : Long.MAX_VALUE;
+        this.maxAmount = maxAmount > 0 ? maxAmount : Long.MAX_VALUE;
+
+        int n = 1;
+        while (n < stripeCount) n <<= 1;
+        this.stripes = new Stripe[n];
+        int perStripe = Math.max(1, maxKeys / n);
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    /**
+     * Atomski proverava da li događaj sa zadatim iznosom staje u prozor i, ako staje, beleži ga.
+     *
+     * @return false ako bi bio prekoračen broj ili zbir iznosa
+     */
+    public boolean tryAcquire(long key, long amount, long nowMillis) {
+        long epoch = nowMillis / bucketMillis;
+        int slot = (int) (epoch % buckets);
+        Stripe stripe = stripes[(int) (mix(key) & (stripes.length - 1))];
+
+        synchronized (stripe) {
+            Window w = stripe.get(key);
+            if (w == null) {
+                w = new Window(buckets);
+                stripe.put(key, w);
+            }
+
+            long count = 0;
+            long sum = 0;
+            long oldest = epoch - buckets;
+            for (int i = 0; i < buckets; i++) {
+                if (w.epochs[i] > oldest) {
+                    count += w.counts[i];
+                    sum += w.amounts[i];
+                }
+            }
+            if (count + 1 > maxCount || sum + amount > maxAmount) {
+                return false;
+            }
+
+            if (w.epochs[slot] != epoch) {
+                w.epochs[slot] = epoch;
+                w.counts[slot] = 0;
+                w.amounts[slot] = 0;
+            }
+            w.counts[slot]++;
+            w.amounts[slot] += amount;
+            return true;
+        }
+    }
+
+    /** Broj ključeva koji se trenutno prate (trake se zaključavaju jedna po jedna, pa je zbir približan). */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    // Razbacuje bitove ključa da susedni id-jevi ne padnu u istu traku
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static final class Window {
+        final long[] epochs;
+        final long[] counts;
+        final long[] amounts;
+
+        Window(int buckets) {
+            epochs = new long[buckets];
+            counts = new long[buckets];
+            amounts = new long[buckets];
+            Arrays.fill(epochs, Long.MIN_VALUE);
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<Long, Window> {
+        private final int capacity;
+
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.bank.service;
+
+import com.bank.config.BulkDataSeeder;
+import com.bank.dto.BankPaymentFormDTO;
+import com.bank.dto.PspPaymentRequestDTO;
+import com.bank.dto.PspPaymentResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Benchmark kartičnog puta (createPaymentUrl + processPayment) nad sintetičkim podacima
+ * iz {@link BulkDataSeeder}-a.
+ *
+ * Ne pokreće se u običnom build-u:
+ *   mvn test -Dtest=CardPaymentBenchmarkTest -Dbank.bench=true
+ *        [-Dbank.bench.payments=5000] [-Dbank.bench.threads=32]
+ *
+ * Podrazumevano radi nad H2 bazom sa manjim skupom; za merenje na Postgres-u dovoljno je
+ * pregaziti spring.datasource.* i bank.seed.* sistemskim property-jima.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "bank.seed.accounts=${bank.bench.accounts:20000}",
+        "bank.seed.merchants=20",
+        "bank.seed.transactions=${bank.bench.history:50000}",
+        // Callback ide na port na kome niko ne sluša - merimo samo banku
+        "bank.callback.max-attempts=1"
+})
+@ActiveProfiles({"h2", "bulk-seed"})
+@EnabledIfSystemProperty(named = "bank.bench", matches = "true")
+class CardPaymentBenchmarkTest {
+
+    private final int payments = Integer.getInteger("bank.bench.payments", 5000);
+    private final int threads = Integer.getInteger("bank.bench.threads", 32);
+
+    @Autowired
+    private BankService bankService;
+
+    @Value("${bank.seed.accounts}")
+    private int seededAccounts;
+
+    @Value("${bank.seed.merchants}")
+    private int seededMerchants;
+
+    private final ConcurrentLinkedQueue<Long> initLatencies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> payLatencies = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void cardPaymentThroughput() throws Exception {
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(payments);
+
+        for (int i = 0; i < payments; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    payOnce();
+                } catch (RuntimeException e) {
+                    failed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long t0 = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long elapsedNanos = System.nanoTime() - t0;
+        pool.shutdown();
+
+        report(elapsedNanos);
+        assertEquals(0, failed.get(), "Neuspela plaćanja");
+    }
+
+    private void payOnce() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        PspPaymentRequestDTO request = new PspPaymentRequestDTO();
+        request.setMerchantId(BulkDataSeeder.MERCHANT_PREFIX + random.nextInt(seededMerchants));
+        request.setMerchantPassword(BulkDataSeeder.MERCHANT_PASSWORD);
+        request.setAmount(BigDecimal.valueOf(random.nextLong(100, 100_00), 2));
+        request.setCurrency("RSD");
+        request.setPspTransactionId(UUID.randomUUID().toString());
+        request.setPspTimestamp(LocalDateTime.now());
+        request.setStan(String.valueOf(random.nextInt(100000, 999999)));
+        request.setCallbackUrl("http://localhost:1/api/payments/callback");
+
+        long t0 = System.nanoTime();
+        PspPaymentResponseDTO response = bankService.createPaymentUrl(request);
+        long t1 = System.nanoTime();
+        initLatencies.add(t1 - t0);
+
+        int card = random.nextInt(seededAccounts);
+        BankPaymentFormDTO form = new BankPaymentFormDTO();
+        form.setPaymentId(response.getPaymentId());
+        form.setPan(BulkDataSeeder.panFor(card));
+        form.setSecurityCode(BulkDataSeeder.cvvFor(card));
+        form.setCardHolderName("SEED KUPAC " + card);
+        form.setExpirationDate(BulkDataSeeder.CARD_EXPIRY);
+
+        bankService.processPayment(form);
+        payLatencies.add(System.nanoTime() - t1);
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%n=== Card payment benchmark: %d plaćanja, %d niti, %d kartica ===%n",
+                payments, threads, seededAccounts);
+        System.out.printf("Trajanje: %.1f s | plaćanja/s: %.1f%n", seconds, payLatencies.size() / seconds);
+        print("createPaymentUrl", initLatencies);
+        print("processPayment", payLatencies);
+    }
+
+    private static void print(String name, ConcurrentLinkedQueue<Long> samples) {
+        long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%-18s n=%-7d p50=%-8.2f p95=%-8.2f p99=%-8.2f max=%.2f ms%n",
+                name, sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
@@ -0,0 +1,222 @@
+package com.bank.service;
+
+import com.bank.model.Account;
+import com.bank.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Naplatu autorizacija test pokreće ručno, pa pozadinski procesor ne sme da mu se meša
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "bank.holds.capture-ms=3600000")
+@ActiveProfiles("h2")
+class LedgerServiceConcurrencyTest {
+
+    private static final int PAYMENTS = 1000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void noDoubleSpendUnderParallelPayments() throws Exception {
+        // Kupac ima dovoljno za tačno polovinu uplata
+        Account buyer = account("500.00");
+        Account merchant = account("0.00");
+        BigDecimal amount = new BigDecimal("1.00");
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runInParallel(PAYMENTS, i -> {
+            try {
+                ledgerService.transfer(buyer.getId(), merchant.getId(), amount);
+                succeeded.incrementAndGet();
+            } catch (RuntimeException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(500, succeeded.get());
+        assertEquals(PAYMENTS - 500, rejected.get());
+        assertEquals(0, ledgerService.balanceOf(buyer.getId()).compareTo(BigDecimal.ZERO));
+        assertEquals(0, ledgerService.balanceOf(merchant.getId()).compareTo(new BigDecimal("500.00")));
+    }
+
+    @Test
+    void crossTransfersDoNotDeadlockAndConserveMoney() throws Exception {
+        Account a = account("1000.00");
+        Account b = account("1000.00");
+        BigDecimal amount = new BigDecimal("3.00");
+
+        AtomicInteger failed = new AtomicInteger();
+
+        // Pola prenosa ide A->B, pola B->A; debit zaključava samo račun platioca, pa nema deadlock-a
+        runInParallel(PAYMENTS, i -> {
+            try {
+                if (i % 2 == 0) ledgerService.transfer(a.getId(), b.getId(), amount);
+                else ledgerService.transfer(b.getId(), a.getId(), amount);
+            } catch (RuntimeException e) {
+                failed.incrementAndGet();
+            }
+        });
+
+        assertEquals(0, failed.get());
+        BigDecimal total = ledgerService.balanceOf(a.getId()).add(ledgerService.balanceOf(b.getId()));
+        assertEquals(0, total.compareTo(new BigDecimal("2000.00")));
+        assertEquals(0, ledgerService.balanceOf(a.getId()).compareTo(new BigDecimal("1000.00")));
+    }
+
+    @Test
+    void compactionKeepsBalanceAndEmptiesTail() throws Exception {
+        Account buyer = account("100.00");
+        Account merchant = account("0.00");
+
+        runInParallel(200, i -> ledgerService.transfer(buyer.getId(), merchant.getId(), new BigDecimal("0.25")));
+
+        BigDecimal buyerBefore = ledgerService.balanceOf(buyer.getId());
+        BigDecimal merchantBefore = ledgerService.balanceOf(merchant.getId());
+
+        // Kompaktor može da radi i iz scheduler-a; ovde ga teramo ručno do kraja repa
+        while (ledgerService.compact(buyer.getId()) > 0) { }
+        while (ledgerService.compact(merchant.getId()) > 0) { }
+
+        assertEquals(0, ledgerService.balanceOf(buyer.getId()).compareTo(buyerBefore));
+        assertEquals(0, ledgerService.balanceOf(merchant.getId()).compareTo(merchantBefore));
+        assertEquals(0, accountRepository.findById(buyer.getId()).orElseThrow().getBalance().compareTo(new BigDecimal("50.00")));
+        assertEquals(0, accountRepository.findById(merchant.getId()).orElseThrow().getBalance().compareTo(new BigDecimal("50.00")));
+    }
+
+    @Test
+    void authorizationsNeverOverReserveAndCaptureMovesFunds() throws Exception {
+        Account buyer = account("100.00");
+        Account merchant = account("0.00");
+        AtomicInteger authorized = new AtomicInteger();
+
+        runInParallel(PAYMENTS, i -> {
+            try {
+                ledgerService.authorize(buyer.getId(), merchant.getId(), new BigDecimal("0.50"), UUID.randomUUID().toString());
+                authorized.incrementAndGet();
+            } catch (RuntimeException e) {
+                // nema dovoljno raspoloživih sredstava
+            }
+        });
+
+        assertEquals(200, authorized.get());
+        assertEquals(0, ledgerService.availableBalanceOf(buyer.getId()).compareTo(BigDecimal.ZERO));
+
+        // Naplata ne menja raspoloživo stanje, samo prebacuje rezervacije u žurnal
+        while (ledgerService.captureHolds(LocalDateTime.now(), 50) > 0) { }
+
+        assertEquals(0, accountRepository.findById(buyer.getId()).orElseThrow().getReservedFunds().signum());
+        assertEquals(0, ledgerService.balanceOf(buyer.getId()).compareTo(BigDecimal.ZERO));
+        assertEquals(0, ledgerService.balanceOf(merchant.getId()).compareTo(new BigDecimal("100.00")));
+    }
+
+    @Test
+    void releasedAuthorizationReturnsFundsAndIsNotCaptured() {
+        Account buyer = account("10.00");
+        Account merchant = account("0.00");
+        String paymentId = UUID.randomUUID().toString();
+
+        ledgerService.authorize(buyer.getId(), merchant.getId(), new BigDecimal("10.00"), paymentId);
+        assertTrue(ledgerService.release(paymentId));
+        assertFalse(ledgerService.release(paymentId));
+
+        while (ledgerService.captureHolds(LocalDateTime.now(), 50) > 0) { }
+
+        assertEquals(0, ledgerService.availableBalanceOf(buyer.getId()).compareTo(new BigDecimal("10.00")));
+        assertEquals(0, ledgerService.balanceOf(merchant.getId()).compareTo(BigDecimal.ZERO));
+    }
+
+    @Test
+    void releaseDuringCaptureSkipsOnlyReleasedHolds() throws Exception {
+        Account buyer = account("100.00");
+        Account merchant = account("0.00");
+        BigDecimal amount = new BigDecimal("0.50");
+
+        List<String> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String paymentId = UUID.randomUUID().toString();
+            ledgerService.authorize(buyer.getId(), merchant.getId(), amount, paymentId);
+            paymentIds.add(paymentId);
+        }
+
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger captureErrors = new AtomicInteger();
+
+        // Svaki drugi zadatak poništava autorizaciju, ostali naplaćuju u malim grupama - release pogađa batch u toku
+        runInParallel(paymentIds.size(), i -> {
+            if (i % 2 == 0) {
+                if (ledgerService.release(paymentIds.get(i))) released.incrementAndGet();
+            } else {
+                try {
+                    ledgerService.captureHolds(LocalDateTime.now(), 20);
+                } catch (RuntimeException e) {
+                    captureErrors.incrementAndGet();
+                }
+            }
+        });
+        while (ledgerService.captureHolds(LocalDateTime.now(), 50) > 0) { }
+
+        assertEquals(0, captureErrors.get());
+        BigDecimal captured = amount.multiply(BigDecimal.valueOf(paymentIds.size() - released.get()));
+        assertEquals(0, accountRepository.findById(buyer.getId()).orElseThrow().getReservedFunds().signum());
+        assertEquals(0, ledgerService.balanceOf(merchant.getId()).compareTo(captured));
+        assertEquals(0, ledgerService.balanceOf(buyer.getId()).compareTo(new BigDecimal("100.00").subtract(captured)));
+    }
+
+    private Account account(String balance) {
+        Account account = new Account();
+        account.setOwnerName("Test " + UUID.randomUUID());
+        account.setAccountNumber(UUID.randomUUID().toString().substring(0, 18));
+        account.setBalance(new BigDecimal(balance));
+        account.setReservedFunds(BigDecimal.ZERO);
+        return accountRepository.save(account);
+    }
+
+    private void runInParallel(int tasks, IndexedTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(tasks);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IndexedTask {
+        void run(int index);
+    }
+}
@@ -0,0 +1,125 @@
+package com.bank.service;
+
+import com.bank.dto.IssuerAuthorizationRequestDTO;
+import com.bank.model.Account;
+import com.bank.model.Card;
+import com.bank.repository.AccountRepository;
+import com.bank.repository.CardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Naplatu autorizacija test pokreće ručno, pa pozadinski procesor ne sme da mu se meša
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "bank.holds.capture-ms=3600000")
+@ActiveProfiles("h2")
+class PccIssuerReversalTest {
+
+    private static final String CLEARING_ACCOUNT = "999-999999-99";
+
+    @Autowired
+    private BankService bankService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Test
+    void reversalBeforeCaptureReleasesHold() {
+        Card card = card("50.00");
+        String acquirerPaymentId = UUID.randomUUID().toString();
+
+        assertTrue(bankService.authorizeAsIssuer(request(card, acquirerPaymentId, "20.00")).isApproved());
+        assertTrue(bankService.reverseAsIssuer(acquirerPaymentId));
+        assertFalse(bankService.reverseAsIssuer(acquirerPaymentId));
+
+        Long buyerId = card.getAccount().getId();
+        assertEquals(0, ledgerService.availableBalanceOf(buyerId).compareTo(new BigDecimal("50.00")));
+        assertEquals(0, ledgerService.balanceOf(buyerId).compareTo(new BigDecimal("50.00")));
+    }
+
+    @Test
+    void reversalAfterTimeoutUndoesAlreadyCapturedHold() {
+        Card card = card("50.00");
+        Long buyerId = card.getAccount().getId();
+        Long clearingId = accountRepository.findByAccountNumber(CLEARING_ACCOUNT).orElseThrow().getId();
+        BigDecimal clearingBefore = ledgerService.balanceOf(clearingId);
+        String acquirerPaymentId = UUID.randomUUID().toString();
+
+        assertTrue(bankService.authorizeAsIssuer(request(card, acquirerPaymentId, "20.00")).isApproved());
+
+        // Banka prihvatilac nije dobila odgovor u roku; capture processor je u međuvremenu naplatio autorizaciju
+        while (ledgerService.captureHolds(LocalDateTime.now(), 50) > 0) { }
+        assertEquals(0, ledgerService.balanceOf(buyerId).compareTo(new BigDecimal("30.00")));
+
+        // Storno posle PCC timeout-a mora da vrati novac kupcu, i to samo jednom
+        assertTrue(bankService.reverseAsIssuer(acquirerPaymentId));
+        assertFalse(bankService.reverseAsIssuer(acquirerPaymentId));
+
+        assertEquals(0, ledgerService.balanceOf(buyerId).compareTo(new BigDecimal("50.00")));
+        assertEquals(0, ledgerService.availableBalanceOf(buyerId).compareTo(new BigDecimal("50.00")));
+        assertEquals(0, ledgerService.balanceOf(clearingId).compareTo(clearingBefore));
+    }
+
+    @Test
+    void reversalOfUnknownPaymentIsRejected() {
+        assertFalse(bankService.reverseAsIssuer(UUID.randomUUID().toString()));
+    }
+
+    private IssuerAuthorizationRequestDTO request(Card card, String acquirerPaymentId, String amount) {
+        IssuerAuthorizationRequestDTO request = new IssuerAuthorizationRequestDTO();
+        request.setAcquirerPaymentId(acquirerPaymentId);
+        request.setPan(card.getPan());
+        request.setSecurityCode(card.getSecurityCode());
+        request.setCardHolderName(card.getCardHolderName());
+        request.setExpirationDate(card.getExpirationDate());
+        request.setAmount(new BigDecimal(amount));
+        request.setCurrency("RSD");
+        return request;
+    }
+
+    private Card card(String balance) {
+        Account account = new Account();
+        account.setOwnerName("Test " + UUID.randomUUID());
+        account.setAccountNumber(UUID.randomUUID().toString().substring(0, 18));
+        account.setBalance(new BigDecimal(balance));
+        account.setReservedFunds(BigDecimal.ZERO);
+
+        Card card = new Card();
+        card.setPan(luhnPan());
+        card.setSecurityCode("123");
+        card.setCardHolderName(account.getOwnerName());
+        card.setExpirationDate("12/99");
+        card.setAccount(accountRepository.save(account));
+        return cardRepository.save(card);
+    }
+
+    // Nasumičan PAN sa ispravnom Luhn kontrolnom cifrom
+    private static String luhnPan() {
+        StringBuilder pan = new StringBuilder("4");
+        for (int i = 0; i < 14; i++) {
+            pan.append(ThreadLocalRandom.current().nextInt(10));
+        }
+        int sum = 0;
+        for (int i = pan.length() - 1, pos = 0; i >= 0; i--, pos++) {
+            int d = pan.charAt(i) - '0';
+            if (pos % 2 == 0) d *= 2;
+            sum += d / 10 + d % 10;
+        }
+        return pan.append((10 - sum % 10) % 10).toString();
+    }
+}
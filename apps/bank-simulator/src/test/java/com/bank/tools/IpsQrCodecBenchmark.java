@@ -0,0 +1,88 @@
+package com.bank.tools;
+
+import com.example.commons.IpsQrCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH merenje IpsQrCodec-a naspram starog pristupa (String.format + contains/split/matches).
+ * Pokretanje posle "mvn test-compile": main metoda iz IDE-a, ili
+ *   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *        com.bank.tools.IpsQrCodecBenchmark
+ * Kolona gc.alloc.rate.norm (B/op) pokazuje alokaciju po operaciji.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class IpsQrCodecBenchmark {
+
+    private static final String ACCOUNT = "111-111111-11";
+    private static final String PAYEE = "Rent-A-Car Agency";
+    private static final String PURPOSE = "Placanje porudzbine 1b9d6bcd";
+    private static final String REFERENCE = "9778123456789";
+    private static final long AMOUNT_MINOR = 1_234_550;
+
+    private final StringBuilder buffer = new StringBuilder(160);
+    private final IpsQrCodec.Fields fields = new IpsQrCodec.Fields();
+    private final String encoded = IpsQrCodec.encode(new StringBuilder(), ACCOUNT, PAYEE, "RSD",
+            AMOUNT_MINOR, "289", PURPOSE, REFERENCE).toString();
+
+    @Benchmark
+    public int encode() {
+        buffer.setLength(0);
+        IpsQrCodec.encode(buffer, ACCOUNT, PAYEE, "RSD", AMOUNT_MINOR, "289", PURPOSE, REFERENCE);
+        return buffer.length();
+    }
+
+    @Benchmark
+    public long decode() {
+        IpsQrCodec.tryDecode(encoded, fields);
+        return fields.getAmountMinor();
+    }
+
+    @Benchmark
+    public void legacyEncode(Blackhole bh) {
+        String rawAccount = ACCOUNT.replaceAll("-", "");
+        String formattedAccount = String.format("%018d", Long.parseLong(rawAccount));
+        String formattedAmount = String.format("%.2f", AMOUNT_MINOR / 100.0).replace(".", ",");
+        StringBuilder ips = new StringBuilder();
+        ips.append("K:PR|V:01|C:1|R:").append(formattedAccount);
+        ips.append("|N:").append(PAYEE);
+        ips.append("|I:RSD").append(formattedAmount);
+        ips.append("|SF:289|S:").append(PURPOSE);
+        ips.append("|RO:").append(REFERENCE);
+        bh.consume(ips.toString());
+    }
+
+    @Benchmark
+    public boolean legacyValidate() {
+        String s = encoded;
+        if (!s.startsWith("K:PR|V:01|C:1")) return false;
+        if (s.endsWith("|")) return false;
+        if (!s.contains("|R:") || s.split("\\|R:")[1].substring(0, 18).matches(".*\\D.*")) return false;
+        return s.contains("|I:RSD") && s.contains(",");
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(IpsQrCodecBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
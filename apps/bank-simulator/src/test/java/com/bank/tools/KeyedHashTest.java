@@ -0,0 +1,31 @@
+package com.bank.tools;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class KeyedHashTest {
+
+    private static final String PAN = "4242424242424242";
+
+    @Test
+    void sameInputGivesSameKeyWithinInstance() {
+        KeyedHash hash = new KeyedHash();
+        assertEquals(hash.hash(PAN), hash.hash(PAN));
+        assertEquals(hash.hash(PAN, null, "12/30"), hash.hash(PAN, "", "12/30"));
+    }
+
+    @Test
+    void fieldBoundariesMatter() {
+        KeyedHash hash = new KeyedHash();
+        assertNotEquals(hash.hash("ab", "c"), hash.hash("a", "bc"));
+        assertNotEquals(hash.hash(PAN, "123"), hash.hash(PAN, "124"));
+    }
+
+    @Test
+    void keyIsPerInstance() {
+        // Bez ključa procesa isti PAN ne daje isti otisak - otisak se ne može izračunati spolja
+        assertNotEquals(new KeyedHash().hash(PAN), new KeyedHash().hash(PAN));
+    }
+}
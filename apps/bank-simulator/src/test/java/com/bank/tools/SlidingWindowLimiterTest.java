@@ -0,0 +1,97 @@
+package com.bank.tools;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowLimiterTest {
+
+    // Prozor 60 s u 12 kanti od 5 s
+    private static final Duration WINDOW = Duration.ofSeconds(60);
+    private static final int BUCKETS = 12;
+
+    @Test
+    void countLimitHoldsUntilWholeWindowPasses() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(WINDOW, BUCKETS, 3, 0, 100, 4);
+
+        assertTrue(limiter.tryAcquire(1, 0, 0));
+        assertTrue(limiter.tryAcquire(1, 0, 1_000));
+        assertTrue(limiter.tryAcquire(1, 0, 4_999));
+        assertFalse(limiter.tryAcquire(1, 0, 4_999));
+
+        // Poslednja milisekunda prozora - kanta 0 se još broji
+        assertFalse(limiter.tryAcquire(1, 0, 59_999));
+        // Kanta 0 je ispala iz prozora i njen slot se prepisuje
+        assertTrue(limiter.tryAcquire(1, 0, 60_000));
+        assertTrue(limiter.tryAcquire(1, 0, 60_001));
+        assertTrue(limiter.tryAcquire(1, 0, 60_002));
+        assertFalse(limiter.tryAcquire(1, 0, 60_003));
+    }
+
+    @Test
+    void bucketsRollOffOneByOne() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(WINDOW, BUCKETS, 3, 0, 100, 4);
+
+        assertTrue(limiter.tryAcquire(7, 0, 0));
+        assertTrue(limiter.tryAcquire(7, 0, 5_000));
+        assertTrue(limiter.tryAcquire(7, 0, 10_000));
+        assertFalse(limiter.tryAcquire(7, 0, 55_000));
+
+        // Svakih 5 s ispada po jedna kanta, pa se oslobađa tačno jedno mesto
+        assertTrue(limiter.tryAcquire(7, 0, 60_000));
+        assertFalse(limiter.tryAcquire(7, 0, 60_000));
+        assertTrue(limiter.tryAcquire(7, 0, 65_000));
+        assertFalse(limiter.tryAcquire(7, 0, 69_999));
+        assertTrue(limiter.tryAcquire(7, 0, 70_000));
+    }
+
+    @Test
+    void amountLimitCountsOnlyAcceptedEvents() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(WINDOW, BUCKETS, 0, 100, 100, 4);
+
+        assertTrue(limiter.tryAcquire(1, 60, 0));
+        assertFalse(limiter.tryAcquire(1, 50, 1_000));
+        // Odbijeni iznos se ne upisuje - 40 još staje
+        assertTrue(limiter.tryAcquire(1, 40, 2_000));
+        assertFalse(limiter.tryAcquire(1, 1, 3_000));
+        assertTrue(limiter.tryAcquire(1, 100, 62_000));
+    }
+
+    @Test
+    void keysAreIndependent() {
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(WINDOW, BUCKETS, 1, 0, 100, 4);
+
+        assertTrue(limiter.tryAcquire(1, 0, 0));
+        assertFalse(limiter.tryAcquire(1, 0, 0));
+        assertTrue(limiter.tryAcquire(2, 0, 0));
+    }
+
+    @Test
+    void leastRecentlyUsedKeyIsEvictedAtCapacity() {
+        // Jedna traka sa mestom za 4 ključa
+        SlidingWindowLimiter limiter = new SlidingWindowLimiter(WINDOW, BUCKETS, 1, 0, 4, 1);
+        for (long key = 1; key <= 4; key++) {
+            assertTrue(limiter.tryAcquire(key, 0, 0));
+        }
+        // Ključ 1 je upravo korišćen, pa je najstariji ključ 2
+        assertFalse(limiter.tryAcquire(1, 0, 0));
+        assertTrue(limiter.tryAcquire(5, 0, 0));
+        assertEquals(4, limiter.size());
+
+        assertFalse(limiter.tryAcquire(1, 0, 0));
+        // Izbačen ključ je zaboravljen i kreće od nule
+        assertTrue(limiter.tryAcquire(2, 0, 0));
+        assertEquals(4, limiter.size());
+    }
+
+    @Test
+    void rejectsWindowShorterThanBuckets() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowLimiter(Duration.ofMillis(5), 12, 1, 0, 10, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowLimiter(WINDOW, 0, 1, 0, 10, 1));
+    }
+}
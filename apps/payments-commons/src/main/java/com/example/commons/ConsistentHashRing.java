@@ -0,0 +1,96 @@
+package com.example.commons;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Nepromenljivi consistent-hash prsten sa virtuelnim čvorovima.
+ * Kada instanca uđe ili izađe, remapira se samo ~1/N ključeva.
+ * Lookup je binarna pretraga nad sortiranim nizom heševa (bez alokacije po pozivu osim rezultata).
+ */
+public final class ConsistentHashRing<T> {
+
+    private final long[] hashes;
+    private final Object[] nodes;
+    private final int distinctNodes;
+
+    public ConsistentHashRing(Collection<T> members, Function<T, String> idExtractor, int virtualNodes) {
+        int size = members.size() * virtualNodes;
+        long[] h = new long[size];
+        Object[] n = new Object[size];
+        int i = 0;
+        for (T member : members) {
+            String id = idExtractor.apply(member);
+            for (int v = 0; v < virtualNodes; v++) {
+                h[i] = hash(id + "#" + v);
+                n[i] = member;
+                i++;
+            }
+        }
+        // Sortiramo parove (hash, čvor) po hešu
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) order[k] = k;
+        Arrays.sort(order, (a, b) -> Long.compare(h[a], h[b]));
+
+        this.hashes = new long[size];
+        this.nodes = new Object[size];
+        for (int k = 0; k < size; k++) {
+            hashes[k] = h[order[k]];
+            nodes[k] = n[order[k]];
+        }
+        this.distinctNodes = members.size();
+    }
+
+    public boolean isEmpty() {
+        return hashes.length == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T primary(String key) {
+        if (isEmpty()) return null;
+        return (T) nodes[indexFor(hash(key))];
+    }
+
+    /**
+     * Različiti čvorovi redom kojim se pojavljuju na prstenu počevši od ključa:
+     * prvi je vlasnik ključa, ostali su rezerve za failover.
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> candidates(String key, int limit) {
+        if (isEmpty()) return List.of();
+        int wanted = Math.min(limit, distinctNodes);
+        Set<T> result = new LinkedHashSet<>(wanted * 2);
+        int start = indexFor(hash(key));
+        for (int step = 0; step < nodes.length && result.size() < wanted; step++) {
+            result.add((T) nodes[(start + step) % nodes.length]);
+        }
+        return new ArrayList<>(result);
+    }
+
+    private int indexFor(long keyHash) {
+        int idx = Arrays.binarySearch(hashes, keyHash);
+        if (idx < 0) idx = -idx - 1;
+        return idx == hashes.length ? 0 : idx;
+    }
+
+    // FNV-1a 64 + murmur3 fmix64 finalizer za ravnomernu raspodelu
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
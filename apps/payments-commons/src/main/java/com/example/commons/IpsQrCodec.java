@@ -0,0 +1,360 @@
+package com.example.commons;
+
+/**
+ * Enkoder/dekoder NBS IPS QR sadržaja ("K:PR|V:01|C:1|R:...|N:...|I:RSD...|SF:...").
+ *
+ * Dekodiranje je jedan prolaz kroz ulaz: za svaki tag se pamte samo pozicije vrednosti u
+ * izvornom stringu, a validacija (obavezni tagovi, duplikati, dužine, format računa, iznosa,
+ * šifre plaćanja, MCC-a i poziva na broj) se radi usput. {@link Fields} se može ponovo
+ * koristiti, pa uspešno dekodiranje ne alocira ništa; String se pravi tek kada se zatraži
+ * vrednost taga. Enkodiranje piše direktno u prosleđeni StringBuilder, a iznos se formatira
+ * ručno iz para (bez String.format). Enkoder odbija vrednosti koje dekoder ne bi prihvatio
+ * (npr. '|' u nazivu primaoca ili svrsi), pa je svaki enkodiran sadržaj ispravan za {@link #decode}.
+ *
+ * Koriste ga i banka (generisanje QR-a) i psp-core (provera sadržaja).
+ */
+public final class IpsQrCodec {
+
+    public static final int ACCOUNT_LENGTH = 18;
+
+    public enum Tag {
+        K(2), V(2), C(1), R(18), N(70), I(18), P(70), SF(3), S(35), M(4), JS(5), RO(25), RL(140), RP(19);
+
+        final int maxLength;
+
+        Tag(int maxLength) {
+            this.maxLength = maxLength;
+        }
+    }
+
+    public enum Error {
+        NONE,
+        EMPTY,
+        BAD_HEADER,
+        MALFORMED_TAG,
+        UNKNOWN_TAG,
+        DUPLICATE_TAG,
+        EMPTY_VALUE,
+        VALUE_TOO_LONG,
+        BAD_ACCOUNT,
+        BAD_AMOUNT,
+        BAD_PAYMENT_CODE,
+        BAD_MCC,
+        BAD_REFERENCE,
+        MISSING_TAG,
+        TRAILING_SEPARATOR
+    }
+
+    private static final Tag[] TAGS = Tag.values();
+
+    private IpsQrCodec() {
+    }
+
+    /** Rezultat dekodiranja: pozicije vrednosti po tagu u izvornom stringu. Može se ponovo koristiti. */
+    public static final class Fields {
+        private final int[] start = new int[TAGS.length];
+        private final int[] end = new int[TAGS.length];
+        private CharSequence source;
+        private long amountMinor;
+        private Error error = Error.NONE;
+
+        void reset(CharSequence source) {
+            this.source = source;
+            for (int i = 0; i < start.length; i++) {
+                start[i] = -1;
+                end[i] = -1;
+            }
+            amountMinor = -1;
+            error = Error.NONE;
+        }
+
+        public boolean isValid() {
+            return error == Error.NONE && source != null;
+        }
+
+        public Error getError() {
+            return error;
+        }
+
+        public boolean has(Tag tag) {
+            return start[tag.ordinal()] >= 0;
+        }
+
+        /** Vrednost taga kao String (alocira) ili null ako tag ne postoji. */
+        public String value(Tag tag) {
+            int i = tag.ordinal();
+            return start[i] < 0 ? null : source.subSequence(start[i], end[i]).toString();
+        }
+
+        /** Dopisuje vrednost taga u out bez međukoraka. */
+        public StringBuilder appendValue(Tag tag, StringBuilder out) {
+            int i = tag.ordinal();
+            if (start[i] >= 0) out.append(source, start[i], end[i]);
+            return out;
+        }
+
+        public boolean valueEquals(Tag tag, CharSequence expected) {
+            int i = tag.ordinal();
+            if (start[i] < 0 || end[i] - start[i] != expected.length()) return false;
+            for (int k = 0; k < expected.length(); k++) {
+                if (source.charAt(start[i] + k) != expected.charAt(k)) return false;
+            }
+            return true;
+        }
+
+        /** Iznos iz I taga u parama (1 RSD = 100). */
+        public long getAmountMinor() {
+            return amountMinor;
+        }
+
+        /** Valuta iz I taga, npr. "RSD" (alocira). */
+        public String getCurrency() {
+            int i = Tag.I.ordinal();
+            return start[i] < 0 ? null : source.subSequence(start[i], start[i] + 3).toString();
+        }
+    }
+
+    // --- DEKODIRANJE ---
+
+    /** Dekodira i validira; baca RuntimeException sa razlogom ako sadržaj nije ispravan. */
+    public static Fields decode(CharSequence ips) {
+        Fields fields = new Fields();
+        if (!tryDecode(ips, fields)) {
+            throw new RuntimeException("Neispravan IPS QR sadržaj: " + fields.getError());
+        }
+        return fields;
+    }
+
+    /** Dekodira u postojeći Fields bez alokacije; vraća false i postavlja {@link Fields#getError()} ako nije ispravan. */
+    public static boolean tryDecode(CharSequence s, Fields out) {
+        out.reset(s);
+        if (s == null || s.length() == 0) return fail(out, Error.EMPTY);
+        int len = s.length();
+        if (s.charAt(len - 1) == '|') return fail(out, Error.TRAILING_SEPARATOR);
+
+        int pos = 0;
+        int index = 0;
+        while (pos < len) {
+            int colon = pos;
+            while (colon < len && s.charAt(colon) != ':' && s.charAt(colon) != '|') colon++;
+            if (colon >= len || s.charAt(colon) != ':') return fail(out, Error.MALFORMED_TAG);
+
+            Tag tag = lookup(s, pos, colon);
+            if (tag == null) return fail(out, Error.UNKNOWN_TAG);
+
+            int valueStart = colon + 1;
+            int valueEnd = valueStart;
+            while (valueEnd < len && s.charAt(valueEnd) != '|') valueEnd++;
+
+            // K, V i C moraju biti prva tri taga, tim redom
+            if ((index == 0 && tag != Tag.K) || (index == 1 && tag != Tag.V) || (index == 2 && tag != Tag.C)) {
+                return fail(out, Error.BAD_HEADER);
+            }
+
+            int t = tag.ordinal();
+            if (out.start[t] >= 0) return fail(out, Error.DUPLICATE_TAG);
+            if (valueEnd == valueStart) return fail(out, Error.EMPTY_VALUE);
+            if (valueEnd - valueStart > tag.maxLength) return fail(out, Error.VALUE_TOO_LONG);
+
+            Error error = validateValue(tag, s, valueStart, valueEnd, out);
+            if (error != Error.NONE) return fail(out, error);
+
+            out.start[t] = valueStart;
+            out.end[t] = valueEnd;
+            index++;
+            pos = valueEnd + 1;
+        }
+
+        if (!out.has(Tag.R) || !out.has(Tag.N) || !out.has(Tag.I) || !out.has(Tag.SF)) {
+            return fail(out, Error.MISSING_TAG);
+        }
+        return true;
+    }
+
+    private static Error validateValue(Tag tag, CharSequence s, int from, int to, Fields out) {
+        switch (tag) {
+            case K:
+                return regionEquals(s, from, to, "PR") || regionEquals(s, from, to, "PT")
+                        || regionEquals(s, from, to, "PK") || regionEquals(s, from, to, "EK")
+                        ? Error.NONE : Error.BAD_HEADER;
+            case V:
+                return regionEquals(s, from, to, "01") ? Error.NONE : Error.BAD_HEADER;
+            case C:
+                return regionEquals(s, from, to, "1") ? Error.NONE : Error.BAD_HEADER;
+            case R:
+                return to - from == ACCOUNT_LENGTH && allDigits(s, from, to) ? Error.NONE : Error.BAD_ACCOUNT;
+            case I: {
+                long amount = parseAmount(s, from, to);
+                if (amount < 0) return Error.BAD_AMOUNT;
+                out.amountMinor = amount;
+                return Error.NONE;
+            }
+            case SF:
+                return to - from == 3 && allDigits(s, from, to) && (s.charAt(from) == '1' || s.charAt(from) == '2')
+                        ? Error.NONE : Error.BAD_PAYMENT_CODE;
+            case M:
+                return to - from == 4 && allDigits(s, from, to) ? Error.NONE : Error.BAD_MCC;
+            case RO:
+                // Prve dve cifre su model poziva na broj
+                return to - from >= 3 && allDigits(s, from, from + 2) ? Error.NONE : Error.BAD_REFERENCE;
+            default:
+                return Error.NONE;
+        }
+    }
+
+    /** "RSD1234,56" -> 123456; -1 ako format nije ispravan (valuta, bar jedna cifra, zarez, najviše 2 decimale). */
+    private static long parseAmount(CharSequence s, int from, int to) {
+        if (to - from < 5) return -1;
+        for (int i = from; i < from + 3; i++) {
+            char c = s.charAt(i);
+            if (c < 'A' || c > 'Z') return -1;
+        }
+        long units = 0;
+        int digits = 0;
+        int i = from + 3;
+        while (i < to && s.charAt(i) != ',') {
+            char c = s.charAt(i++);
+            if (c < '0' || c > '9' || ++digits > 15) return -1;
+            units = units * 10 + (c - '0');
+        }
+        if (digits == 0 || i >= to) return -1;
+        i++; // zarez
+        int decimals = to - i;
+        if (decimals > 2) return -1;
+        long minor = 0;
+        for (int k = 0; k < 2; k++) {
+            int digit = 0;
+            if (k < decimals) {
+                char c = s.charAt(i + k);
+                if (c < '0' || c > '9') return -1;
+                digit = c - '0';
+            }
+            minor = minor * 10 + digit;
+        }
+        long total = units * 100 + minor;
+        return total > 0 ? total : -1;
+    }
+
+    private static Tag lookup(CharSequence s, int from, int to) {
+        int n = to - from;
+        if (n == 1) {
+            switch (s.charAt(from)) {
+                case 'K': return Tag.K;
+                case 'V': return Tag.V;
+                case 'C': return Tag.C;
+                case 'R': return Tag.R;
+                case 'N': return Tag.N;
+                case 'I': return Tag.I;
+                case 'P': return Tag.P;
+                case 'S': return Tag.S;
+                case 'M': return Tag.M;
+                default: return null;
+            }
+        }
+        if (n == 2) {
+            char a = s.charAt(from);
+            char b = s.charAt(from + 1);
+            if (a == 'S' && b == 'F') return Tag.SF;
+            if (a == 'J' && b == 'S') return Tag.JS;
+            if (a == 'R' && b == 'O') return Tag.RO;
+            if (a == 'R' && b == 'L') return Tag.RL;
+            if (a == 'R' && b == 'P') return Tag.RP;
+        }
+        return null;
+    }
+
+    // --- ENKODIRANJE ---
+
+    /**
+     * Upisuje IPS "PR" sadržaj u out. Račun može sadržati crtice; uzima se poslednjih 18 cifara
+     * uz dopunu nulama sleva. Iznos je u parama. reference (RO) je opciona.
+     */
+    public static StringBuilder encode(StringBuilder out, CharSequence account, CharSequence payeeName,
+                                       String currency, long amountMinor, CharSequence paymentCode,
+                                       CharSequence purpose, CharSequence reference) {
+        if (amountMinor <= 0) throw new RuntimeException("Iznos mora biti pozitivan!");
+        if (payeeName.length() == 0 || payeeName.length() > Tag.N.maxLength) throw new RuntimeException("Neispravan naziv primaoca!");
+        if (purpose != null && purpose.length() > Tag.S.maxLength) throw new RuntimeException("Svrha plaćanja je predugačka!");
+        // Format nema escape - separator u vrednosti bi pomerio sve sledeće tagove
+        if (containsSeparator(payeeName)) throw new RuntimeException("Naziv primaoca ne sme sadržati znak '|'!");
+        if (containsSeparator(purpose)) throw new RuntimeException("Svrha plaćanja ne sme sadržati znak '|'!");
+        if (validateValue(Tag.SF, paymentCode, 0, paymentCode.length(), null) != Error.NONE) {
+            throw new RuntimeException("Neispravna šifra plaćanja!");
+        }
+        if (reference != null && reference.length() > 0 && (reference.length() > Tag.RO.maxLength
+                || containsSeparator(reference) || validateValue(Tag.RO, reference, 0, reference.length(), null) != Error.NONE)) {
+            throw new RuntimeException("Neispravan poziv na broj!");
+        }
+
+        out.append("K:PR|V:01|C:1|R:");
+        appendAccount(out, account);
+        out.append("|N:").append(payeeName);
+        out.append("|I:").append(currency);
+        appendAmount(out, amountMinor);
+        out.append("|SF:").append(paymentCode);
+        if (purpose != null && purpose.length() > 0) out.append("|S:").append(purpose);
+        if (reference != null && reference.length() > 0) out.append("|RO:").append(reference);
+        return out;
+    }
+
+    /** 123456 -> "1234,56" */
+    public static StringBuilder appendAmount(StringBuilder out, long amountMinor) {
+        out.append(amountMinor / 100).append(',');
+        int cents = (int) (amountMinor % 100);
+        if (cents < 10) out.append('0');
+        return out.append(cents);
+    }
+
+    private static void appendAccount(StringBuilder out, CharSequence account) {
+        int digits = 0;
+        for (int i = 0; i < account.length(); i++) {
+            char c = account.charAt(i);
+            if (c >= '0' && c <= '9') digits++;
+            else if (c != '-' && c != ' ') throw new RuntimeException("Broj računa mora sadržati samo cifre!");
+        }
+        if (digits == 0) throw new RuntimeException("Broj računa mora sadržati samo cifre!");
+
+        for (int i = digits; i < ACCOUNT_LENGTH; i++) out.append('0');
+        int skip = Math.max(0, digits - ACCOUNT_LENGTH);
+        for (int i = 0; i < account.length(); i++) {
+            char c = account.charAt(i);
+            if (c < '0' || c > '9') continue;
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            out.append(c);
+        }
+    }
+
+    // --- Pomoćne ---
+
+    private static boolean fail(Fields out, Error error) {
+        out.error = error;
+        return false;
+    }
+
+    private static boolean containsSeparator(CharSequence s) {
+        if (s == null) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '|') return true;
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(CharSequence s, int from, int to, String expected) {
+        if (to - from != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (s.charAt(from + i) != expected.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean allDigits(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.commons;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 160;
+    private static final int KEYS = 20_000;
+
+    @Test
+    void sameKeyAlwaysMapsToSameNode() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c");
+        ConsistentHashRing<String> rebuilt = ring("c", "a", "b");
+        for (int i = 0; i < 1000; i++) {
+            String key = "tx-" + i;
+            assertEquals(ring.primary(key), ring.primary(key));
+            // Redosled članova ne utiče na prsten
+            assertEquals(ring.primary(key), rebuilt.primary(key));
+        }
+    }
+
+    @Test
+    void candidatesAreDistinctAndStartWithPrimary() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c", "d");
+        for (int i = 0; i < 200; i++) {
+            String key = "tx-" + i;
+            List<String> candidates = ring.candidates(key, 10);
+            assertEquals(4, candidates.size());
+            assertEquals(4, new HashSet<>(candidates).size());
+            assertEquals(ring.primary(key), candidates.get(0));
+            assertEquals(candidates.subList(0, 2), ring.candidates(key, 2));
+        }
+    }
+
+    @Test
+    void emptyRing() {
+        ConsistentHashRing<String> ring = ring();
+        assertTrue(ring.isEmpty());
+        assertNull(ring.primary("tx"));
+        assertTrue(ring.candidates("tx", 3).isEmpty());
+    }
+
+    @Test
+    void keysSpreadEvenlyAcrossNodes() {
+        ConsistentHashRing<String> ring = ring("a", "b", "c", "d");
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.primary("tx-" + i), 1, Integer::sum);
+        }
+        for (int count : counts.values()) {
+            // Idealno 25% po čvoru; 160 virtuelnih čvorova drži odstupanje u nekoliko procenata
+            assertTrue(count > KEYS * 0.18 && count < KEYS * 0.32, "Neravnomerno: " + counts);
+        }
+    }
+
+    @Test
+    void addingNodeMovesOnlyItsShareOfKeys() {
+        ConsistentHashRing<String> before = ring("a", "b", "c");
+        ConsistentHashRing<String> after = ring("a", "b", "c", "d");
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "tx-" + i;
+            String owner = after.primary(key);
+            if (!owner.equals(before.primary(key))) {
+                // Ključ se pomera samo na novi čvor, nikad između postojećih
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved > KEYS * 0.15 && moved < KEYS * 0.35, "Pomereno: " + moved);
+    }
+
+    @Test
+    void removingNodeMovesOnlyItsKeys() {
+        ConsistentHashRing<String> before = ring("a", "b", "c", "d");
+        ConsistentHashRing<String> after = ring("a", "b", "d");
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = "tx-" + i;
+            String owner = before.primary(key);
+            if (!owner.equals("c")) {
+                assertEquals(owner, after.primary(key));
+            } else {
+                // Rezerva sa prstena postaje novi vlasnik
+                assertEquals(before.candidates(key, 2).get(1), after.primary(key));
+            }
+        }
+    }
+
+    private static ConsistentHashRing<String> ring(String... nodes) {
+        return new ConsistentHashRing<>(List.of(nodes), Function.identity(), VIRTUAL_NODES);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.commons;
+
+import com.example.commons.IpsQrCodec.Error;
+import com.example.commons.IpsQrCodec.Fields;
+import com.example.commons.IpsQrCodec.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IpsQrCodecTest {
+
+    private static final String VALID =
+            "K:PR|V:01|C:1|R:845000000040484987|N:JP EPS BEOGRAD|I:RSD3596,13|SF:189|S:UPLATA PO RAČUNU|RO:97163220000111111111000";
+
+    @Test
+    void encodeThenDecodeRoundTrip() {
+        String encoded = encode("111-111111-11", "Rent-A-Car Agency", 1_234_550, "289",
+                "Placanje porudzbine 1b9d6bcd", "9778123456789");
+
+        assertEquals("K:PR|V:01|C:1|R:000000011111111111|N:Rent-A-Car Agency|I:RSD12345,50|SF:289"
+                + "|S:Placanje porudzbine 1b9d6bcd|RO:9778123456789", encoded);
+
+        Fields fields = IpsQrCodec.decode(encoded);
+        assertTrue(fields.isValid());
+        assertEquals("000000011111111111", fields.value(Tag.R));
+        assertEquals("Rent-A-Car Agency", fields.value(Tag.N));
+        assertEquals(1_234_550, fields.getAmountMinor());
+        assertEquals("RSD", fields.getCurrency());
+        assertEquals("289", fields.value(Tag.SF));
+        assertEquals("Placanje porudzbine 1b9d6bcd", fields.value(Tag.S));
+        assertEquals("9778123456789", fields.value(Tag.RO));
+    }
+
+    @Test
+    void encodeOmitsOptionalTagsAndFormatsSmallAmounts() {
+        String encoded = encode("123456789012345678", "Prodavac", 5, "221", null, "");
+
+        assertEquals("K:PR|V:01|C:1|R:123456789012345678|N:Prodavac|I:RSD0,05|SF:221", encoded);
+        Fields fields = IpsQrCodec.decode(encoded);
+        assertEquals(5, fields.getAmountMinor());
+        assertFalse(fields.has(Tag.S));
+        assertNull(fields.value(Tag.RO));
+    }
+
+    @Test
+    void encodeKeepsLastEighteenDigitsOfLongAccount() {
+        String encoded = encode("99-123456789012345678", "Prodavac", 100, "289", null, null);
+        assertEquals("123456789012345678", IpsQrCodec.decode(encoded).value(Tag.R));
+    }
+
+    @Test
+    void decodesSpecExample() {
+        Fields fields = IpsQrCodec.decode(VALID);
+        assertEquals("JP EPS BEOGRAD", fields.value(Tag.N));
+        assertEquals(359_613, fields.getAmountMinor());
+        assertTrue(fields.valueEquals(Tag.K, "PR"));
+        assertFalse(fields.valueEquals(Tag.K, "PT"));
+        assertEquals("N=JP EPS BEOGRAD", fields.appendValue(Tag.N, new StringBuilder("N=")).toString());
+    }
+
+    @Test
+    void decodeErrors() {
+        assertError(Error.EMPTY, "");
+        assertError(Error.TRAILING_SEPARATOR, VALID + "|");
+        assertError(Error.BAD_HEADER, "V:01|K:PR|C:1|R:845000000040484987|N:A|I:RSD1,00|SF:189");
+        assertError(Error.BAD_HEADER, "K:XX|V:01|C:1|R:845000000040484987|N:A|I:RSD1,00|SF:189");
+        assertError(Error.MALFORMED_TAG, "K:PR|V:01|C:1|R845000000040484987|N:A|I:RSD1,00|SF:189");
+        assertError(Error.UNKNOWN_TAG, "K:PR|V:01|C:1|X:1|R:845000000040484987|N:A|I:RSD1,00|SF:189");
+        assertError(Error.DUPLICATE_TAG, "K:PR|V:01|C:1|R:845000000040484987|N:A|N:B|I:RSD1,00|SF:189");
+        assertError(Error.EMPTY_VALUE, "K:PR|V:01|C:1|R:845000000040484987|N:|I:RSD1,00|SF:189");
+        assertError(Error.VALUE_TOO_LONG, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD1,00|SF:189|S:" + "x".repeat(36));
+        assertError(Error.BAD_ACCOUNT, "K:PR|V:01|C:1|R:84500000004048498|N:A|I:RSD1,00|SF:189");
+        assertError(Error.BAD_AMOUNT, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD1,001|SF:189");
+        assertError(Error.BAD_AMOUNT, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD0,00|SF:189");
+        assertError(Error.BAD_AMOUNT, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:rsd1,00|SF:189");
+        assertError(Error.BAD_PAYMENT_CODE, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD1,00|SF:389");
+        assertError(Error.BAD_MCC, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD1,00|SF:189|M:12a4");
+        assertError(Error.BAD_REFERENCE, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD1,00|SF:189|RO:9x123");
+        assertError(Error.MISSING_TAG, "K:PR|V:01|C:1|R:845000000040484987|N:A|I:RSD1,00");
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> IpsQrCodec.decode("K:PR"));
+        assertTrue(e.getMessage().contains(Error.MISSING_TAG.name()));
+    }
+
+    @Test
+    void fieldsAreResetWhenReused() {
+        Fields fields = new Fields();
+        assertTrue(IpsQrCodec.tryDecode(VALID, fields));
+        assertFalse(IpsQrCodec.tryDecode("K:PR|V:01", fields));
+        assertEquals(Error.MISSING_TAG, fields.getError());
+        assertFalse(fields.has(Tag.N));
+
+        assertTrue(IpsQrCodec.tryDecode(VALID, fields));
+        assertEquals(Error.NONE, fields.getError());
+    }
+
+    @Test
+    void encodeRejectsValuesTheDecoderWouldNotAccept() {
+        // Separator u vrednosti bi dao sadržaj koji sopstveni dekoder odbija
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Marko | Jovan d.o.o.", 100, "289", null, null));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 100, "289", "a|b", null));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 100, "289", null, "97|123"));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 100, "289", null, "x7123"));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 100, "289", null, "97" + "1".repeat(24)));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 100, "389", null, null));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "", 100, "289", null, null));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "x".repeat(71), 100, "289", null, null));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 100, "289", "x".repeat(36), null));
+        assertThrows(RuntimeException.class, () -> encode("111-111111-11", "Prodavac", 0, "289", null, null));
+        assertThrows(RuntimeException.class, () -> encode("111/111111/11", "Prodavac", 100, "289", null, null));
+        assertThrows(RuntimeException.class, () -> encode("--", "Prodavac", 100, "289", null, null));
+    }
+
+    private static String encode(String account, String payee, long amountMinor, String code, String purpose, String reference) {
+        return IpsQrCodec.encode(new StringBuilder(), account, payee, "RSD", amountMinor, code, purpose, reference).toString();
+    }
+
+    private static void assertError(Error expected, String ips) {
+        Fields fields = new Fields();
+        assertFalse(IpsQrCodec.tryDecode(ips, fields), ips);
+        assertEquals(expected, fields.getError(), ips);
+    }
+}
@@ -28,6 +28,7 @@ public class PaymentController {
     private final PaymentMethodRepository paymentMethodRepository;
     private final PaymentRegistry paymentRegistry;
     private final GenericPaymentService genericPaymentService;
+    private final CryptoConfirmationService cryptoConfirmationService;
     private final AuditLogger auditLogger; 
 
     public PaymentController(PaymentService paymentService,
@@ -35,6 +36,7 @@ public class PaymentController {
                              PaymentMethodRepository paymentMethodRepository,
                              PaymentRegistry paymentRegistry,
                              GenericPaymentService genericPaymentService,
+                             CryptoConfirmationService cryptoConfirmationService,
                              AuditLogger auditLogger) {
       
         this.paymentService = paymentService;
@@ -42,6 +44,7 @@ public class PaymentController {
         this.paymentMethodRepository = paymentMethodRepository;
         this.paymentRegistry = paymentRegistry;
         this.genericPaymentService = genericPaymentService;
+        this.cryptoConfirmationService = cryptoConfirmationService;
         this.auditLogger = auditLogger;
     }
 
@@ -122,6 +125,9 @@ public class PaymentController {
             if (result.getQrData() != null) {
                 response.put("qrData", result.getQrData());
             }
+            if (result.getQrImageUrl() != null) {
+                response.put("qrImageUrl", result.getQrImageUrl());
+            }
             return ResponseEntity.ok(response);
 
         } catch (UnknownPaymentmethodException e) {
@@ -228,49 +234,39 @@ public class PaymentController {
         return ResponseEntity.ok(genericPaymentService.getDetails(uuid, methodName));
     }
 
+    /**
+     * Server-to-Server potvrda kripto uplate (psp-crypto watcher -> Core)
+     */
+    @PostMapping("/finalize/crypto")
+    public ResponseEntity<Void> finalizeCrypto(@RequestBody CryptoConfirmationDTO confirmation,
+                                               @RequestHeader(value = "X-PSP-Signature", required = false) String signature) {
+        auditLogger.logEvent("S2S_CRYPTO_FINALIZE", "START", "UUID: " + confirmation.getTransactionUuid());
+
+        if (!cryptoConfirmationService.isAuthentic(confirmation, signature)) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        cryptoConfirmationService.confirm(confirmation);
+
+        auditLogger.logEvent("S2S_CRYPTO_FINALIZE_SUCCESS", "SUCCESS", "UUID: " + confirmation.getTransactionUuid());
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/checkout/{uuid}/status/{methodName}")
     public ResponseEntity<Map<String, Object>> checkPaymentStatus(@PathVariable String uuid, @PathVariable String methodName) {
 
-        // 1. Prvo učitamo transakciju iz NAŠE baze (Core baza)
+        // Status se čita samo iz Core baze - psp-crypto sam javlja potvrdu preko /finalize/crypto
         PaymentTransaction tx = paymentTransactionRepository.findByUuid(uuid)
                 .orElseThrow(() -> new RuntimeException("Transakcija ne postoji"));
 
         Map<String, Object> response = new HashMap<>();
 
-        // A) Ako je u našoj bazi već SUCCESS, ne smaramo mikroservis, odmah vraćamo URL
         if (tx.getStatus() == TransactionStatus.SUCCESS) {
             response.put("status", "SUCCESS");
             response.put("redirectUrl", tx.getSuccessUrl());
-            return ResponseEntity.ok(response);
-        }
-
-        // B) Ako je FAILED, isto vraćamo odmah
-        if (tx.getStatus() == TransactionStatus.FAILED) {
+        } else if (tx.getStatus() == TransactionStatus.FAILED) {
             response.put("status", "FAILED");
             response.put("redirectUrl", tx.getFailedUrl());
-            return ResponseEntity.ok(response);
-        }
-
-        // C) Ako je CREATED/PENDING, moramo pitati Mikroservis
-        boolean isConfirmed = genericPaymentService.checkTransactionStatus(uuid, methodName);
-
-        if (isConfirmed) {
-            // 🎉 MIKROSERVIS KAŽE DA SU PARE LEGLE!
-
-            // 1. Ažuriramo status u Core bazi
-            tx.setStatus(TransactionStatus.SUCCESS);
-            tx.setServiceTimestamp(java.time.LocalDateTime.now());
-            paymentTransactionRepository.save(tx);
-
-            // 2. Logujemo uspeh
-            auditLogger.logEvent("PAYMENT_SUCCESS_CONFIRMED", "SUCCESS", "UUID: " + uuid);
-
-            // 3. Opciono: Obavesti WebShop preko Webhook-a (ako imaš tu metodu u servisu)
-            // paymentService.notifyWebShop(tx, "CRYPTO");
-
-            // 4. Vraćamo Frontendu URL za uspeh
-            response.put("status", "SUCCESS");
-            response.put("redirectUrl", tx.getSuccessUrl());
         } else {
             response.put("status", "PENDING");
             response.put("redirectUrl", null);
@@ -0,0 +1,90 @@
+package controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import model.ReconciliationMismatch;
+import model.ReconciliationRun;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.RestClientException;
+import repository.ReconciliationMismatchRepository;
+import repository.ReconciliationRunRepository;
+import service.ReconciliationService;
+import tools.AuditLogger;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/reconciliation")
+@CrossOrigin(origins = "https://localhost:4201")
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final AuditLogger auditLogger;
+
+    public ReconciliationController(ReconciliationService reconciliationService,
+                                    ReconciliationRunRepository runRepository,
+                                    ReconciliationMismatchRepository mismatchRepository,
+                                    AuditLogger auditLogger) {
+        this.reconciliationService = reconciliationService;
+        this.runRepository = runRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.auditLogger = auditLogger;
+    }
+
+    /** Settlement fajl u telu zahteva (text/plain) - čita se direktno iz toka, bez učitavanja u memoriju. */
+    @PostMapping("/upload")
+    @PreAuthorize("hasRole('SUPERADMIN')")
+    public ResponseEntity<?> upload(HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(reconciliationService.reconcile(request.getInputStream(), null, "upload"));
+        } catch (IOException | RuntimeException e) {
+            auditLogger.logEvent("RECONCILIATION_UPLOAD", "FAILED", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    /** Preuzima settlement fajl za dan od banke i odmah ga poravnava. */
+    @PostMapping("/fetch/{day}")
+    @PreAuthorize("hasRole('SUPERADMIN')")
+    public ResponseEntity<?> fetch(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate day) {
+        try {
+            return ResponseEntity.ok(reconciliationService.fetchAndReconcile(day));
+        } catch (RestClientException e) {
+            auditLogger.logEvent("RECONCILIATION_FETCH", "FAILED", day + " | " + e.getMessage());
+            return ResponseEntity.status(502).body(Map.of("error", "Settlement fajl banke nije dostupan: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+
+    @GetMapping("/runs")
+    @PreAuthorize("hasRole('SUPERADMIN')")
+    public ResponseEntity<List<ReconciliationRun>> runs() {
+        return ResponseEntity.ok(runRepository.findTop20ByOrderByIdDesc());
+    }
+
+    @GetMapping("/runs/{id}")
+    @PreAuthorize("hasRole('SUPERADMIN')")
+    public ResponseEntity<ReconciliationRun> run(@PathVariable Long id) {
+        return runRepository.findById(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/runs/{id}/mismatches")
+    @PreAuthorize("hasRole('SUPERADMIN')")
+    public ResponseEntity<Page<ReconciliationMismatch>> mismatches(@PathVariable Long id,
+                                                                   @RequestParam(defaultValue = "0") int page,
+                                                                   @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(mismatchRepository.findByRunIdOrderById(id, PageRequest.of(page, Math.min(size, 1000))));
+    }
+}
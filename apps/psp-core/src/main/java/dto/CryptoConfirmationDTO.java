@@ -0,0 +1,25 @@
+package dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class CryptoConfirmationDTO {
+    // UUID transakcije iz psp-core baze
+    private String transactionUuid;
+
+    // SUCCESS (sredstva vidljiva na adresi)
+    private String status;
+
+    private String walletAddress;
+
+    // Ukupno primljeno na adresu, u satoshijima
+    private long receivedSats;
+
+    // Trenutak potvrde na psp-crypto strani (epoch millis)
+    private long confirmedAt;
+
+    // Vreme slanja callback-a (epoch millis), ulazi u potpis radi zaštite od replay-a
+    private long timestamp;
+}
@@ -18,4 +18,6 @@ public class MicroservicePaymentRequest {
     // Ovo će biti adresa Gateway-a, ne konkretne instance Core-a
     private String returnUrl;
     private String cancelUrl;
+    // Server-to-Server adresa na koju mikroservis šalje potpisanu potvrdu uplate (preko Gateway-a)
+    private String callbackUrl;
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 /**
  * Wrapper za rezultat inicijalizacije plaćanja.
  * CARD, PAYPAL: redirectUrl
- * QR: qrData
+ * QR: qrData (+ qrImageUrl - slika renderovana u banci)
  * CRYPTO: redirectUrl ili qrData (zavisno od provajdera)
  */
 @Data
@@ -18,4 +18,5 @@ import lombok.NoArgsConstructor;
 public class PaymentInitResult {
     private String redirectUrl;
     private String qrData;
+    private String qrImageUrl;
 }
\ No newline at end of file
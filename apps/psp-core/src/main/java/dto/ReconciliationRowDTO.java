@@ -0,0 +1,19 @@
+package dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import model.TransactionStatus;
+
+import java.math.BigDecimal;
+
+// Samo polja potrebna za poravnanje (JPQL constructor projekcija)
+@Data
+@AllArgsConstructor
+public class ReconciliationRowDTO {
+    private Long id;
+    private String uuid;
+    private String executionId;
+    private String stan;
+    private BigDecimal amount;
+    private TransactionStatus status;
+}
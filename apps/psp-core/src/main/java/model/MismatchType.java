@@ -0,0 +1,10 @@
+package model;
+
+public enum MismatchType {
+    SETTLED_BUT_FAILED,      // Banka je naplatila, a kod nas je transakcija FAILED/ERROR
+    SETTLED_BUT_PENDING,     // Banka je naplatila, a kod nas još čeka (CREATED/WAITING_FOR_PAYMENT)
+    SETTLED_UNKNOWN,         // Stavka iz fajla ne odgovara nijednoj našoj transakciji
+    AMOUNT_MISMATCH,         // Iznos u fajlu se razlikuje od našeg
+    STAN_MISMATCH,           // STAN u fajlu se razlikuje od našeg
+    SUCCESS_NOT_SETTLED      // Kod nas SUCCESS, a banka je nije naplatila
+}
@@ -3,11 +3,19 @@ package model;
 import jakarta.persistence.*;
 import lombok.*;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "transactions", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"merchant_id", "merchant_order_id"})
+}, indexes = {
+        // Poravnanje: uparivanje blokova stavki settlement fajla po paymentId-ju banke
+        @Index(name = "idx_tx_execution_id", columnList = "execution_id"),
+        // Poravnanje: keyset SUCCESS transakcija dana koje banka nije potvrdila
+        @Index(name = "idx_tx_status_created_id", columnList = "status, created_at, id"),
+        // Poravnanje: potvrda ili poništavanje uparenih transakcija jednog run-a
+        @Index(name = "idx_tx_settled_run", columnList = "settled_run_id")
 })
 @Data
 @NoArgsConstructor
@@ -79,6 +87,14 @@ public class PaymentTransaction {
     @Column(name = "crypto_currency")
     private String cryptoCurrency; // npr. "BTC"
 
+    // Dan settlement fajla banke u kome je transakcija potvrđena (poravnanje)
+    @Column(name = "settled_on")
+    private LocalDate settledOn;
+
+    // Run poravnanja koji je transakciju upario; settled_on dobija tek kada fajl prođe završnu proveru
+    @Column(name = "settled_run_id")
+    private Long settledRunId;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -0,0 +1,38 @@
+package model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "reconciliation_mismatches", indexes = {
+        @Index(name = "idx_recon_mismatch_run", columnList = "run_id, id")
+})
+@Data
+public class ReconciliationMismatch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private MismatchType type;
+
+    // ID plaćanja u banci (paymentId iz settlement fajla / naš executionId)
+    @Column(name = "execution_id")
+    private String executionId;
+
+    // Naš UUID transakcije, ako je pronađena
+    @Column(name = "transaction_uuid")
+    private String transactionUuid;
+
+    @Column(length = 500)
+    private String detail;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,46 @@
+package model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Jedno poravnanje settlement fajla banke sa našim transakcijama, sa brojačima i propusnošću.
+ */
+@Entity
+@Table(name = "reconciliation_runs")
+@Data
+public class ReconciliationRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "settlement_date")
+    private LocalDate settlementDate;
+
+    @Column(name = "source")
+    private String source;
+
+    @Column(nullable = false, length = 16)
+    private String status; // RUNNING, COMPLETED, FAILED
+
+    private long lines;
+    private long settledRecords;
+    private long matched;
+    private long mismatches;
+    private long unsettled;
+
+    @Column(name = "lines_per_second")
+    private double linesPerSecond;
+
+    @Column(name = "error_message", length = 500)
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -1,16 +1,30 @@
 package repository;
 
+import dto.ReconciliationRowDTO;
 import model.PaymentTransaction;
 import model.TransactionStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, Long> {
     Optional<PaymentTransaction> findByUuid(String uuid);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM PaymentTransaction t WHERE t.uuid = :uuid")
+    Optional<PaymentTransaction> findByUuidForUpdate(@Param("uuid") String uuid);
+
     boolean existsByMerchantIdAndMerchantOrderId(String merchantId, String merchantOrderId);
     Optional<PaymentTransaction> findByExecutionId(String executionId);
     Optional<PaymentTransaction> findByMerchantIdAndMerchantOrderId(String merchantId, String merchantOrderId);
@@ -27,4 +41,37 @@ public interface PaymentTransactionRepository extends JpaRepository<PaymentTrans
             TransactionStatus status,
             LocalDateTime before
     );
+
+    // Poravnanje: jedan upit za ceo blok stavki iz settlement fajla (po executionId-ju ili našem UUID-u)
+    @Query("SELECT new dto.ReconciliationRowDTO(t.id, t.uuid, t.executionId, t.stan, t.amount, t.status) " +
+            "FROM PaymentTransaction t WHERE t.executionId IN :executionIds OR t.uuid IN :uuids")
+    List<ReconciliationRowDTO> findForReconciliation(@Param("executionIds") Collection<String> executionIds,
+                                                     @Param("uuids") Collection<String> uuids);
+
+    // Blok uparenih transakcija se samo vezuje za run - settled_on se ne dira dok fajl nije potvrđen
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTransaction t SET t.settledRunId = :runId WHERE t.id IN :ids")
+    int markMatched(@Param("ids") Collection<Long> ids, @Param("runId") Long runId);
+
+    // Fajl je prošao proveru E reda - sve uparene transakcije run-a postaju settled jednim UPDATE-om
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTransaction t SET t.settledOn = :day WHERE t.settledRunId = :runId")
+    int promoteRun(@Param("runId") Long runId, @Param("day") LocalDate day);
+
+    // Neuspešan run - uparivanje se poništava, settled_on ostaje kakav je bio
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentTransaction t SET t.settledRunId = null WHERE t.settledRunId = :runId")
+    int clearRun(@Param("runId") Long runId);
+
+    // SUCCESS transakcije bankarskih metoda iz dana koje nijedan settlement nije potvrdio (keyset po id-ju)
+    @Query("SELECT new dto.ReconciliationRowDTO(t.id, t.uuid, t.executionId, t.stan, t.amount, t.status) " +
+            "FROM PaymentTransaction t WHERE t.status = model.TransactionStatus.SUCCESS AND t.settledOn IS NULL " +
+            "AND t.chosenMethod IN :methods AND t.createdAt >= :from AND t.createdAt < :to AND t.id > :afterId " +
+            "ORDER BY t.id")
+    List<ReconciliationRowDTO> findUnsettled(@Param("methods") Collection<String> methods,
+                                             @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                             @Param("afterId") Long afterId, Pageable pageable);
 }
@@ -0,0 +1,10 @@
+package repository;
+
+import model.ReconciliationMismatch;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReconciliationMismatchRepository extends JpaRepository<ReconciliationMismatch, Long> {
+    Page<ReconciliationMismatch> findByRunIdOrderById(Long runId, Pageable pageable);
+}
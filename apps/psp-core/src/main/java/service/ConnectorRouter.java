@@ -0,0 +1,58 @@
+package service;
+
+import com.example.commons.ConsistentHashRing;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Rutiranje poziva ka konektor mikroservisima (npr. psp-crypto) po UUID-u transakcije.
+ * Stateful konektori drže stanje transakcije u memoriji, pa init, details i ostali pozivi
+ * za isti UUID moraju stići na istu repliku. Prsten se gradi ponovo samo kada se promeni
+ * skup instanci na Eureki.
+ */
+@Component
+public class ConnectorRouter {
+
+    private static final int VIRTUAL_NODES = 160;
+
+    private final DiscoveryClient discoveryClient;
+    private final Map<String, Snapshot> rings = new ConcurrentHashMap<>();
+
+    public ConnectorRouter(DiscoveryClient discoveryClient) {
+        this.discoveryClient = discoveryClient;
+    }
+
+    /**
+     * Instance za dati ključ: prva je vlasnik, ostale su rezerve u redosledu prstena.
+     */
+    public List<ServiceInstance> route(String serviceName, String transactionUuid, int maxCandidates) {
+        List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
+        if (instances.isEmpty()) return List.of();
+        return ringFor(serviceName, instances).candidates(transactionUuid, maxCandidates);
+    }
+
+    private ConsistentHashRing<ServiceInstance> ringFor(String serviceName, List<ServiceInstance> instances) {
+        Set<String> ids = instances.stream().map(ConnectorRouter::instanceKey).collect(Collectors.toSet());
+        Snapshot current = rings.get(serviceName);
+        if (current != null && current.ids.equals(ids)) {
+            return current.ring;
+        }
+        Snapshot rebuilt = new Snapshot(ids, new ConsistentHashRing<>(instances, ConnectorRouter::instanceKey, VIRTUAL_NODES));
+        rings.put(serviceName, rebuilt);
+        return rebuilt.ring;
+    }
+
+    private static String instanceKey(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private record Snapshot(Set<String> ids, ConsistentHashRing<ServiceInstance> ring) {
+    }
+}
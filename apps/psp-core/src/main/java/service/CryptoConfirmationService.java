@@ -0,0 +1,96 @@
+package service;
+
+import dto.CryptoConfirmationDTO;
+import dto.PaymentCallbackDTO;
+import model.PaymentTransaction;
+import model.TransactionStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import repository.PaymentTransactionRepository;
+import tools.AuditLogger;
+import tools.CallbackSignature;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Set;
+
+/**
+ * Prijem potvrde kripto uplate koju psp-crypto šalje čim watcher vidi sredstva.
+ * Transakcija se finalizuje i prodavac obaveštava bez učešća browser-a.
+ */
+@Service
+public class CryptoConfirmationService {
+
+    private static final long MAX_CLOCK_SKEW_MS = 5 * 60 * 1000;
+    // psp-crypto javlja samo konačan ishod uplate
+    private static final Set<String> FINAL_STATUSES = Set.of("SUCCESS", "FAILED");
+
+    private final PaymentTransactionRepository transactionRepository;
+    private final PaymentService paymentService;
+    private final AuditLogger auditLogger;
+
+    @Value("${crypto.callback.secret}")
+    private String callbackSecret;
+
+    public CryptoConfirmationService(PaymentTransactionRepository transactionRepository,
+                                     PaymentService paymentService,
+                                     AuditLogger auditLogger) {
+        this.transactionRepository = transactionRepository;
+        this.paymentService = paymentService;
+        this.auditLogger = auditLogger;
+    }
+
+    // Potpisuje se svako polje koje confirm() upisuje u transakciju
+    public static String signaturePayload(CryptoConfirmationDTO confirmation) {
+        return confirmation.getTransactionUuid() + "|" + confirmation.getStatus() + "|"
+                + confirmation.getWalletAddress() + "|" + confirmation.getReceivedSats() + "|"
+                + confirmation.getConfirmedAt() + "|" + confirmation.getTimestamp();
+    }
+
+    public boolean isAuthentic(CryptoConfirmationDTO confirmation, String signature) {
+        if (Math.abs(System.currentTimeMillis() - confirmation.getTimestamp()) > MAX_CLOCK_SKEW_MS) {
+            auditLogger.logSecurityAlert("CRYPTO_CALLBACK_STALE", "UUID: " + confirmation.getTransactionUuid());
+            return false;
+        }
+        if (!CallbackSignature.verify(callbackSecret, signaturePayload(confirmation), signature)) {
+            auditLogger.logSecurityAlert("CRYPTO_CALLBACK_BAD_SIGNATURE", "UUID: " + confirmation.getTransactionUuid());
+            return false;
+        }
+        return true;
+    }
+
+    @Transactional
+    public void confirm(CryptoConfirmationDTO confirmation) {
+        if (!FINAL_STATUSES.contains(confirmation.getStatus())) {
+            auditLogger.logSecurityAlert("CRYPTO_CALLBACK_BAD_STATUS",
+                    "UUID: " + confirmation.getTransactionUuid() + " | Status: " + confirmation.getStatus());
+            throw new RuntimeException("Nepoznat status kripto potvrde: " + confirmation.getStatus());
+        }
+
+        // Zaključavamo red da dve isporuke istog callback-a ne bi dvaput obavestile prodavca
+        PaymentTransaction tx = transactionRepository.findByUuidForUpdate(confirmation.getTransactionUuid())
+                .orElseThrow(() -> new RuntimeException("Transakcija nije pronađena."));
+
+        if (tx.getStatus() == TransactionStatus.SUCCESS || tx.getStatus() == TransactionStatus.FAILED) {
+            auditLogger.logEvent("CRYPTO_CALLBACK_DUPLICATE", "IGNORED", "UUID: " + tx.getUuid() + " | Status: " + tx.getStatus());
+            return;
+        }
+
+        tx.setCryptoAddress(confirmation.getWalletAddress());
+        tx.setCryptoCurrency("BTC");
+        tx.setAmountInCrypto(BigDecimal.valueOf(confirmation.getReceivedSats()).movePointLeft(8));
+
+        PaymentCallbackDTO callback = new PaymentCallbackDTO();
+        callback.setPaymentId(tx.getUuid());
+        callback.setStatus(confirmation.getStatus());
+        callback.setExternalTransactionId(confirmation.getWalletAddress());
+        callback.setExecutionId(tx.getExecutionId());
+        callback.setServiceTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(confirmation.getConfirmedAt()), ZoneId.systemDefault()));
+
+        paymentService.finaliseTransaction(callback, "CRYPTO");
+        auditLogger.logEvent("PAYMENT_SUCCESS_CONFIRMED", tx.getStatus().toString(), "UUID: " + tx.getUuid());
+    }
+}
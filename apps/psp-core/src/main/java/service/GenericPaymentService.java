@@ -21,6 +21,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class GenericPaymentService {
 
     private final DiscoveryClient discoveryClient;
+    private final ConnectorRouter connectorRouter;
     private final RestClient.Builder restClientBuilder;
     private final PaymentMethodRepository paymentMethodRepository;
     private final PaymentTransactionRepository transactionRepository;
@@ -32,11 +33,13 @@ public class GenericPaymentService {
     private String externalUrl;
 
     public GenericPaymentService(DiscoveryClient discoveryClient,
+                                 ConnectorRouter connectorRouter,
                                  RestClient.Builder restClientBuilder,
                                  PaymentMethodRepository paymentMethodRepository,
                                  PaymentTransactionRepository transactionRepository,
                                  AuditLogger auditLogger) { // Dodato u konstruktor
         this.discoveryClient = discoveryClient;
+        this.connectorRouter = connectorRouter;
         this.restClientBuilder = restClientBuilder;
         this.paymentMethodRepository = paymentMethodRepository;
         this.transactionRepository = transactionRepository;
@@ -57,14 +60,15 @@ public class GenericPaymentService {
 
         for (int i = 0; i < maxAttempts; i++) {
             try {
-                List<ServiceInstance> instances = discoveryClient.getInstances(method.getServiceName());
+                // Consistent hash po UUID-u: init i kasniji details pozivi stižu na istu repliku konektora.
+                // Ponovni pokušaj ide na sledeću instancu na prstenu.
+                List<ServiceInstance> instances = connectorRouter.route(method.getServiceName(), tx.getUuid(), maxAttempts);
                 if (instances.isEmpty()) {
                     auditLogger.logSecurityAlert("INSTANCE_NOT_FOUND", "No instances for service: " + method.getServiceName());
                     throw new RuntimeException("Nema dostupnih instanci za servis: " + method.getServiceName());
                 }
 
-                int index = Math.abs(counter.getAndIncrement()) % instances.size();
-                ServiceInstance instance = instances.get(index);
+                ServiceInstance instance = instances.get(i % instances.size());
                 String baseUrl = instance.getUri().toString();
 
                 // PCI DSS 10.2.4: Beleženje svakog pokušaja komunikacije
@@ -149,9 +153,15 @@ public class GenericPaymentService {
                 .transactionUuid(tx.getUuid())
                 .returnUrl(returnUrl)
                 .cancelUrl(tx.getFailedUrl())
+                .callbackUrl(confirmationCallbackUrl(methodName))
                 .build();
     }
 
+    // Potvrdu sam šalje (push) samo kripto konektor - ostali metodi nemaju finalize endpoint u Core-u
+    private String confirmationCallbackUrl(String methodName) {
+        return "CRYPTO".equalsIgnoreCase(methodName) ? externalUrl + "/api/payments/finalize/crypto" : null;
+    }
+
     public Map<String, Object> getDetails(String uuid, String methodName) {
         auditLogger.logEvent("GET_DETAILS_START", "PENDING",
                 "Method: " + methodName + " | UUID: " + uuid);
@@ -165,76 +175,36 @@ public class GenericPaymentService {
             throw new RuntimeException("Service name nije definisan za: " + methodName);
         }
 
-        // 2. Service Discovery (Nađi IP adresu i port mikroservisa)
-        List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
+        // 2. Instanca koja je vlasnik transakcije (consistent hash po UUID-u), pa rezerve
+        List<ServiceInstance> instances = connectorRouter.route(serviceName, uuid, 2);
         if (instances.isEmpty()) {
             auditLogger.logSecurityAlert("INSTANCE_NOT_FOUND", "No instances for: " + serviceName);
             throw new RuntimeException("Servis nije dostupan: " + serviceName);
         }
 
-        // Jednostavan Load Balancing (Round Robin)
-        int index = Math.abs(counter.getAndIncrement()) % instances.size();
-        ServiceInstance instance = instances.get(index);
-        String baseUrl = instance.getUri().toString();
-
-        try {
-            // 3. Poziv Mikroservisa
-            // Gađamo endpoint: GET /api/connector/details/{uuid}
-            auditLogger.logEvent("MICROSERVICE_DETAILS_REQ", "SENDING", "To: " + baseUrl);
-
-            @SuppressWarnings("unchecked")
-            Map<String, Object> response = restClientBuilder.build()
-                    .get()
-                    .uri(baseUrl + "/api/connector/details/" + uuid)
-                    .retrieve()
-                    .body(Map.class); // Očekujemo Mapu kao odgovor
-
-            auditLogger.logEvent("GET_DETAILS_SUCCESS", "SUCCESS", "UUID: " + uuid);
-            return response;
-
-        } catch (Exception e) {
-            auditLogger.logEvent("GET_DETAILS_FAILED", "ERROR", "Reason: " + e.getMessage());
-            throw new RuntimeException("Neuspešno dohvatanje detalja od mikroservisa: " + e.getMessage());
-        }
-    }
-
-    public boolean checkTransactionStatus(String uuid, String methodName) {
-        // 1. Nađi podatke o metodi (da bismo znali ime servisa, npr. 'psp-crypto')
-        PaymentMethod method = paymentMethodRepository.findByName(methodName)
-                .orElseThrow(() -> new RuntimeException("Nepoznat metod: " + methodName));
-
-        String serviceName = method.getServiceName(); // npr. "psp-crypto-service"
-
-        // 2. Service Discovery (Tražimo instancu mikroservisa)
-        List<ServiceInstance> instances = discoveryClient.getInstances(serviceName);
-        if (instances.isEmpty()) {
-            System.err.println("Nema dostupnih instanci za servis: " + serviceName);
-            return false;
-        }
-
-        // Load Balancing (Round Robin)
-        int index = Math.abs(counter.getAndIncrement()) % instances.size();
-        String baseUrl = instances.get(index).getUri().toString();
-
-        try {
-            // 3. POZIV MIKROSERVISA
-            // Gađamo endpoint koji si definisala u CryptoConnectorController:
-            // @GetMapping("/check-status/{uuid}")
-
-            auditLogger.logEvent("MICROSERVICE_STATUS_CHECK", "SENDING", "UUID: " + uuid);
-
-            Boolean isPaid = restClientBuilder.build()
-                    .get()
-                    .uri(baseUrl + "/api/connector/check-status/" + uuid)
-                    .retrieve()
-                    .body(Boolean.class);
+        Exception lastException = null;
+        for (ServiceInstance instance : instances) {
+            String baseUrl = instance.getUri().toString();
+            try {
+                // 3. Poziv Mikroservisa
+                // Gađamo endpoint: GET /api/connector/details/{uuid}
+                auditLogger.logEvent("MICROSERVICE_DETAILS_REQ", "SENDING", "To: " + baseUrl);
+
+                @SuppressWarnings("unchecked")
+                Map<String, Object> response = restClientBuilder.build()
+                        .get()
+                        .uri(baseUrl + "/api/connector/details/" + uuid)
+                        .retrieve()
+                        .body(Map.class); // Očekujemo Mapu kao odgovor
 
-            return isPaid != null && isPaid;
+                auditLogger.logEvent("GET_DETAILS_SUCCESS", "SUCCESS", "UUID: " + uuid);
+                return response;
 
-        } catch (Exception e) {
-            System.err.println("Greška pri proveri statusa na mikroservisu: " + e.getMessage());
-            // Ako pukne veza, samo kažemo da nije plaćeno (korisnik će probati opet za 3 sekunde)
-            return false;
+            } catch (Exception e) {
+                lastException = e;
+                auditLogger.logEvent("GET_DETAILS_FAILED", "ERROR", "Instance: " + baseUrl + " | Reason: " + e.getMessage());
+            }
         }
+        throw new RuntimeException("Neuspešno dohvatanje detalja od mikroservisa: " + lastException.getMessage());
     }
 }
\ No newline at end of file
@@ -6,6 +6,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestTemplate;
 import repository.MerchantRepository;
 import repository.MerchantSubscriptionRepository;
@@ -128,15 +130,35 @@ public class PaymentService {
         transactionRepository.save(tx);
         auditLogger.logEvent("STATUS_UPDATE", tx.getStatus().toString(), "Old: " + oldStatus + " | UUID: " + tx.getUuid());
 
-        try {
-            notifyWebShop(tx, paymentMethod);
-        } catch (Exception e) {
-            auditLogger.logEvent("WEBHOOK_NOTIFICATION_FAILED", "ERROR", "UUID: " + tx.getUuid());
-        }
+        notifyWebShopAfterCommit(tx, paymentMethod);
 
         return (tx.getStatus() == TransactionStatus.SUCCESS) ? tx.getSuccessUrl() : tx.getFailedUrl();
     }
 
+    /**
+     * Prodavac se obaveštava tek posle commit-a: do tri sinhrona POST-a ka web shop-u ne smeju
+     * da drže otvorenu transakciju ni zaključan red (npr. findByUuidForUpdate u kripto potvrdi).
+     */
+    private void notifyWebShopAfterCommit(PaymentTransaction tx, String paymentMethod) {
+        Runnable notification = () -> {
+            try {
+                notifyWebShop(tx, paymentMethod);
+            } catch (Exception e) {
+                auditLogger.logEvent("WEBHOOK_NOTIFICATION_FAILED", "ERROR", "UUID: " + tx.getUuid());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notification.run();
+                }
+            });
+        } else {
+            notification.run();
+        }
+    }
+
     private void notifyWebShop(PaymentTransaction tx, String paymentMethod) {
         Merchant merchant = merchantRepository.findByMerchantId(tx.getMerchantId()).orElseThrow();
         String targetUrl = tx.getStatus() == TransactionStatus.SUCCESS ? merchant.getWebShopUrl() + "/success" : merchant.getWebShopUrl() + "/failed";
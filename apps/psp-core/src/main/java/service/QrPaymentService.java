@@ -1,5 +1,6 @@
 package service;
 
+import com.example.commons.IpsQrCodec;
 import dto.PaymentInitResult;
 import model.Merchant;
 import model.PaymentTransaction;
@@ -28,11 +29,18 @@ public class QrPaymentService implements  PaymentProvider{
 
     @Override
     public PaymentInitResult initiate(PaymentTransaction transaction) {
-        String qrData = getIpsQrData(transaction);
-        return PaymentInitResult.builder().qrData(qrData).build();
+        Map<String, Object> body = requestQrFromBank(transaction);
+        return PaymentInitResult.builder()
+                .qrData(body.get("qrData").toString())
+                .qrImageUrl(body.get("qrImageUrl") != null ? body.get("qrImageUrl").toString() : null)
+                .build();
     }
 
     public String getIpsQrData(PaymentTransaction transaction) {
+        return requestQrFromBank(transaction).get("qrData").toString();
+    }
+
+    private Map<String, Object> requestQrFromBank(PaymentTransaction transaction) {
         Merchant merchant = merchantRepository.findByMerchantId(transaction.getMerchantId())
                 .orElseThrow(() -> new RuntimeException("Prodavac sa ID-jem " + transaction.getMerchantId() + " nije pronađen!"));
 
@@ -56,7 +64,7 @@ public class QrPaymentService implements  PaymentProvider{
 
                 // VALIDACIJA PREMA NBS (PDF dokumentacija)
                 if (validateIpsString(qrData)) {
-                    return qrData;
+                    return body;
                 } else {
                     throw new RuntimeException("Dobijeni QR podaci nisu u skladu sa NBS standardom!");
                 }
@@ -79,17 +87,12 @@ public class QrPaymentService implements  PaymentProvider{
                 (lastException != null ? lastException.getMessage() : "Nepoznata greška"));
     }
 
-    // Metoda koja implementira pravila iz PDF-a [cite: 5, 11, 22, 65]
+    // Pravila NBS IPS standarda (obavezni tagovi, redosled K/V/C, račun od 18 cifara, iznos RSD sa zarezom, šifra plaćanja)
+    // proverava IpsQrCodec u jednom prolazu
     private boolean validateIpsString(String s) {
-        if (s == null || !s.startsWith("K:PR|V:01|C:1")) return false; // [cite: 14, 16, 17]
-        if (s.endsWith("|")) return false; // [cite: 13]
-
-        // Provera računa (Tag R: mora imati 18 cifara)
-        if (!s.contains("|R:") || s.split("\\|R:")[1].substring(0, 18).matches(".*\\D.*")) return false;
-
-        // Provera iznosa (Mora RSD i zarez) [cite: 64, 65]
-        if (!s.contains("|I:RSD") || !s.contains(",")) return false;
-
-        return true;
+        IpsQrCodec.Fields fields = new IpsQrCodec.Fields();
+        return IpsQrCodec.tryDecode(s, fields)
+                && fields.valueEquals(IpsQrCodec.Tag.K, "PR")
+                && "RSD".equals(fields.getCurrency());
     }
 }
@@ -0,0 +1,292 @@
+package service;
+
+import dto.ReconciliationRowDTO;
+import model.MismatchType;
+import model.ReconciliationMismatch;
+import model.ReconciliationRun;
+import model.TransactionStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import repository.PaymentTransactionRepository;
+import repository.ReconciliationMismatchRepository;
+import repository.ReconciliationRunRepository;
+import tools.AuditLogger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Poravnanje dnevnog settlement fajla banke sa našim transakcijama.
+ *
+ * Fajl se čita red po red, a D stavke se skupljaju u blokove od batch-size. Za svaki blok
+ * jedan upit vraća naše transakcije (po executionId-ju = paymentId banke, ili po našem UUID-u),
+ * pa se stavke uparuju hash join-om u memoriji i proveravaju status, iznos i STAN. Neslaganja
+ * se upisuju po bloku, a uparene transakcije se po bloku vežu za run (settled_run_id) - memorija
+ * zavisi samo od veličine bloka, ne od veličine fajla. Tek kada E red potvrdi da je fajl ceo, run
+ * se jednim UPDATE-om promoviše u settled_on; neuspešan run briše svoje uparivanje, pa odsečen ili
+ * neispravan fajl ne ostavlja delimično poravnat dan. Na kraju se traže SUCCESS transakcije tog
+ * dana koje banka nije naplatila.
+ */
+@Service
+public class ReconciliationService {
+
+    private final PaymentTransactionRepository transactionRepository;
+    private final ReconciliationRunRepository runRepository;
+    private final ReconciliationMismatchRepository mismatchRepository;
+    private final RestTemplate restTemplate;
+    private final AuditLogger auditLogger;
+    private final Set<LocalDate> running = ConcurrentHashMap.newKeySet();
+
+    @Value("${psp.reconciliation.batch-size:2000}")
+    private int batchSize;
+
+    // Metode koje idu preko banke i moraju se pojaviti u njenom settlement fajlu
+    // (nazivi kao u chosenMethod - QR plaćanja se finalizuju kao QR_CODE)
+    @Value("${psp.reconciliation.bank-methods:CARD,QR_CODE}")
+    private List<String> bankMethods;
+
+    @Value("${psp.reconciliation.bank-url:https://localhost:8082}")
+    private String bankUrl;
+
+    public ReconciliationService(PaymentTransactionRepository transactionRepository,
+                                 ReconciliationRunRepository runRepository,
+                                 ReconciliationMismatchRepository mismatchRepository,
+                                 RestTemplate restTemplate,
+                                 AuditLogger auditLogger) {
+        this.transactionRepository = transactionRepository;
+        this.runRepository = runRepository;
+        this.mismatchRepository = mismatchRepository;
+        this.restTemplate = restTemplate;
+        this.auditLogger = auditLogger;
+    }
+
+    /** Preuzima settlement fajl za dan direktno od banke i poravnava ga dok stiže (bez čuvanja na disk). */
+    public ReconciliationRun fetchAndReconcile(LocalDate day) {
+        String url = bankUrl + "/api/bank/settlement/" + day;
+        return restTemplate.execute(url, HttpMethod.GET, null,
+                response -> reconcile(response.getBody(), day, url));
+    }
+
+    /**
+     * @param expectedDay dan za koji se očekuje fajl; null ako se uzima iz zaglavlja (upload)
+     */
+    public ReconciliationRun reconcile(InputStream input, LocalDate expectedDay, String source) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.US_ASCII), 64 * 1024);
+
+        String header = reader.readLine();
+        String[] h = header == null ? new String[0] : header.split("\\|");
+        if (h.length < 3 || !"H".equals(h[0]) || !"v1".equals(h[2])) {
+            throw new RuntimeException("Neispravno zaglavlje settlement fajla!");
+        }
+        LocalDate day = LocalDate.parse(h[1]);
+        if (expectedDay != null && !expectedDay.equals(day)) {
+            throw new RuntimeException("Settlement fajl je za " + day + ", očekivan " + expectedDay + "!");
+        }
+        if (!running.add(day)) {
+            throw new RuntimeException("Poravnanje za " + day + " je već u toku!");
+        }
+
+        ReconciliationRun run = new ReconciliationRun();
+        run.setSettlementDate(day);
+        run.setSource(source);
+        run.setStatus("RUNNING");
+        run.setStartedAt(LocalDateTime.now());
+        run = runRepository.save(run);
+        auditLogger.logEvent("RECONCILIATION", "START", "Day: " + day + " | Source: " + source + " | RunID: " + run.getId());
+
+        long started = System.nanoTime();
+        try {
+            Map<String, SettledEntry> batch = new LinkedHashMap<>();
+            long lines = 1;
+            long records = 0;
+            BigDecimal total = BigDecimal.ZERO;
+            String[] trailer = null;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines++;
+                if (line.isEmpty()) continue;
+                String[] f = line.split("\\|", -1);
+                switch (f[0]) {
+                    case "D" -> {
+                        if (f.length < 8) throw new RuntimeException("Neispravna stavka u redu " + lines + "!");
+                        SettledEntry entry = new SettledEntry(f[1], f[2], f[4], new BigDecimal(f[5]));
+                        batch.put(entry.paymentId(), entry);
+                        records++;
+                        total = total.add(entry.amount());
+                        if (batch.size() >= batchSize) {
+                            matchBatch(run, batch);
+                            batch.clear();
+                            run.setLines(lines);
+                            runRepository.save(run);
+                        }
+                    }
+                    case "E" -> trailer = f;
+                    case "M", "T" -> { } // granice prodavaca - zbirovi se proveravaju preko E reda
+                    default -> throw new RuntimeException("Nepoznat tip reda '" + f[0] + "' u redu " + lines + "!");
+                }
+            }
+            if (!batch.isEmpty()) {
+                matchBatch(run, batch);
+            }
+            run.setLines(lines);
+
+            // Bez E reda fajl je odsečen - traženje nenaplaćenih bi dalo lažna neslaganja
+            if (trailer == null || trailer.length < 3) {
+                throw new RuntimeException("Settlement fajl nema završni red (prekinut prenos?)");
+            }
+            if (Long.parseLong(trailer[1]) != records || new BigDecimal(trailer[2]).compareTo(total) != 0) {
+                throw new RuntimeException("Završni red ne odgovara stavkama: " + trailer[1] + "/" + trailer[2]
+                        + " a pročitano " + records + "/" + total.toPlainString());
+            }
+
+            // Fajl je potvrđen - tek sada uparene transakcije run-a postaju settled
+            transactionRepository.promoteRun(run.getId(), day);
+
+            findUnsettled(run, day);
+            run.setStatus("COMPLETED");
+        } catch (IOException | RuntimeException e) {
+            run.setStatus("FAILED");
+            run.setErrorMessage(e.getMessage() != null && e.getMessage().length() > 500
+                    ? e.getMessage().substring(0, 500) : e.getMessage());
+            auditLogger.logSecurityAlert("RECONCILIATION_FAILED", "Day: " + day + " | RunID: " + run.getId() + " | " + e.getMessage());
+            try {
+                transactionRepository.clearRun(run.getId());
+            } catch (RuntimeException cleanup) {
+                auditLogger.logEvent("RECONCILIATION_CLEANUP_ERROR", "ERROR", "RunID: " + run.getId() + " | " + cleanup.getMessage());
+            }
+        } finally {
+            running.remove(day);
+        }
+
+        double seconds = Math.max((System.nanoTime() - started) / 1_000_000_000.0, 0.001);
+        run.setLinesPerSecond(run.getLines() / seconds);
+        run.setFinishedAt(LocalDateTime.now());
+        run = runRepository.save(run);
+
+        auditLogger.logEvent("RECONCILIATION", run.getStatus(),
+                "Day: " + day + " | Lines: " + run.getLines() + " | Matched: " + run.getMatched()
+                        + " | Mismatches: " + run.getMismatches() + " | Unsettled: " + run.getUnsettled()
+                        + " | Lines/s: " + Math.round(run.getLinesPerSecond()));
+        return run;
+    }
+
+    // Hash join bloka stavki sa našim transakcijama - jedan SELECT, jedan UPDATE i jedan batch INSERT po bloku
+    private void matchBatch(ReconciliationRun run, Map<String, SettledEntry> batch) {
+        List<String> uuids = new ArrayList<>(batch.size());
+        for (SettledEntry entry : batch.values()) {
+            if (entry.pspTransactionId() != null && !entry.pspTransactionId().isEmpty()) uuids.add(entry.pspTransactionId());
+        }
+
+        List<ReconciliationRowDTO> rows = transactionRepository.findForReconciliation(batch.keySet(), uuids);
+        Map<String, ReconciliationRowDTO> byExecutionId = new HashMap<>(rows.size() * 2);
+        Map<String, ReconciliationRowDTO> byUuid = new HashMap<>(rows.size() * 2);
+        for (ReconciliationRowDTO row : rows) {
+            if (row.getExecutionId() != null) byExecutionId.put(row.getExecutionId(), row);
+            byUuid.put(row.getUuid(), row);
+        }
+
+        List<Long> settledIds = new ArrayList<>(batch.size());
+        List<ReconciliationMismatch> mismatches = new ArrayList<>();
+        long matched = 0;
+
+        for (SettledEntry entry : batch.values()) {
+            ReconciliationRowDTO row = byExecutionId.get(entry.paymentId());
+            if (row == null) row = byUuid.get(entry.pspTransactionId());
+
+            if (row == null) {
+                mismatches.add(mismatch(run, MismatchType.SETTLED_UNKNOWN, entry.paymentId(), null,
+                        "Banka je naplatila " + entry.amount().toPlainString() + ", transakcija kod nas ne postoji"));
+                continue;
+            }
+            settledIds.add(row.getId());
+
+            boolean ok = true;
+            if (row.getStatus() == TransactionStatus.FAILED || row.getStatus() == TransactionStatus.ERROR) {
+                mismatches.add(mismatch(run, MismatchType.SETTLED_BUT_FAILED, entry.paymentId(), row.getUuid(),
+                        "Banka je naplatila, lokalni status " + row.getStatus()));
+                ok = false;
+            } else if (row.getStatus() != TransactionStatus.SUCCESS) {
+                mismatches.add(mismatch(run, MismatchType.SETTLED_BUT_PENDING, entry.paymentId(), row.getUuid(),
+                        "Banka je naplatila, lokalni status " + row.getStatus()));
+                ok = false;
+            }
+            if (row.getAmount().compareTo(entry.amount()) != 0) {
+                mismatches.add(mismatch(run, MismatchType.AMOUNT_MISMATCH, entry.paymentId(), row.getUuid(),
+                        "Banka: " + entry.amount().toPlainString() + " | PSP: " + row.getAmount().toPlainString()));
+                ok = false;
+            }
+            if (row.getStan() != null && !entry.stan().isEmpty() && !row.getStan().equals(entry.stan())) {
+                mismatches.add(mismatch(run, MismatchType.STAN_MISMATCH, entry.paymentId(), row.getUuid(),
+                        "Banka: " + entry.stan() + " | PSP: " + row.getStan()));
+                ok = false;
+            }
+            if (ok) matched++;
+        }
+
+        if (!settledIds.isEmpty()) {
+            transactionRepository.markMatched(settledIds, run.getId());
+        }
+        if (!mismatches.isEmpty()) {
+            mismatchRepository.saveAll(mismatches);
+        }
+        run.setSettledRecords(run.getSettledRecords() + batch.size());
+        run.setMatched(run.getMatched() + matched);
+        run.setMismatches(run.getMismatches() + mismatches.size());
+    }
+
+    // SUCCESS kod nas, a nijedan settlement ih nije potvrdio - keyset po id-ju, blok po blok
+    private void findUnsettled(ReconciliationRun run, LocalDate day) {
+        LocalDateTime from = day.atStartOfDay();
+        LocalDateTime to = day.plusDays(1).atStartOfDay();
+        long afterId = 0;
+        while (true) {
+            List<ReconciliationRowDTO> rows = transactionRepository.findUnsettled(
+                    bankMethods, from, to, afterId, PageRequest.of(0, batchSize));
+            if (rows.isEmpty()) break;
+
+            List<ReconciliationMismatch> mismatches = new ArrayList<>(rows.size());
+            for (ReconciliationRowDTO row : rows) {
+                mismatches.add(mismatch(run, MismatchType.SUCCESS_NOT_SETTLED, row.getExecutionId(), row.getUuid(),
+                        "Lokalno SUCCESS (" + row.getAmount().toPlainString() + "), banka nije naplatila"));
+                afterId = row.getId();
+            }
+            mismatchRepository.saveAll(mismatches);
+            run.setUnsettled(run.getUnsettled() + rows.size());
+            run.setMismatches(run.getMismatches() + rows.size());
+
+            if (rows.size() < batchSize) break;
+        }
+    }
+
+    private static ReconciliationMismatch mismatch(ReconciliationRun run, MismatchType type,
+                                                   String executionId, String uuid, String detail) {
+        ReconciliationMismatch m = new ReconciliationMismatch();
+        m.setRunId(run.getId());
+        m.setType(type);
+        m.setExecutionId(executionId);
+        m.setTransactionUuid(uuid);
+        m.setDetail(detail);
+        m.setCreatedAt(LocalDateTime.now());
+        return m;
+    }
+
+    private record SettledEntry(String paymentId, String pspTransactionId, String stan, BigDecimal amount) {
+    }
+}
@@ -0,0 +1,36 @@
+package tools;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/**
+ * HMAC-SHA256 potpis server-to-server callback-ova između PSP mikroservisa.
+ * Isti algoritam koristi psp-crypto pri slanju potvrde uplate.
+ */
+public final class CallbackSignature {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private CallbackSignature() {
+    }
+
+    public static String sign(String secret, String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Greška pri potpisivanju callback-a", e);
+        }
+    }
+
+    public static boolean verify(String secret, String payload, String signature) {
+        if (signature == null) return false;
+        byte[] expected = sign(secret, payload).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(expected, signature.toLowerCase().getBytes(StandardCharsets.UTF_8));
+    }
+}
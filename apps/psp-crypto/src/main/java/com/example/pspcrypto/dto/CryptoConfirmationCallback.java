@@ -0,0 +1,19 @@
+package com.example.pspcrypto.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CryptoConfirmationCallback {
+    private String transactionUuid;
+    private String status;          // SUCCESS
+    private String walletAddress;
+    private long receivedSats;
+    private long confirmedAt;       // epoch millis
+    private long timestamp;         // epoch millis, ulazi u potpis
+}
@@ -20,4 +20,7 @@ public class MicroservicePaymentRequest {
     private String successUrl;
     private String failedUrl;
     private String errorUrl;
+
+    // psp-core endpoint za potpisanu potvrdu uplate (Server-to-Server)
+    private String callbackUrl;
 }
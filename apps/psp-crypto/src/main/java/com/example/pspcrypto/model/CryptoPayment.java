@@ -0,0 +1,74 @@
+package com.example.pspcrypto.model;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stanje jedne kripto uplate u memoriji psp-crypto instance.
+ * Polja koja menja watcher su volatile jer ih HTTP niti čitaju bez zaključavanja.
+ */
+@Getter
+public class CryptoPayment {
+
+    private final String transactionUuid;
+    private final String address;
+    private final BigDecimal amountBtc;
+    private final long expectedSats;
+    private final Instant createdAt;
+    private final String callbackUrl;
+
+    private volatile boolean confirmed;
+    private volatile long receivedSats;
+    private volatile Instant confirmedAt;
+
+    // Adaptivni raspored provera (koristi ga samo watcher nit)
+    private volatile long nextCheckAtMillis;
+    private volatile long checkIntervalMillis;
+
+    // Isporuka potvrde ka psp-core
+    private final AtomicBoolean callbackInFlight = new AtomicBoolean(false);
+    private volatile boolean callbackDelivered;
+
+    public CryptoPayment(String transactionUuid, String address, BigDecimal amountBtc,
+                         String callbackUrl, long initialIntervalMillis) {
+        this.transactionUuid = transactionUuid;
+        this.address = address;
+        this.amountBtc = amountBtc;
+        this.callbackUrl = callbackUrl;
+        this.expectedSats = amountBtc.movePointRight(8).longValue();
+        this.createdAt = Instant.now();
+        this.checkIntervalMillis = initialIntervalMillis;
+        this.nextCheckAtMillis = System.currentTimeMillis() + initialIntervalMillis;
+    }
+
+    public void markConfirmed(long receivedSats) {
+        this.receivedSats = receivedSats;
+        this.confirmedAt = Instant.now();
+        this.confirmed = true;
+    }
+
+    public void recordReceived(long receivedSats) {
+        this.receivedSats = receivedSats;
+    }
+
+    public void scheduleNextCheck(long intervalMillis) {
+        this.checkIntervalMillis = intervalMillis;
+        this.nextCheckAtMillis = System.currentTimeMillis() + intervalMillis;
+    }
+
+    public boolean tryStartCallback() {
+        return callbackInFlight.compareAndSet(false, true);
+    }
+
+    public void callbackFinished(boolean delivered) {
+        this.callbackDelivered = delivered;
+        callbackInFlight.set(false);
+    }
+
+    public boolean isDue(long nowMillis) {
+        return nowMillis >= nextCheckAtMillis;
+    }
+}
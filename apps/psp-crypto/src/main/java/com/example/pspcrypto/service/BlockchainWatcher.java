@@ -0,0 +1,197 @@
+package com.example.pspcrypto.service;
+
+import com.example.pspcrypto.model.CryptoPayment;
+import com.example.pspcrypto.tools.AuditLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Jedan zakazani watcher koji prati sve adrese koje čekaju uplatu.
+ *
+ * Na svakom tick-u uzima do batch-size adresa kojima je došao red i proverava ih na
+ * mempool.space uz ograničen broj paralelnih zahteva. Interval provere je adaptivan po adresi:
+ * kratak dok stižu nova sredstva, a eksponencijalno raste do max-interval dok je adresa prazna.
+ * Na 429 od upstream-a ceo watcher pauzira. Rezultat se upisuje u {@link CryptoPaymentStore},
+ * pa /check-status ne radi nikakav mrežni poziv. Potvrda se odmah gura ka psp-core
+ * preko {@link ConfirmationPublisher}.
+ */
+@Component
+public class BlockchainWatcher {
+
+    private static final long SATS_TOLERANCE = 5000;
+
+    private final WebClient webClient;
+    private final CryptoPaymentStore store;
+    private final ConfirmationPublisher confirmationPublisher;
+    private final AuditLogger auditLogger;
+
+    @Value("${mempool.base-url:https://mempool.space/testnet/api}")
+    private String mempoolUrl;
+
+    @Value("${crypto.watcher.batch-size:200}")
+    private int batchSize;
+
+    @Value("${crypto.watcher.max-concurrency:16}")
+    private int maxConcurrency;
+
+    @Value("${crypto.watcher.min-interval-ms:5000}")
+    private long minIntervalMillis;
+
+    @Value("${crypto.watcher.max-interval-ms:60000}")
+    private long maxIntervalMillis;
+
+    @Value("${crypto.watcher.request-timeout-ms:10000}")
+    private long requestTimeoutMillis;
+
+    @Value("${crypto.watcher.watch-timeout-minutes:60}")
+    private long watchTimeoutMinutes;
+
+    @Value("${crypto.watcher.retention-hours:24}")
+    private long retentionHours;
+
+    private volatile long backoffUntilMillis;
+
+    public BlockchainWatcher(WebClient.Builder webClientBuilder, CryptoPaymentStore store,
+                             ConfirmationPublisher confirmationPublisher, AuditLogger auditLogger) {
+        this.webClient = webClientBuilder.build();
+        this.store = store;
+        this.confirmationPublisher = confirmationPublisher;
+        this.auditLogger = auditLogger;
+    }
+
+    public long getMinIntervalMillis() {
+        return minIntervalMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${crypto.watcher.tick-ms:2000}")
+    public void poll() {
+        long now = System.currentTimeMillis();
+        evictStale();
+        if (now < backoffUntilMillis) return;
+
+        // Potvrđene uplate čija isporuka ka psp-core nije uspela - ponovni pokušaj
+        for (CryptoPayment payment : store.pending()) {
+            if (payment.isConfirmed() && payment.isDue(now)) {
+                payment.scheduleNextCheck(maxIntervalMillis);
+                confirmationPublisher.publish(payment);
+            }
+        }
+
+        List<CryptoPayment> due = store.pending().stream()
+                .filter(p -> !p.isConfirmed() && p.isDue(now))
+                .sorted(Comparator.comparingLong(CryptoPayment::getNextCheckAtMillis))
+                .limit(batchSize)
+                .toList();
+
+        if (due.isEmpty()) return;
+
+        // Svaki zahtev traje najviše request-timeout, a paralelno ih ide max-concurrency:
+        // ceo batch staje u ceil(batch / concurrency) talasa, plus jedan talas rezerve
+        long waves = (due.size() + maxConcurrency - 1) / maxConcurrency;
+        Duration budget = Duration.ofMillis(requestTimeoutMillis * (waves + 1));
+        Set<String> checked = ConcurrentHashMap.newKeySet(due.size() * 2);
+
+        try {
+            Flux.fromIterable(due)
+                    .flatMap(payment -> fetchReceivedSats(payment.getAddress())
+                                    .doOnNext(sats -> evaluate(payment, sats))
+                                    .onErrorResume(e -> {
+                                        onCheckError(payment, e);
+                                        return Mono.empty();
+                                    })
+                                    .doOnTerminate(() -> checked.add(payment.getTransactionUuid())),
+                            maxConcurrency)
+                    .then()
+                    .block(budget);
+        } catch (RuntimeException e) {
+            // Ostatak batch-a je otkazan - pomeramo ga kao posle greške, da sledeći tick ne krene od istih adresa
+            int skipped = 0;
+            for (CryptoPayment payment : due) {
+                if (!checked.contains(payment.getTransactionUuid())) {
+                    payment.scheduleNextCheck(Math.min(payment.getCheckIntervalMillis() * 2, maxIntervalMillis));
+                    skipped++;
+                }
+            }
+            auditLogger.logEvent("CRYPTO_WATCHER_BATCH_TIMEOUT", "ERROR",
+                    "Neprovereno: " + skipped + "/" + due.size() + " | Budžet: " + budget.toMillis() + "ms");
+        }
+    }
+
+    private Mono<Long> fetchReceivedSats(String address) {
+        return webClient.get()
+                .uri(mempoolUrl + "/address/" + address)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .timeout(Duration.ofMillis(requestTimeoutMillis))
+                .map(response -> {
+                    Map chainStats = (Map) response.get("chain_stats");
+                    Map mempoolStats = (Map) response.get("mempool_stats");
+                    long confirmed = ((Number) chainStats.get("funded_txo_sum")).longValue();
+                    long unconfirmed = ((Number) mempoolStats.get("funded_txo_sum")).longValue();
+                    return confirmed + unconfirmed;
+                });
+    }
+
+    private void evaluate(CryptoPayment payment, long totalReceivedSats) {
+        long expectedSats = payment.getExpectedSats();
+        long difference = Math.abs(totalReceivedSats - expectedSats);
+
+        if (totalReceivedSats > 0 && (totalReceivedSats >= expectedSats || difference <= SATS_TOLERANCE)) {
+            payment.markConfirmed(totalReceivedSats);
+            payment.scheduleNextCheck(maxIntervalMillis);
+            auditLogger.logEvent("CRYPTO_PAYMENT_CONFIRMED", "SUCCESS", "UUID: " + payment.getTransactionUuid());
+            // Ostaje u pending skupu dok psp-core ne potvrdi prijem callback-a
+            confirmationPublisher.publish(payment);
+            return;
+        }
+
+        if (totalReceivedSats > payment.getReceivedSats()) {
+            // Stigla su nova (delimična) sredstva - proveravamo ponovo brzo
+            payment.recordReceived(totalReceivedSats);
+            payment.scheduleNextCheck(minIntervalMillis);
+        } else {
+            payment.scheduleNextCheck(Math.min(payment.getCheckIntervalMillis() * 2, maxIntervalMillis));
+        }
+    }
+
+    private void onCheckError(CryptoPayment payment, Throwable e) {
+        if (e instanceof WebClientResponseException wcre && wcre.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS) {
+            backoffUntilMillis = System.currentTimeMillis() + maxIntervalMillis;
+            auditLogger.logEvent("CRYPTO_WATCHER_THROTTLED", "BACKOFF", "Pauza: " + maxIntervalMillis + "ms");
+        } else {
+            auditLogger.logEvent("CRYPTO_CHECK_ERROR", "ERROR", "UUID: " + payment.getTransactionUuid() + " | " + e.getMessage());
+        }
+        payment.scheduleNextCheck(Math.min(payment.getCheckIntervalMillis() * 2, maxIntervalMillis));
+    }
+
+    private void evictStale() {
+        Instant watchCutoff = Instant.now().minus(Duration.ofMinutes(watchTimeoutMinutes));
+        Instant retentionCutoff = Instant.now().minus(Duration.ofHours(retentionHours));
+
+        for (CryptoPayment payment : store.pending()) {
+            if (payment.getCreatedAt().isBefore(watchCutoff)) {
+                store.stopWatching(payment.getTransactionUuid());
+                if (payment.isConfirmed()) {
+                    auditLogger.logSecurityAlert("CRYPTO_CALLBACK_UNDELIVERED", "UUID: " + payment.getTransactionUuid());
+                } else {
+                    auditLogger.logEvent("CRYPTO_WATCH_EXPIRED", "FAILED", "UUID: " + payment.getTransactionUuid());
+                }
+            }
+        }
+        store.evictCreatedBefore(retentionCutoff);
+    }
+}
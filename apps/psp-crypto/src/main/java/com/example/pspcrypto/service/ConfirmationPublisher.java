@@ -0,0 +1,102 @@
+package com.example.pspcrypto.service;
+
+import com.example.pspcrypto.dto.CryptoConfirmationCallback;
+import com.example.pspcrypto.model.CryptoPayment;
+import com.example.pspcrypto.tools.AuditLogger;
+import com.example.pspcrypto.tools.CallbackSignature;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+
+/**
+ * Šalje potpisanu potvrdu uplate ka psp-core čim watcher vidi sredstva na adresi.
+ * Isporuka je neblokirajuća, sa ponovnim pokušajima i eksponencijalnim backoff-om;
+ * ako svi pokušaji propadnu, watcher je ponovo pokreće na sledećem terminu provere.
+ */
+@Component
+public class ConfirmationPublisher {
+
+    private final WebClient webClient;
+    private final CryptoPaymentStore store;
+    private final AuditLogger auditLogger;
+
+    @Value("${crypto.callback.secret}")
+    private String callbackSecret;
+
+    @Value("${crypto.callback.max-retries:5}")
+    private int maxRetries;
+
+    public ConfirmationPublisher(WebClient.Builder webClientBuilder, CryptoPaymentStore store, AuditLogger auditLogger) {
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(insecureHttpClient()))
+                .build();
+        this.store = store;
+        this.auditLogger = auditLogger;
+    }
+
+    public void publish(CryptoPayment payment) {
+        if (payment.getCallbackUrl() == null) {
+            // Stariji psp-core ne šalje callbackUrl - status će pročitati preko /check-status
+            store.stopWatching(payment.getTransactionUuid());
+            return;
+        }
+        if (payment.isCallbackDelivered() || !payment.tryStartCallback()) return;
+
+        long now = System.currentTimeMillis();
+        CryptoConfirmationCallback body = CryptoConfirmationCallback.builder()
+                .transactionUuid(payment.getTransactionUuid())
+                .status("SUCCESS")
+                .walletAddress(payment.getAddress())
+                .receivedSats(payment.getReceivedSats())
+                .confirmedAt(payment.getConfirmedAt().toEpochMilli())
+                .timestamp(now)
+                .build();
+
+        // Isti redosled kao CryptoConfirmationService.signaturePayload u psp-core
+        String payload = body.getTransactionUuid() + "|" + body.getStatus() + "|"
+                + body.getWalletAddress() + "|" + body.getReceivedSats() + "|"
+                + body.getConfirmedAt() + "|" + body.getTimestamp();
+
+        webClient.post()
+                .uri(payment.getCallbackUrl())
+                .header("X-PSP-Signature", CallbackSignature.sign(callbackSecret, payload))
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .filter(e -> !(e instanceof WebClientResponseException wcre && wcre.getStatusCode().is4xxClientError())))
+                .subscribe(
+                        response -> {
+                            payment.callbackFinished(true);
+                            store.stopWatching(payment.getTransactionUuid());
+                            auditLogger.logEvent("CRYPTO_CALLBACK_DELIVERED", "SUCCESS", "UUID: " + payment.getTransactionUuid());
+                        },
+                        error -> {
+                            payment.callbackFinished(false);
+                            auditLogger.logEvent("CRYPTO_CALLBACK_FAILED", "RETRY_LATER",
+                                    "UUID: " + payment.getTransactionUuid() + " | " + error.getMessage());
+                        });
+    }
+
+    private HttpClient insecureHttpClient() {
+        try {
+            // psp-core/Gateway koriste self-signed sertifikat (localhost)
+            SslContext sslContext = SslContextBuilder.forClient()
+                    .trustManager(InsecureTrustManagerFactory.INSTANCE)
+                    .build();
+            return HttpClient.create().secure(t -> t.sslContext(sslContext));
+        } catch (Exception e) {
+            throw new RuntimeException("Greška pri kreiranju SSL konteksta", e);
+        }
+    }
+}
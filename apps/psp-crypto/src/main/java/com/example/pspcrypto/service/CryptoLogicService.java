@@ -2,23 +2,25 @@ package com.example.pspcrypto.service;
 
 import com.example.pspcrypto.dto.MicroservicePaymentRequest;
 import com.example.pspcrypto.dto.MicroservicePaymentResponse;
+import com.example.pspcrypto.model.CryptoPayment;
 import com.example.pspcrypto.tools.AuditLogger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class CryptoLogicService {
 
     private final WebClient webClient;
     private final AuditLogger auditLogger;
+    private final HdAddressService hdAddressService;
+    private final CryptoPaymentStore paymentStore;
+    private final BlockchainWatcher blockchainWatcher;
 
     @Value("${blockcypher.api.token}")
     private String blockCypherToken;
@@ -32,15 +34,15 @@ public class CryptoLogicService {
     @Value("${webshop.wallet-name:novcanik_prodavca}")
     private String walletName;
 
-    // Privremena memorija za mapiranje UUID -> CryptoAddress (u produkciji bi ovo bila baza)
-    private final Map<String, String> transactionAddressMap = new ConcurrentHashMap<>();
-    private final Map<String, BigDecimal> transactionAmountMap = new ConcurrentHashMap<>();
-    // Privremena memorija za status transakcije
-    private final Map<String, Boolean> transactionStatusMap = new ConcurrentHashMap<>();
-
-    public CryptoLogicService(WebClient.Builder webClientBuilder, AuditLogger auditLogger) {
+    public CryptoLogicService(WebClient.Builder webClientBuilder, AuditLogger auditLogger,
+                              HdAddressService hdAddressService,
+                              CryptoPaymentStore paymentStore,
+                              BlockchainWatcher blockchainWatcher) {
         this.webClient = webClientBuilder.build();
         this.auditLogger = auditLogger;
+        this.hdAddressService = hdAddressService;
+        this.paymentStore = paymentStore;
+        this.blockchainWatcher = blockchainWatcher;
     }
 
     public MicroservicePaymentResponse initializeCryptoPayment(MicroservicePaymentRequest req) {
@@ -52,12 +54,14 @@ public class CryptoLogicService {
             BigDecimal btcPrice = fetchCurrentBtcPrice(req.getCurrency().toLowerCase());
             BigDecimal amountInBtc = req.getAmount().divide(btcPrice, 8, RoundingMode.CEILING);
 
-            String cryptoAddress = generateDerivedAddress(walletName);
+            // Lokalna derivacija iz xpub-a; BlockCypher ostaje samo kao fallback ako xpub nije podešen
+            String cryptoAddress = hdAddressService.isEnabled()
+                    ? hdAddressService.nextReceiveAddress()
+                    : generateDerivedAddress(walletName);
 
-            // Čuvamo i iznos da bismo mogli kasnije da proverimo
-            transactionAddressMap.put(req.getTransactionUuid(), cryptoAddress);
-            transactionAmountMap.put(req.getTransactionUuid(), amountInBtc); // <--- NOVO
-            transactionStatusMap.put(req.getTransactionUuid(), false);
+            // Adresa ulazi u skup koji BlockchainWatcher proverava u batch-evima
+            paymentStore.register(new CryptoPayment(req.getTransactionUuid(), cryptoAddress, amountInBtc,
+                    req.getCallbackUrl(), blockchainWatcher.getMinIntervalMillis()));
 
             auditLogger.logEvent("CRYPTO_INIT_SUCCESS", "SUCCESS",
                     "Address: " + cryptoAddress + " | BTC: " + amountInBtc);
@@ -81,47 +85,10 @@ public class CryptoLogicService {
         }
     }
 
-    // Provera statusa (poziva se sa frontenda ili periodično)
-    public boolean checkPaymentStatus(String transactionUuid) { // Sklonili smo expectedAmountBtc iz argumenta jer ga imamo u mapi
-        String address = transactionAddressMap.get(transactionUuid);
-        BigDecimal expectedAmountBtc = transactionAmountMap.get(transactionUuid);
-
-        if (address == null || expectedAmountBtc == null) return false;
-
-        if (transactionStatusMap.getOrDefault(transactionUuid, false)) {
-            return true;
-        }
-
-        String url = "https://mempool.space/testnet/api/address/" + address;
-
-        try {
-            Map response = webClient.get().uri(url).retrieve().bodyToMono(Map.class).block();
-
-            if (response != null) {
-                Map chainStats = (Map) response.get("chain_stats");
-                Map mempoolStats = (Map) response.get("mempool_stats");
-
-                long confirmed = ((Number) chainStats.get("funded_txo_sum")).longValue();
-                long unconfirmed = ((Number) mempoolStats.get("funded_txo_sum")).longValue();
-                long totalReceivedSats = confirmed + unconfirmed;
-
-                // Konverzija očekivanog iznosa u Satoshije
-                long expectedSats = expectedAmountBtc.multiply(new BigDecimal(100_000_000)).longValue();
-
-                // Tolerancija od 5000 satoshija
-                long difference = Math.abs(totalReceivedSats - expectedSats);
-
-                // Logika iz starog servisa
-                if (totalReceivedSats > 0 && (totalReceivedSats >= expectedSats || difference <= 5000)) {
-                    transactionStatusMap.put(transactionUuid, true);
-                    auditLogger.logEvent("CRYPTO_PAYMENT_CONFIRMED", "SUCCESS", "UUID: " + transactionUuid);
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            auditLogger.logEvent("CRYPTO_CHECK_ERROR", "ERROR", e.getMessage());
-        }
-        return false;
+    // Provera statusa (poziva se sa frontenda ili iz psp-core) - samo čitanje stanja koje održava BlockchainWatcher
+    public boolean checkPaymentStatus(String transactionUuid) {
+        CryptoPayment payment = paymentStore.get(transactionUuid);
+        return payment != null && payment.isConfirmed();
     }
 
     // --- Pomoćne metode (BlockCypher & CoinGecko) ---
@@ -165,9 +132,10 @@ public class CryptoLogicService {
     public Map<String, Object> getDetailsFromCache(String uuid) {
         Map<String, Object> details = new HashMap<>();
 
-        if (transactionAddressMap.containsKey(uuid)) {
-            String address = transactionAddressMap.get(uuid);
-            BigDecimal amount = transactionAmountMap.get(uuid);
+        CryptoPayment payment = paymentStore.get(uuid);
+        if (payment != null) {
+            String address = payment.getAddress();
+            BigDecimal amount = payment.getAmountBtc();
 
             details.put("walletAddress", address);
             details.put("btcAmount", amount.toPlainString());
@@ -0,0 +1,45 @@
+package com.example.pspcrypto.service;
+
+import com.example.pspcrypto.model.CryptoPayment;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lokalno stanje kripto uplata: sve uplate po UUID-u i podskup koji watcher još prati.
+ * Čitanja sa HTTP putanje (/check-status, /details) su čisti lookup u mapi.
+ */
+@Component
+public class CryptoPaymentStore {
+
+    private final Map<String, CryptoPayment> payments = new ConcurrentHashMap<>();
+    private final Map<String, CryptoPayment> pending = new ConcurrentHashMap<>();
+
+    public void register(CryptoPayment payment) {
+        payments.put(payment.getTransactionUuid(), payment);
+        pending.put(payment.getTransactionUuid(), payment);
+    }
+
+    public CryptoPayment get(String transactionUuid) {
+        return payments.get(transactionUuid);
+    }
+
+    public Collection<CryptoPayment> pending() {
+        return pending.values();
+    }
+
+    public void stopWatching(String transactionUuid) {
+        pending.remove(transactionUuid);
+    }
+
+    public void evictCreatedBefore(Instant cutoff) {
+        payments.values().removeIf(p -> p.getCreatedAt().isBefore(cutoff) && !pending.containsKey(p.getTransactionUuid()));
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+}
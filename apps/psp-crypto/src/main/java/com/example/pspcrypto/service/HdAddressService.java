@@ -0,0 +1,75 @@
+package com.example.pspcrypto.service;
+
+import com.example.pspcrypto.tools.AuditLogger;
+import com.example.pspcrypto.wallet.DerivationIndexStore;
+import com.example.pspcrypto.wallet.ExtendedPublicKey;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+
+/**
+ * Lokalno izvođenje adresa za prijem iz xpub ključa prodavčevog novčanika (m/.../0/i).
+ * Zamenjuje POST ka BlockCypher /addresses/derive na svakom checkout-u.
+ */
+@Service
+public class HdAddressService {
+
+    private static final int MAX_INDEX = 0x7FFFFFFF;
+
+    private final AuditLogger auditLogger;
+
+    @Value("${crypto.hd.xpub:}")
+    private String xpub;
+
+    @Value("${crypto.hd.network:testnet}")
+    private String network;
+
+    @Value("${crypto.hd.index-file:./data/hd-derivation-index}")
+    private String indexFile;
+
+    @Value("${crypto.hd.index-block-size:10}")
+    private int indexBlockSize;
+
+    private ExtendedPublicKey receiveChain;
+    private DerivationIndexStore indexStore;
+    private String hrp;
+
+    public HdAddressService(AuditLogger auditLogger) {
+        this.auditLogger = auditLogger;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (xpub == null || xpub.isBlank()) {
+            auditLogger.logEvent("HD_WALLET_INIT", "DISABLED", "crypto.hd.xpub nije podešen, koristi se BlockCypher.");
+            return;
+        }
+        // Eksterni (receive) lanac se izvodi jednom, po plaćanju ostaje samo jedan CKDpub korak
+        this.receiveChain = ExtendedPublicKey.parse(xpub).deriveChild(0);
+        this.indexStore = new DerivationIndexStore(Path.of(indexFile), indexBlockSize);
+        this.hrp = "mainnet".equalsIgnoreCase(network) ? "bc" : "tb";
+        auditLogger.logEvent("HD_WALLET_INIT", "SUCCESS", "Network: " + network + " | IndexFile: " + indexFile);
+    }
+
+    public boolean isEnabled() {
+        return receiveChain != null;
+    }
+
+    public String nextReceiveAddress() {
+        if (!isEnabled()) {
+            throw new IllegalStateException("HD novčanik nije konfigurisan.");
+        }
+        while (true) {
+            long index = indexStore.nextIndex();
+            if (index > MAX_INDEX) {
+                throw new IllegalStateException("Iscrpljeni su derivacioni indeksi novčanika.");
+            }
+            ExtendedPublicKey child = receiveChain.deriveChild((int) index);
+            if (child != null) {
+                return child.toP2wpkhAddress(hrp);
+            }
+        }
+    }
+}
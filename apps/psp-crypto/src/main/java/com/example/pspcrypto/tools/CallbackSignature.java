@@ -0,0 +1,28 @@
+package com.example.pspcrypto.tools;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * HMAC-SHA256 potpis callback-a ka psp-core (isti algoritam proverava psp-core).
+ */
+public final class CallbackSignature {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private CallbackSignature() {
+    }
+
+    public static String sign(String secret, String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Greška pri potpisivanju callback-a", e);
+        }
+    }
+}
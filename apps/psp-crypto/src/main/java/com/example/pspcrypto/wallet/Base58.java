@@ -0,0 +1,86 @@
+package com.example.pspcrypto.wallet;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Base58Check dekodiranje (format u kome se serijalizuju xpub/tpub/vpub ključevi).
+ */
+public final class Base58 {
+
+    private static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final int[] INDEXES = new int[128];
+
+    static {
+        Arrays.fill(INDEXES, -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            INDEXES[ALPHABET.charAt(i)] = i;
+        }
+    }
+
+    private Base58() {
+    }
+
+    public static byte[] decode(String input) {
+        if (input.isEmpty()) return new byte[0];
+
+        byte[] input58 = new byte[input.length()];
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int digit = c < 128 ? INDEXES[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Nedozvoljen Base58 karakter: " + c);
+            }
+            input58[i] = (byte) digit;
+        }
+
+        int zeros = 0;
+        while (zeros < input58.length && input58[zeros] == 0) zeros++;
+
+        // Konverzija baze 58 -> 256 deljenjem u mestu
+        byte[] decoded = new byte[input.length()];
+        int outputStart = decoded.length;
+        for (int inputStart = zeros; inputStart < input58.length; ) {
+            decoded[--outputStart] = divmod(input58, inputStart, 58, 256);
+            if (input58[inputStart] == 0) inputStart++;
+        }
+        while (outputStart < decoded.length && decoded[outputStart] == 0) outputStart++;
+
+        return Arrays.copyOfRange(decoded, outputStart - zeros, decoded.length);
+    }
+
+    public static byte[] decodeChecked(String input) {
+        byte[] decoded = decode(input);
+        if (decoded.length < 4) {
+            throw new IllegalArgumentException("Base58Check vrednost je prekratka");
+        }
+        byte[] payload = Arrays.copyOfRange(decoded, 0, decoded.length - 4);
+        byte[] checksum = Arrays.copyOfRange(decoded, decoded.length - 4, decoded.length);
+        byte[] expected = Arrays.copyOfRange(doubleSha256(payload), 0, 4);
+        if (!MessageDigest.isEqual(checksum, expected)) {
+            throw new IllegalArgumentException("Neispravan Base58Check checksum");
+        }
+        return payload;
+    }
+
+    static byte[] doubleSha256(byte[] data) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return sha.digest(sha.digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte divmod(byte[] number, int firstDigit, int base, int divisor) {
+        int remainder = 0;
+        for (int i = firstDigit; i < number.length; i++) {
+            int digit = (int) number[i] & 0xFF;
+            int temp = remainder * base + digit;
+            number[i] = (byte) (temp / divisor);
+            remainder = temp % divisor;
+        }
+        return (byte) remainder;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.pspcrypto.wallet;
+
+/**
+ * Bech32 (BIP-173) enkodiranje SegWit v0 adresa (bc1... / tb1...).
+ */
+public final class Bech32 {
+
+    private static final String CHARSET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+    private static final int[] GENERATOR = {0x3b6a57b2, 0x26508e6d, 0x1ea119fa, 0x3d4233dd, 0x2a1462b3};
+
+    private Bech32() {
+    }
+
+    public static String encodeSegwitAddress(String hrp, int witnessVersion, byte[] witnessProgram) {
+        byte[] converted = convertBits(witnessProgram, 8, 5, true);
+        byte[] data = new byte[converted.length + 1];
+        data[0] = (byte) witnessVersion;
+        System.arraycopy(converted, 0, data, 1, converted.length);
+        return encode(hrp, data);
+    }
+
+    static String encode(String hrp, byte[] values) {
+        byte[] checksum = createChecksum(hrp, values);
+        StringBuilder sb = new StringBuilder(hrp.length() + 1 + values.length + checksum.length);
+        sb.append(hrp).append('1');
+        for (byte b : values) sb.append(CHARSET.charAt(b));
+        for (byte b : checksum) sb.append(CHARSET.charAt(b));
+        return sb.toString();
+    }
+
+    private static int polymod(byte[] values) {
+        int chk = 1;
+        for (byte v : values) {
+            int top = chk >>> 25;
+            chk = ((chk & 0x1ffffff) << 5) ^ (v & 0xff);
+            for (int i = 0; i < 5; i++) {
+                if (((top >>> i) & 1) != 0) chk ^= GENERATOR[i];
+            }
+        }
+        return chk;
+    }
+
+    private static byte[] expandHrp(String hrp) {
+        int len = hrp.length();
+        byte[] ret = new byte[len * 2 + 1];
+        for (int i = 0; i < len; i++) {
+            int c = hrp.charAt(i) & 0x7f;
+            ret[i] = (byte) (c >>> 5);
+            ret[i + len + 1] = (byte) (c & 0x1f);
+        }
+        return ret;
+    }
+
+    private static byte[] createChecksum(String hrp, byte[] values) {
+        byte[] hrpExpanded = expandHrp(hrp);
+        byte[] enc = new byte[hrpExpanded.length + values.length + 6];
+        System.arraycopy(hrpExpanded, 0, enc, 0, hrpExpanded.length);
+        System.arraycopy(values, 0, enc, hrpExpanded.length, values.length);
+        int mod = polymod(enc) ^ 1;
+        byte[] ret = new byte[6];
+        for (int i = 0; i < 6; i++) {
+            ret[i] = (byte) ((mod >>> (5 * (5 - i))) & 31);
+        }
+        return ret;
+    }
+
+    private static byte[] convertBits(byte[] data, int fromBits, int toBits, boolean pad) {
+        int acc = 0;
+        int bits = 0;
+        int maxv = (1 << toBits) - 1;
+        byte[] out = new byte[(data.length * fromBits + toBits - 1) / toBits];
+        int idx = 0;
+        for (byte b : data) {
+            acc = (acc << fromBits) | (b & 0xff);
+            bits += fromBits;
+            while (bits >= toBits) {
+                bits -= toBits;
+                out[idx++] = (byte) ((acc >>> bits) & maxv);
+            }
+        }
+        if (pad && bits > 0) {
+            out[idx++] = (byte) ((acc << (toBits - bits)) & maxv);
+        }
+        return idx == out.length ? out : java.util.Arrays.copyOf(out, idx);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.pspcrypto.wallet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Trajni, monotoni brojač derivacionih indeksa.
+ *
+ * Vrednost se čuva u fajlu koji dele sve psp-crypto instance. Instanca pod ekskluzivnim
+ * {@link FileLock}-om rezerviše ceo blok indeksa (hi/lo šema) i upisuje novu gornju granicu,
+ * pa se fajl zaključava jednom po bloku, a ne po plaćanju. Indeksi unutar bloka se dele
+ * bez I/O-a. Nakon restarta ostatak bloka se preskače - rupe su bezbedne dok je blok
+ * manji od gap limita novčanika (BIP-44: 20).
+ */
+public class DerivationIndexStore {
+
+    private final Path file;
+    private final int blockSize;
+
+    private long next;
+    private long blockEnd;
+
+    public DerivationIndexStore(Path file, int blockSize) {
+        if (blockSize < 1) throw new IllegalArgumentException("blockSize mora biti >= 1");
+        this.file = file;
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long nextIndex() {
+        if (next >= blockEnd) {
+            next = reserveBlock();
+            blockEnd = next + blockSize;
+        }
+        return next++;
+    }
+
+    private long reserveBlock() {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                long start = 0;
+                if (channel.size() >= Long.BYTES) {
+                    channel.read(buffer, 0);
+                    buffer.flip();
+                    start = buffer.getLong();
+                }
+
+                buffer.clear();
+                buffer.putLong(start + blockSize).flip();
+                channel.write(buffer, 0);
+                channel.force(true);
+                return start;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Neuspešna rezervacija derivacionih indeksa: " + file, e);
+        }
+    }
+}
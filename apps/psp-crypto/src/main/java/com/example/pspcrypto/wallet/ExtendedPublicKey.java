@@ -0,0 +1,109 @@
+package com.example.pspcrypto.wallet;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.RIPEMD160Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.math.ec.ECPoint;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * BIP-32 prošireni javni ključ (xpub/tpub/vpub...).
+ * Podržava samo ne-hardened derivaciju (CKDpub), što je dovoljno da se iz account-level
+ * ključa novčanika (npr. m/84'/1'/0') lokalno izvedu adrese za prijem, bez privatnog ključa.
+ */
+public final class ExtendedPublicKey {
+
+    private static final X9ECParameters CURVE = CustomNamedCurves.getByName("secp256k1");
+    private static final int SERIALIZED_LENGTH = 78;
+    private static final int HARDENED_BIT = 0x80000000;
+
+    private final ECPoint point;
+    private final byte[] publicKey;   // kompresovan, 33 bajta
+    private final byte[] chainCode;   // 32 bajta
+
+    private ExtendedPublicKey(ECPoint point, byte[] chainCode) {
+        this.point = point.normalize();
+        this.publicKey = this.point.getEncoded(true);
+        this.chainCode = chainCode;
+    }
+
+    public static ExtendedPublicKey parse(String serialized) {
+        byte[] data = Base58.decodeChecked(serialized.trim());
+        if (data.length != SERIALIZED_LENGTH) {
+            throw new IllegalArgumentException("Neispravna dužina proširenog ključa: " + data.length);
+        }
+        // [0..3] verzija, [4] dubina, [5..8] fingerprint, [9..12] indeks, [13..44] chain code, [45..77] ključ
+        byte[] chainCode = Arrays.copyOfRange(data, 13, 45);
+        byte[] key = Arrays.copyOfRange(data, 45, 78);
+        if (key[0] != 0x02 && key[0] != 0x03) {
+            throw new IllegalArgumentException("Očekivan je javni (xpub) ključ, a ne privatni.");
+        }
+        return new ExtendedPublicKey(CURVE.getCurve().decodePoint(key), chainCode);
+    }
+
+    /**
+     * CKDpub(K_par, c_par, i) iz BIP-32. Vraća null u (praktično nemogućem) slučaju
+     * nevalidnog deteta, pa pozivalac treba da pređe na sledeći indeks.
+     */
+    public ExtendedPublicKey deriveChild(int index) {
+        if ((index & HARDENED_BIT) != 0) {
+            throw new IllegalArgumentException("Hardened derivacija nije moguća iz javnog ključa.");
+        }
+
+        byte[] data = new byte[37];
+        System.arraycopy(publicKey, 0, data, 0, 33);
+        data[33] = (byte) (index >>> 24);
+        data[34] = (byte) (index >>> 16);
+        data[35] = (byte) (index >>> 8);
+        data[36] = (byte) index;
+
+        byte[] i = hmacSha512(chainCode, data);
+        BigInteger il = new BigInteger(1, Arrays.copyOfRange(i, 0, 32));
+        if (il.compareTo(CURVE.getN()) >= 0) return null;
+
+        ECPoint child = CURVE.getG().multiply(il).add(point);
+        if (child.isInfinity()) return null;
+
+        return new ExtendedPublicKey(child, Arrays.copyOfRange(i, 32, 64));
+    }
+
+    public byte[] getPublicKey() {
+        return publicKey.clone();
+    }
+
+    /**
+     * Native SegWit (P2WPKH) adresa: bech32(hrp, 0, HASH160(pubkey)).
+     */
+    public String toP2wpkhAddress(String hrp) {
+        return Bech32.encodeSegwitAddress(hrp, 0, hash160(publicKey));
+    }
+
+    private static byte[] hash160(byte[] data) {
+        try {
+            byte[] sha = MessageDigest.getInstance("SHA-256").digest(data);
+            RIPEMD160Digest ripemd = new RIPEMD160Digest();
+            ripemd.update(sha, 0, sha.length);
+            byte[] out = new byte[ripemd.getDigestSize()];
+            ripemd.doFinal(out, 0);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmacSha512(byte[] key, byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA512");
+            mac.init(new SecretKeySpec(key, "HmacSHA512"));
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.pspcrypto.simulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Lokalni simulator za CoinGecko, BlockCypher i mempool.space koji psp-crypto koristi.
+ *
+ * Pokreće se u testu na slobodnom portu, a servis se na njega usmerava preko
+ * coingecko.base-url, blockcypher.base-url i mempool.base-url ({@link #coinGeckoUrl()} itd.).
+ * Uplate se skriptuju po adresi preko {@link #deposit}: iznos, kada se pojavi u mempool-u
+ * i kada se potvrdi u bloku. Adresa bez skripte je nefinansirana. Latencija i 429 odgovori
+ * se ubacuju posebno za svaki API.
+ */
+public class CryptoApiSimulator implements AutoCloseable {
+
+    public enum Api { COINGECKO, BLOCKCYPHER, MEMPOOL }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, CopyOnWriteArrayList<Deposit>> deposits = new ConcurrentHashMap<>();
+    private final Map<Api, Latency> latencies = new ConcurrentHashMap<>();
+    private final Map<Api, Double> throttleRates = new ConcurrentHashMap<>();
+    private final Map<Api, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong addressCounter = new AtomicLong();
+
+    private volatile BigDecimal btcPrice = new BigDecimal("65000");
+
+    public CryptoApiSimulator() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        } catch (IOException e) {
+            throw new RuntimeException("Simulator nije mogao da se pokrene", e);
+        }
+        for (Api api : Api.values()) {
+            requestCounts.put(api, new AtomicLong());
+        }
+        server.createContext("/coingecko/simple/price", ex -> handle(ex, Api.COINGECKO, this::price));
+        server.createContext("/blockcypher/wallets/hd/", ex -> handle(ex, Api.BLOCKCYPHER, this::derive));
+        server.createContext("/mempool/address/", ex -> handle(ex, Api.MEMPOOL, this::address));
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    // --- URL-ovi za konfiguraciju servisa ---
+
+    public String coinGeckoUrl() {
+        return baseUrl() + "/coingecko";
+    }
+
+    public String blockCypherUrl() {
+        return baseUrl() + "/blockcypher";
+    }
+
+    public String mempoolUrl() {
+        return baseUrl() + "/mempool";
+    }
+
+    // --- Skriptovanje ---
+
+    public void setBtcPrice(BigDecimal price) {
+        this.btcPrice = price;
+    }
+
+    /** Nasumična latencija u opsegu [min, max] za svaki odgovor datog API-ja. */
+    public void setLatency(Api api, Duration min, Duration max) {
+        latencies.put(api, new Latency(min.toMillis(), max.toMillis()));
+    }
+
+    /** Udeo zahteva (0..1) na koje API odgovara sa 429 Too Many Requests. */
+    public void setThrottleRate(Api api, double rate) {
+        throttleRates.put(api, rate);
+    }
+
+    /**
+     * Uplata na adresu: posle mempoolAfter se vidi kao nepotvrđena, posle confirmAfter
+     * prelazi u chain_stats. Više poziva za istu adresu simulira delimične uplate i dopune.
+     */
+    public void deposit(String address, long sats, Duration mempoolAfter, Duration confirmAfter) {
+        long now = System.currentTimeMillis();
+        deposits.computeIfAbsent(address, a -> new CopyOnWriteArrayList<>())
+                .add(new Deposit(sats, now + mempoolAfter.toMillis(), now + confirmAfter.toMillis()));
+    }
+
+    public long requestCount(Api api) {
+        return requestCounts.get(api).get();
+    }
+
+    public void reset() {
+        deposits.clear();
+        latencies.clear();
+        throttleRates.clear();
+        requestCounts.values().forEach(c -> c.set(0));
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // --- Handleri ---
+
+    private Response price(HttpExchange ex) {
+        String fiat = queryParam(ex.getRequestURI().getRawQuery(), "vs_currencies");
+        if (fiat == null) return new Response(400, "{\"error\":\"missing vs_currencies\"}");
+        return new Response(200, "{\"bitcoin\":{\"" + fiat + "\":" + btcPrice.toPlainString() + "}}");
+    }
+
+    private Response derive(HttpExchange ex) {
+        if (!"POST".equals(ex.getRequestMethod()) || !ex.getRequestURI().getPath().endsWith("/addresses/derive")) {
+            return new Response(404, "{\"error\":\"not found\"}");
+        }
+        String address = String.format("tb1qsim%033d", addressCounter.incrementAndGet());
+        return new Response(200, "{\"chains\":[{\"chain_addresses\":[{\"address\":\"" + address + "\"}]}]}");
+    }
+
+    private Response address(HttpExchange ex) {
+        String address = ex.getRequestURI().getPath().substring("/mempool/address/".length());
+        long now = System.currentTimeMillis();
+        long confirmed = 0;
+        long unconfirmed = 0;
+        for (Deposit d : deposits.getOrDefault(address, new CopyOnWriteArrayList<>())) {
+            if (now >= d.confirmAt()) confirmed += d.sats();
+            else if (now >= d.visibleAt()) unconfirmed += d.sats();
+        }
+        return new Response(200, "{\"address\":\"" + address + "\","
+                + "\"chain_stats\":{\"funded_txo_sum\":" + confirmed + ",\"spent_txo_sum\":0},"
+                + "\"mempool_stats\":{\"funded_txo_sum\":" + unconfirmed + ",\"spent_txo_sum\":0}}");
+    }
+
+    private void handle(HttpExchange ex, Api api, Function<HttpExchange, Response> handler) throws IOException {
+        try {
+            requestCounts.get(api).incrementAndGet();
+            sleep(latencies.get(api));
+
+            Response response = ThreadLocalRandom.current().nextDouble() < throttleRates.getOrDefault(api, 0.0)
+                    ? new Response(429, "{\"error\":\"rate limited\"}")
+                    : handler.apply(ex);
+
+            byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json");
+            ex.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            ex.close();
+        }
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void sleep(Latency latency) {
+        if (latency == null || latency.maxMillis() <= 0) return;
+        long millis = latency.minMillis() + ThreadLocalRandom.current().nextLong(latency.maxMillis() - latency.minMillis() + 1);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String queryParam(String query, String name) {
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) return pair.substring(eq + 1);
+        }
+        return null;
+    }
+
+    private record Deposit(long sats, long visibleAt, long confirmAt) {}
+
+    private record Latency(long minMillis, long maxMillis) {}
+
+    private record Response(int status, String body) {}
+}
@@ -0,0 +1,231 @@
+package com.example.pspcrypto.simulator;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load harness: hiljade paralelnih kripto checkout-a kroz /api/connector/init i /check-status,
+ * sa blockchain-om i kursom iz {@link CryptoApiSimulator}-a.
+ *
+ * Ne pokreće se u običnom build-u:
+ *   mvn test -Dtest=CryptoCheckoutLoadTest -Dcrypto.load=true
+ *        [-Dcrypto.load.checkouts=2000] [-Dcrypto.load.concurrency=200] [-Dcrypto.load.latency-ms=50]
+ *
+ * Na kraju ispisuje propusnost i p50/p95/p99 latencije za init, check-status i vreme do potvrde.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("loadtest")
+@EnabledIfSystemProperty(named = "crypto.load", matches = "true")
+class CryptoCheckoutLoadTest {
+
+    private static final Pattern WALLET_ADDRESS = Pattern.compile("\"walletAddress\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern BTC_AMOUNT = Pattern.compile("\"btcAmount\"\\s*:\\s*\"([^\"]+)\"");
+
+    private static final CryptoApiSimulator simulator = new CryptoApiSimulator();
+
+    private final int checkouts = Integer.getInteger("crypto.load.checkouts", 2000);
+    private final int concurrency = Integer.getInteger("crypto.load.concurrency", 200);
+    private final long upstreamLatencyMillis = Long.getLong("crypto.load.latency-ms", 50);
+    private final Duration confirmDeadline = Duration.ofSeconds(Long.getLong("crypto.load.deadline-seconds", 60));
+    private final Duration unfundedWindow = Duration.ofSeconds(10);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newFixedThreadPool(32))
+            .build();
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+
+    @Value("${local.server.port}")
+    private int port;
+
+    @DynamicPropertySource
+    static void simulatorUrls(DynamicPropertyRegistry registry) {
+        registry.add("coingecko.base-url", simulator::coinGeckoUrl);
+        registry.add("blockcypher.base-url", simulator::blockCypherUrl);
+        registry.add("mempool.base-url", simulator::mempoolUrl);
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    /** Mešavina ishoda kakvu vidimo u realnom danu. */
+    enum Scenario {
+        FUNDED,          // ceo iznos, brzo u mempool-u
+        PARTIAL_TOPUP,   // polovina pa dopuna
+        DELAYED,         // uplata stiže tek posle nekoliko sekundi
+        PARTIAL_ONLY,    // polovina i ništa više - ne sme biti potvrđena
+        UNFUNDED;        // adresa ostaje prazna
+
+        boolean shouldConfirm() {
+            return this == FUNDED || this == PARTIAL_TOPUP || this == DELAYED;
+        }
+
+        static Scenario forIndex(int i) {
+            int slot = i % 10;
+            if (slot < 6) return FUNDED;
+            if (slot == 6) return PARTIAL_TOPUP;
+            if (slot == 7) return DELAYED;
+            if (slot == 8) return PARTIAL_ONLY;
+            return UNFUNDED;
+        }
+    }
+
+    @Test
+    void thousandsOfConcurrentCheckouts() throws Exception {
+        Duration latency = Duration.ofMillis(upstreamLatencyMillis);
+        simulator.setLatency(CryptoApiSimulator.Api.COINGECKO, latency.dividedBy(2), latency);
+        simulator.setLatency(CryptoApiSimulator.Api.BLOCKCYPHER, latency.dividedBy(2), latency);
+        simulator.setLatency(CryptoApiSimulator.Api.MEMPOOL, latency.dividedBy(2), latency);
+
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        AtomicInteger wrongOutcomes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(checkouts);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < checkouts; i++) {
+            Scenario scenario = Scenario.forIndex(i);
+            futures.add(pool.submit(() -> {
+                if (runCheckout(scenario) != scenario.shouldConfirm()) {
+                    wrongOutcomes.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+
+        report(elapsedNanos);
+        assertEquals(0, wrongOutcomes.get(), "Checkout-i sa pogrešnim ishodom");
+        assertTrue(latencies.containsKey("init"), "Nijedan init nije izmeren");
+    }
+
+    private boolean runCheckout(Scenario scenario) throws Exception {
+        String uuid = UUID.randomUUID().toString();
+        String initBody = "{\"amount\":49.99,\"currency\":\"EUR\",\"transactionUuid\":\"" + uuid + "\",\"merchantId\":\"load\"}";
+
+        HttpResponse<String> init = timed("init", HttpRequest.newBuilder(uri("/api/connector/init"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(initBody))
+                .build());
+
+        String address = extract(WALLET_ADDRESS, init.body());
+        String btcAmount = extract(BTC_AMOUNT, init.body());
+        if (init.statusCode() != 200 || address == null || btcAmount == null) {
+            record("init_failed", 0);
+            return false;
+        }
+        long expectedSats = new BigDecimal(btcAmount).movePointRight(8).longValueExact();
+        scriptDeposits(scenario, address, expectedSats);
+
+        long scripted = System.nanoTime();
+        Duration window = scenario.shouldConfirm() ? confirmDeadline : unfundedWindow;
+        long deadline = scripted + window.toNanos();
+
+        while (System.nanoTime() < deadline) {
+            HttpResponse<String> status = timed("check_status", HttpRequest.newBuilder(uri("/api/connector/check-status/" + uuid))
+                    .GET()
+                    .build());
+            if (status.statusCode() == 200 && Boolean.parseBoolean(status.body().trim())) {
+                record("time_to_confirm", System.nanoTime() - scripted);
+                return true;
+            }
+            Thread.sleep(250);
+        }
+        return false;
+    }
+
+    private void scriptDeposits(Scenario scenario, String address, long expectedSats) {
+        Duration jitter = Duration.ofMillis(ThreadLocalRandom.current().nextLong(1000));
+        switch (scenario) {
+            case FUNDED -> simulator.deposit(address, expectedSats, jitter, jitter.plusSeconds(2));
+            case PARTIAL_TOPUP -> {
+                simulator.deposit(address, expectedSats / 2, jitter, jitter.plusSeconds(2));
+                simulator.deposit(address, expectedSats - expectedSats / 2, jitter.plusMillis(1500), jitter.plusSeconds(4));
+            }
+            case DELAYED -> simulator.deposit(address, expectedSats, jitter.plusSeconds(5), jitter.plusSeconds(8));
+            case PARTIAL_ONLY -> simulator.deposit(address, expectedSats / 2, jitter, jitter.plusSeconds(2));
+            case UNFUNDED -> { }
+        }
+    }
+
+    private HttpResponse<String> timed(String metric, HttpRequest request) throws Exception {
+        long t0 = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        record(metric, System.nanoTime() - t0);
+        return response;
+    }
+
+    private void record(String metric, long nanos) {
+        latencies.computeIfAbsent(metric, m -> new ConcurrentLinkedQueue<>()).add(nanos);
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%n=== Crypto checkout load: %d checkout-a, concurrency %d, upstream latencija do %d ms ===%n",
+                checkouts, concurrency, upstreamLatencyMillis);
+        System.out.printf("Trajanje: %.1f s | checkout/s: %.1f%n", seconds, checkouts / seconds);
+        for (Map.Entry<String, ConcurrentLinkedQueue<Long>> entry : latencies.entrySet()) {
+            long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-16s n=%-7d req/s=%-8.1f p50=%-8.1f p95=%-8.1f p99=%-8.1f max=%.1f ms%n",
+                    entry.getKey(), sorted.length, sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1e6);
+        }
+        System.out.printf("Upstream pozivi: coingecko=%d blockcypher=%d mempool=%d%n",
+                simulator.requestCount(CryptoApiSimulator.Api.COINGECKO),
+                simulator.requestCount(CryptoApiSimulator.Api.BLOCKCYPHER),
+                simulator.requestCount(CryptoApiSimulator.Api.MEMPOOL));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0.0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static String extract(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        return m.find() ? m.group(1) : null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.pspcrypto.wallet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Test vektori iz BIP-173. */
+class Bech32Test {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    @Test
+    void validChecksums() {
+        assertEquals("a12uel5l", Bech32.encode("a", new byte[0]));
+
+        byte[] all = new byte[32];
+        for (int i = 0; i < all.length; i++) all[i] = (byte) i;
+        assertEquals("abcdef1qpzry9x8gf2tvdw0s3jn54khce6mua7lmqqqxw", Bech32.encode("abcdef", all));
+    }
+
+    @Test
+    void p2wpkhMainnet() {
+        assertEquals("bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4",
+                Bech32.encodeSegwitAddress("bc", 0, HEX.parseHex("751e76e8199196d454941c45d1b3a323f1433bd6")));
+    }
+
+    @Test
+    void p2wshTestnet() {
+        assertEquals("tb1qrp33g0q5c5txsp9arysrx4k6zdkfs4nce4xj0gdcccefvpysxf3q0sl5k7",
+                Bech32.encodeSegwitAddress("tb", 0,
+                        HEX.parseHex("1863143c14c5166804bd19203356da136c985678cd4d27a1b8c6329604903262")));
+    }
+}
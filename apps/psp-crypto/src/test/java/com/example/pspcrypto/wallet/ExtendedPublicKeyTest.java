@@ -0,0 +1,72 @@
+package com.example.pspcrypto.wallet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Zvanični test vektori iz BIP-32 (vektor 1) i BIP-84. Greška u derivaciji ne baca izuzetak,
+ * nego tiho daje tuđu adresu, pa se proverava bajt po bajt.
+ */
+class ExtendedPublicKeyTest {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // BIP-32 vektor 1, m/0H i m/0H/1/2H (seed 000102030405060708090a0b0c0d0e0f)
+    private static final String XPUB_M_0H =
+            "xpub68Gmy5EdvgibQVfPdqkBBCHxA5htiqg55crXYuXoQRKfDBFA1WEjWgP6LHhwBZeNK1VTsfTFUHCdrfp1bgwQ9xv5ski8PX9rL2dZXvgGDnw";
+    private static final String XPUB_M_0H_1_2H =
+            "xpub6D4BDPcP2GT577Vvch3R8wDkScZWzQzMMUm3PWbmWvVJrZwQY4VUNgqFJPMM3No2dFDFGTsxxpG5uJh7n7epu4trkrX7x7DogT5Uv6fcLW5";
+    private static final String XPRV_M =
+            "xprv9s21ZrQH143K3QTDL4LXw2F7HEK3wJUD2nW2nRk4stbPy6cq3jPPqjiChkVvvNKmPGJxWUtg6LnF5kejMRNNU3TGtRBeJgk33yuGBxrMPHi";
+
+    // BIP-84: account 0 za mnemonic "abandon ... about", m/84'/0'/0'
+    private static final String ZPUB_ACCOUNT_0 =
+            "zpub6rFR7y4Q2AijBEqTUquhVz398htDFrtymD9xYYfG1m4wAcvPhXNfE3EfH1r1ADqtfSdVCToUG868RvUUkgDKf31mGDtKsAYz2oz2AGutZYs";
+
+    @Test
+    void bip32Vector1PublicDerivation() {
+        ExtendedPublicKey m0h = ExtendedPublicKey.parse(XPUB_M_0H);
+        assertArrayEquals(HEX.parseHex("035a784662a4a20a65bf6aab9ae98a6c068a81c52e4b032c0fb5400c706cfccc56"),
+                m0h.getPublicKey());
+        assertArrayEquals(HEX.parseHex("03501e454bf00751f24b1b489aa925215d66af2234e3891c3b21a52bedb3cd711c"),
+                m0h.deriveChild(1).getPublicKey());
+
+        ExtendedPublicKey m0h12h2 = ExtendedPublicKey.parse(XPUB_M_0H_1_2H).deriveChild(2);
+        assertArrayEquals(HEX.parseHex("02e8445082a72f29b75ca48748a914df60622a609cacfce8ed0e35804560741d29"),
+                m0h12h2.getPublicKey());
+        assertArrayEquals(HEX.parseHex("022a471424da5e657499d1ff51cb43c47481a03b1e77f951fe64cec9f5a48f7011"),
+                m0h12h2.deriveChild(1_000_000_000).getPublicKey());
+    }
+
+    @Test
+    void bip84ReceiveAddresses() {
+        ExtendedPublicKey receive = ExtendedPublicKey.parse(ZPUB_ACCOUNT_0).deriveChild(0);
+        assertEquals("bc1qcr8te4kr609gcawutmrza0j4xv80jy8z306fyu", receive.deriveChild(0).toP2wpkhAddress("bc"));
+        assertEquals("bc1qnjg0jd8228aq7egyzacy8cys3knf9xvrerkf9g", receive.deriveChild(1).toP2wpkhAddress("bc"));
+    }
+
+    @Test
+    void bip84ChangeAddress() {
+        ExtendedPublicKey change = ExtendedPublicKey.parse(ZPUB_ACCOUNT_0).deriveChild(1);
+        assertEquals("bc1q8c6fshw2dlwun7ekn9qwf37cu2rn755upcp6el", change.deriveChild(0).toP2wpkhAddress("bc"));
+    }
+
+    @Test
+    void rejectsPrivateKeyAndHardenedIndex() {
+        assertThrows(IllegalArgumentException.class, () -> ExtendedPublicKey.parse(XPRV_M));
+        ExtendedPublicKey key = ExtendedPublicKey.parse(XPUB_M_0H);
+        assertThrows(IllegalArgumentException.class, () -> key.deriveChild(0x80000000));
+    }
+
+    @Test
+    void rejectsCorruptedChecksum() {
+        // Poslednji karakter promenjen - Base58Check mora da odbije ključ umesto da izvede pogrešne adrese
+        String corrupted = XPUB_M_0H.substring(0, XPUB_M_0H.length() - 1) + "x";
+        assertThrows(IllegalArgumentException.class, () -> ExtendedPublicKey.parse(corrupted));
+    }
+}